@@ -2,13 +2,21 @@ package org.vortex.resourceloader;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.type.TypeReference;
-import org.apache.commons.io.FileUtils;
+import org.vortex.resourceloader.jobs.JobContext;
+import org.vortex.resourceloader.merge.AssetDeduplicator;
+import org.vortex.resourceloader.merge.MergeManifest;
+import org.vortex.resourceloader.merge.MergeManifest.Contributor;
+import org.vortex.resourceloader.merge.MergeManifest.InputRecord;
+import org.vortex.resourceloader.merge.MergeSource;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.ZipUtil;
 
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.nio.file.*;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -17,215 +25,460 @@ public class ResourcePackMerger {
     private final Resourceloader plugin;
     private final Logger logger;
     private static final int BUFFER_SIZE = 32768;
-    private static final int THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors();
-    private final ExecutorService executor;
+    private static final String PACK_META = "pack.mcmeta";
     private final Set<File> pendingCleanup;
+    private final ObjectMapper mapper;
+
+    /**
+     * @param deduplicated textures left out as copies of another one, saving {@code savedBytes}
+     */
+    public record MergeResult(File outputFile, int totalEntries, int rebuiltEntries, boolean unchanged,
+                              int deduplicated, long savedBytes) {}
 
     public ResourcePackMerger(Resourceloader plugin) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
-        this.executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
         this.pendingCleanup = ConcurrentHashMap.newKeySet();
+        this.mapper = new ObjectMapper();
     }
 
+    /**
+     * Parallel stages run on the job system's shared worker pool, which is shut down by the job manager.
+     */
     public void shutdown() {
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
-        } finally {
-            cleanupAllWorkDirs();
-        }
+        cleanupPendingFiles();
     }
 
-    private void cleanupAllWorkDirs() {
-        for (File dir : pendingCleanup) {
-            try {
-                FileUtils.deleteDirectory(dir);
-            } catch (IOException e) {
-                logger.warning("Failed to clean up work directory: " + e.getMessage());
+    private ExecutorService workers() {
+        return plugin.getJobManager().getWorkerPool();
+    }
+
+    private void cleanupPendingFiles() {
+        for (File file : pendingCleanup) {
+            if (file.exists() && !file.delete()) {
+                logger.warning("Failed to clean up temporary file: " + file.getName());
             }
         }
         pendingCleanup.clear();
     }
 
     public File mergeResourcePacks(List<File> inputPacks, String outputName) throws IOException {
+        return merge(inputPacks, outputName).outputFile();
+    }
+
+    /**
+     * Merges the packs into packs/outputName. If that file was produced by an earlier merge,
+     * only entries whose contributing inputs changed are rebuilt and the rest are copied from
+     * the previous output; when nothing changed at all the existing file is left untouched.
+     */
+    public MergeResult merge(List<File> inputPacks, String outputName) throws IOException {
+        return merge(inputPacks, outputName, JobContext.NONE);
+    }
+
+    public MergeResult merge(List<File> inputPacks, String outputName, JobContext context) throws IOException {
+        List<CompletableFuture<File>> inputs = new ArrayList<>();
+        for (File pack : inputPacks) {
+            inputs.add(CompletableFuture.completedFuture(pack));
+        }
+        return mergeInputs(inputs, outputName, context);
+    }
+
+    /**
+     * Merges inputs that may still be downloading (URL packs resolved through the pack cache).
+     * Each input is opened and hashed as soon as its file is available, so downloads overlap
+     * the preparation of the inputs that are already on disk.
+     */
+    public MergeResult mergeInputs(List<CompletableFuture<File>> inputPacks, String outputName, JobContext context) throws IOException {
+        return mergeInto(inputPacks, new File(plugin.getDataFolder(), "packs/" + outputName),
+            MergeManifest.getManifestFile(plugin.getDataFolder(), outputName), context);
+    }
+
+    /**
+     * Merges into an arbitrary output file. Without a manifest file every call is a full merge.
+     */
+    public MergeResult mergeInto(List<CompletableFuture<File>> inputPacks, File outputFile, File manifestFile,
+                                 JobContext context) throws IOException {
         if (inputPacks.isEmpty()) {
             throw new IllegalArgumentException("No input packs provided");
         }
 
-        // Calculate required space (rough estimate: sum of input sizes * 2 for safety)
-        long requiredSpace = 0;
-        for (File pack : inputPacks) {
-            requiredSpace += pack.length() * 2;
+        String outputName = outputFile.getName();
+        List<CompletableFuture<PreparedInput>> prepared = new ArrayList<>();
+        for (CompletableFuture<File> input : inputPacks) {
+            prepared.add(input.thenApplyAsync(this::prepareInput, workers()));
         }
-
-        // Create work directory
-        File workDir = new File(plugin.getDataFolder(), "temp/merge_" + System.currentTimeMillis());
-        workDir.mkdirs();
-        pendingCleanup.add(workDir);
+        List<MergeSource> sources = new ArrayList<>();
 
         try {
-            // Check available space
-            long availableSpace = workDir.getUsableSpace();
+            List<InputRecord> inputs = new ArrayList<>();
+            for (CompletableFuture<PreparedInput> future : prepared) {
+                PreparedInput input = awaitInput(future, context);
+                sources.add(input.source());
+                inputs.add(input.record());
+            }
+
+            int packFormat = getPackFormat();
+            boolean deterministic = ZipUtil.isDeterministic(plugin);
+            boolean deduplicate = plugin.getConfig().getBoolean("merge.deduplicate", true);
+            MergeManifest previous = outputFile.exists() && manifestFile != null ? MergeManifest.load(manifestFile, logger) : null;
+
+            // Identical inputs always produce the same output, so the existing file and its SHA-1 stay valid
+            if (previous != null && previous.packFormat() == packFormat && previous.deduplicated() == deduplicate
+                    && previous.deterministic() == deterministic && previous.inputs().equals(inputs)) {
+                logger.info("Inputs of " + outputName + " are unchanged, keeping existing merged pack");
+                return new MergeResult(outputFile, previous.entries().size(), 0, true, 0, 0);
+            }
+            // Entries written in the other mode carry different timestamps, so none of them can be reused
+            if (previous != null && (!previous.hasSameLayout(inputs) || previous.deduplicated() != deduplicate
+                    || previous.deterministic() != deterministic)) {
+                previous = null;
+            }
+
+            // Check available space (rough estimate: sum of input sizes)
+            long requiredSpace = 0;
+            for (MergeSource source : sources) {
+                requiredSpace += source.getFile().length();
+            }
+            outputFile.getParentFile().mkdirs();
+            long availableSpace = outputFile.getParentFile().getUsableSpace();
             if (availableSpace < requiredSpace) {
                 throw new IOException("Insufficient disk space. Required: " + (requiredSpace / 1024 / 1024) + 
                                     "MB, Available: " + (availableSpace / 1024 / 1024) + "MB");
             }
 
-            logger.info("Merging " + inputPacks.size() + " resource packs...");
+            logger.info("Merging " + sources.size() + " resource packs...");
+            MergeResult result = writeMergedPack(sources, inputs, outputFile, manifestFile, previous, packFormat,
+                deterministic, deduplicate, context);
 
-            // Extract packs in parallel
-            List<Future<File>> extractFutures = new ArrayList<>();
-            for (File pack : inputPacks) {
-                extractFutures.add(executor.submit(() -> extractPack(pack, workDir)));
+            if (result.unchanged()) {
+                logger.info("Merged content of " + outputName + " is unchanged, keeping existing file");
+            } else {
+                logger.info("Resource packs merged successfully! Rebuilt " + result.rebuiltEntries() +
+                    " of " + result.totalEntries() + " entries");
             }
-
-            // Wait for all extractions to complete
-            List<File> extractedDirs = new ArrayList<>();
-            for (Future<File> future : extractFutures) {
-                try {
-                    extractedDirs.add(future.get());
-                } catch (Exception e) {
-                    throw new IOException("Failed to extract pack: " + e.getMessage(), e);
-                }
+            if (result.deduplicated() > 0) {
+                logger.info("Wrote " + result.deduplicated() + " duplicate textures of " + outputName
+                    + " once, saving " + FileUtil.formatSize(result.savedBytes()));
             }
+            return result;
 
-            // Merge directories in order (last pack has highest priority)
-            File outputDir = new File(workDir, "merged");
-            outputDir.mkdirs();
-
-            for (int i = 0; i < extractedDirs.size(); i++) {
-                File sourceDir = extractedDirs.get(i);
-                mergeDirectory(sourceDir, outputDir, i == extractedDirs.size() - 1);
-                
-                // Cleanup extracted directory after merging to free space
-                if (i < extractedDirs.size() - 1) {
-                    FileUtils.deleteDirectory(sourceDir);
-                }
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to merge resource packs: " + e.getMessage(), e);
+        } finally {
+            // Inputs still downloading or hashing after a failure are closed once they finish
+            for (CompletableFuture<PreparedInput> future : prepared) {
+                future.thenAccept(input -> closeSource(input.source()));
             }
+        }
+    }
 
-            // Create output file
-            File outputFile = new File(plugin.getDataFolder(), "packs/" + outputName);
-            zipDirectory(outputDir, outputFile);
+    private record PreparedInput(MergeSource source, InputRecord record) {}
 
-            // Update pack.mcmeta with latest format
-            updatePackMeta(outputDir);
+    private PreparedInput prepareInput(File pack) {
+        MergeSource source = null;
+        try {
+            source = MergeSource.open(pack, plugin);
+            return new PreparedInput(source, new InputRecord(source.getName(), source.computeHash()));
+        } catch (IOException e) {
+            if (source != null) {
+                closeSource(source);
+            }
+            throw new CompletionException(new IOException("Failed to read pack " + pack.getName() + ": " + e.getMessage(), e));
+        }
+    }
 
-            logger.info("Resource packs merged successfully!");
-            return outputFile;
+    private PreparedInput awaitInput(CompletableFuture<PreparedInput> future, JobContext context) throws IOException {
+        while (true) {
+            context.checkCancelled();
+            try {
+                return future.get(250, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still downloading, check for cancellation again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Merge interrupted", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+                throw new IOException(cause.getMessage(), cause);
+            }
+        }
+    }
 
-        } catch (Exception e) {
-            throw new IOException("Failed to merge resource packs: " + e.getMessage(), e);
-        } finally {
-            cleanup(workDir);
+    private void closeSource(MergeSource source) {
+        try {
+            source.close();
+        } catch (IOException e) {
+            logger.warning("Failed to close merge input " + source.getName() + ": " + e.getMessage());
         }
     }
 
-    private File extractPack(File pack, File workDir) throws IOException {
-        if (!pack.getName().toLowerCase().endsWith(".zip")) {
-            return pack;
+    private MergeResult writeMergedPack(List<MergeSource> sources, List<InputRecord> inputs, File outputFile,
+                                        File manifestFile, MergeManifest previous, int packFormat,
+                                        boolean deterministic, boolean deduplicate, JobContext context) throws IOException {
+        Map<String, List<Contributor>> plan = buildPlan(sources);
+        if (deterministic) {
+            // Entry order must not depend on input order or filesystem walk order
+            plan = new TreeMap<>(plan);
         }
+        int lastIndex = sources.size() - 1;
+
+        try (ZipFile previousOutput = previous != null ? new ZipFile(outputFile) : null) {
+            // Entries whose contributors are unchanged are copied from the previous output. With
+            // deduplication, JSON is always merged again: its references depend on the whole pack
+            Set<String> reusable = new HashSet<>();
+            if (previous != null) {
+                for (Map.Entry<String, List<Contributor>> entry : plan.entrySet()) {
+                    String name = entry.getKey();
+                    if (!name.equals(PACK_META) && !(deduplicate && name.endsWith(".json"))
+                            && entry.getValue().equals(previous.entries().get(name))
+                            && previousOutput.getEntry(name) != null) {
+                        reusable.add(name);
+                    }
+                }
+            }
+
+            byte[] packMeta = updatePackMeta(resolvePackMeta(plan.get(PACK_META), sources, lastIndex), packFormat, deterministic);
+
+            // JSON entries are merged in parallel; everything else is streamed while writing
+            Map<String, Future<byte[]>> jsonResults = new HashMap<>();
+            for (Map.Entry<String, List<Contributor>> entry : plan.entrySet()) {
+                String name = entry.getKey();
+                List<Contributor> contributors = entry.getValue();
+                if (!reusable.contains(name) && name.endsWith(".json")) {
+                    jsonResults.put(name, workers().submit(() -> resolveJsonEntry(name, contributors, sources, lastIndex, deterministic)));
+                }
+            }
+            Map<String, byte[]> mergedJson = new HashMap<>();
+            for (Map.Entry<String, Future<byte[]>> entry : jsonResults.entrySet()) {
+                if (context.isCancelled()) {
+                    jsonResults.values().forEach(future -> future.cancel(true));
+                    context.checkCancelled();
+                }
+                byte[] merged = awaitJson(entry.getKey(), entry.getValue());
+                if (merged != null) {
+                    mergedJson.put(entry.getKey(), merged);
+                }
+            }
 
-        File extractDir = new File(workDir, pack.getName().replace(".zip", ""));
-        try (ZipFile zipFile = new ZipFile(pack)) {
-            Enumeration<? extends ZipEntry> entries = zipFile.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                File entryFile = new File(extractDir, entry.getName());
+            AssetDeduplicator.Plan dedup = AssetDeduplicator.Plan.NONE;
+            if (deduplicate) {
+                AssetDeduplicator deduplicator = AssetDeduplicator.fromConfig(plugin, mapper);
+                dedup = deduplicate(deduplicator, plan, sources, lastIndex, context);
+                plan.keySet().removeAll(dedup.aliases().keySet());
+                for (Map.Entry<String, byte[]> entry : mergedJson.entrySet()) {
+                    entry.setValue(deduplicator.rewrite(entry.getKey(), entry.getValue(), dedup, deterministic));
+                }
+            }
 
-                if (entry.isDirectory()) {
-                    entryFile.mkdirs();
-                    continue;
+            // A changed input does not always change the output (e.g. a texture shadowed by the
+            // last pack), so compare the CRCs we are about to write with the previous output
+            if (previousOutput != null && isSameContent(previousOutput, plan, reusable, mergedJson, packMeta, lastIndex)) {
+                Map<String, List<Contributor>> unchanged = new LinkedHashMap<>(plan);
+                unchanged.keySet().removeIf(name -> previousOutput.getEntry(name) == null);
+                if (manifestFile != null) {
+                    new MergeManifest(packFormat, deduplicate, deterministic, inputs, unchanged).save(manifestFile);
                 }
+                return new MergeResult(outputFile, unchanged.size(), 0, true, dedup.aliases().size(), dedup.savedBytes());
+            }
 
-                entryFile.getParentFile().mkdirs();
-                try (InputStream in = zipFile.getInputStream(entry);
-                     OutputStream out = new FileOutputStream(entryFile)) {
-                    byte[] buffer = new byte[BUFFER_SIZE];
-                    int read;
-                    while ((read = in.read(buffer)) != -1) {
-                        out.write(buffer, 0, read);
+            File tempFile = new File(outputFile.getParentFile(), outputFile.getName() + ".tmp");
+            pendingCleanup.add(tempFile);
+            Map<String, List<Contributor>> written = new LinkedHashMap<>();
+            int processed = 0;
+            try {
+                try (ZipOutputStream zos = new ZipOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE))) {
+                    if (deterministic) {
+                        ZipUtil.configure(zos, ZipUtil.DETERMINISTIC_LEVEL);
                     }
+                    for (Map.Entry<String, List<Contributor>> entry : plan.entrySet()) {
+                        context.checkCancelled();
+                        context.setProgress(processed++, plan.size());
+                        String name = entry.getKey();
+                        if (name.equals(PACK_META)) {
+                            writeEntry(zos, name, deterministic, new ByteArrayInputStream(packMeta));
+                        } else if (reusable.contains(name)) {
+                            try (InputStream in = previousOutput.getInputStream(previousOutput.getEntry(name))) {
+                                writeEntry(zos, name, deterministic, in);
+                            }
+                        } else if (name.endsWith(".json")) {
+                            byte[] merged = mergedJson.get(name);
+                            if (merged == null) {
+                                continue;
+                            }
+                            writeEntry(zos, name, deterministic, new ByteArrayInputStream(merged));
+                        } else {
+                            // For non-JSON files, the last pack takes priority, otherwise the first one wins
+                            Contributor winner = selectWinner(entry.getValue(), lastIndex);
+                            try (InputStream in = sources.get(winner.input()).openStream(name)) {
+                                writeEntry(zos, name, deterministic, in);
+                            }
+                        }
+                        written.put(name, entry.getValue());
+                    }
+                }
+
+                if (previousOutput != null) {
+                    previousOutput.close();
                 }
+                FileUtil.replaceFile(tempFile.toPath(), outputFile.toPath());
+            } finally {
+                tempFile.delete();
+                pendingCleanup.remove(tempFile);
+            }
+
+            if (manifestFile != null) {
+                new MergeManifest(packFormat, deduplicate, deterministic, inputs, written).save(manifestFile);
             }
+            return new MergeResult(outputFile, written.size(), written.size() - reusable.size(), false,
+                dedup.aliases().size(), dedup.savedBytes());
         }
-        return extractDir;
     }
 
-    private void mergeDirectory(File sourceDir, File targetDir, boolean isLastPack) throws IOException {
-        if (!sourceDir.exists()) {
-            return;
+    /**
+     * Finds the textures of the merged pack that are copies of another one, reading each from the
+     * input that wins it.
+     */
+    private AssetDeduplicator.Plan deduplicate(AssetDeduplicator deduplicator, Map<String, List<Contributor>> plan,
+                                               List<MergeSource> sources, int lastIndex, JobContext context) throws IOException {
+        Map<String, Contributor> winners = new HashMap<>();
+        for (Map.Entry<String, List<Contributor>> entry : plan.entrySet()) {
+            String name = entry.getKey();
+            if (!name.equals(PACK_META) && !name.endsWith(".json")) {
+                winners.put(name, selectWinner(entry.getValue(), lastIndex));
+            }
         }
+        return deduplicator.plan(winners, plan.keySet(),
+            name -> sources.get(winners.get(name).input()).openStream(name), workers(), context);
+    }
 
-        Files.walk(sourceDir.toPath())
-            .filter(Files::isRegularFile)
-            .forEach(sourcePath -> {
-                try {
-                    Path relativePath = sourceDir.toPath().relativize(sourcePath);
-                    File targetFile = new File(targetDir, relativePath.toString());
-                    
-                    if (sourcePath.toString().endsWith(".json")) {
-                        mergeJsonFile(targetFile, sourcePath.toFile(), isLastPack);
-                    } else {
-                        // For non-JSON files, newer pack always takes priority
-                        if (isLastPack || !targetFile.exists()) {
-                            FileUtils.copyFile(sourcePath.toFile(), targetFile);
-                        }
-                    }
-                } catch (IOException e) {
-                    logger.warning("Failed to merge file " + sourcePath + ": " + e.getMessage());
+    private boolean isSameContent(ZipFile previousOutput, Map<String, List<Contributor>> plan, Set<String> reusable,
+                                  Map<String, byte[]> mergedJson, byte[] packMeta, int lastIndex) {
+        Map<String, Long> expected = new HashMap<>();
+        for (Map.Entry<String, List<Contributor>> entry : plan.entrySet()) {
+            String name = entry.getKey();
+            if (name.equals(PACK_META)) {
+                expected.put(name, crcOf(packMeta));
+            } else if (reusable.contains(name)) {
+                expected.put(name, previousOutput.getEntry(name).getCrc());
+            } else if (name.endsWith(".json")) {
+                if (mergedJson.containsKey(name)) {
+                    expected.put(name, crcOf(mergedJson.get(name)));
                 }
-            });
+            } else {
+                expected.put(name, selectWinner(entry.getValue(), lastIndex).crc());
+            }
+        }
+
+        Map<String, Long> actual = new HashMap<>();
+        Enumeration<? extends ZipEntry> entries = previousOutput.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            actual.put(entry.getName(), entry.getCrc());
+        }
+        return expected.equals(actual);
     }
 
-    private void mergeJsonFile(File targetFile, File sourceFile, boolean isLastPack) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        
-        // Read source file
-        Map<String, Object> sourceMap = readJsonFile(sourceFile, mapper);
-        if (sourceMap == null) return;
-
-        // If target doesn't exist or this is the last pack, just copy/overwrite
-        if (!targetFile.exists() || isLastPack) {
-            targetFile.getParentFile().mkdirs();
-            FileUtils.copyFile(sourceFile, targetFile);
-            return;
+    private static long crcOf(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private Map<String, List<Contributor>> buildPlan(List<MergeSource> sources) {
+        Map<String, List<Contributor>> plan = new LinkedHashMap<>();
+        plan.put(PACK_META, new ArrayList<>());
+        for (int i = 0; i < sources.size(); i++) {
+            for (MergeSource.SourceEntry entry : sources.get(i).getEntries()) {
+                plan.computeIfAbsent(entry.name(), k -> new ArrayList<>())
+                    .add(new Contributor(i, entry.crc(), entry.size()));
+            }
         }
+        return plan;
+    }
+
+    private Contributor selectWinner(List<Contributor> contributors, int lastIndex) {
+        Contributor last = contributors.get(contributors.size() - 1);
+        return last.input() == lastIndex ? last : contributors.get(0);
+    }
 
-        // Read target file
-        Map<String, Object> targetMap = readJsonFile(targetFile, mapper);
-        if (targetMap == null) {
-            FileUtils.copyFile(sourceFile, targetFile);
-            return;
+    private byte[] resolvePackMeta(List<Contributor> contributors, List<MergeSource> sources, int lastIndex) throws IOException {
+        if (contributors.isEmpty()) {
+            return null;
         }
+        Contributor winner = selectWinner(contributors, lastIndex);
+        return sources.get(winner.input()).readEntry(PACK_META);
+    }
 
-        // Special handling for different types of JSON files
-        if (isModelFile(targetFile)) {
-            mergeModelFile(targetMap, sourceMap);
-        } else if (isLanguageFile(targetFile)) {
-            // Language files just need simple merging with override
-            targetMap.putAll(sourceMap);
-        } else {
-            // Default deep merge for other JSON files
-            deepMerge(targetMap, sourceMap);
+    private byte[] resolveJsonEntry(String name, List<Contributor> contributors,
+                                    List<MergeSource> sources, int lastIndex, boolean deterministic) throws IOException {
+        // The last pack overwrites everything before it, so its copy wins outright when it is valid
+        Contributor last = contributors.get(contributors.size() - 1);
+        if (last.input() == lastIndex) {
+            byte[] lastBytes = sources.get(lastIndex).readEntry(name);
+            if (readJson(lastBytes, name) != null) {
+                return lastBytes;
+            }
         }
 
-        // Write merged result
-        writeJsonFile(targetFile, targetMap, mapper);
+        byte[] target = null;
+        for (Contributor contributor : contributors) {
+            if (contributor.input() == lastIndex) {
+                continue;
+            }
+            byte[] sourceBytes = sources.get(contributor.input()).readEntry(name);
+            Map<String, Object> sourceMap = readJson(sourceBytes, name);
+            if (sourceMap == null) {
+                continue;
+            }
+            if (target == null) {
+                target = sourceBytes;
+                continue;
+            }
+
+            Map<String, Object> targetMap = readJson(target, name);
+            if (targetMap == null) {
+                target = sourceBytes;
+                continue;
+            }
+
+            // Special handling for different types of JSON files
+            if (isModelFile(name)) {
+                mergeModelFile(targetMap, sourceMap);
+            } else if (isLanguageFile(name)) {
+                // Language files just need simple merging with override
+                targetMap.putAll(sourceMap);
+            } else {
+                // Default deep merge for other JSON files
+                deepMerge(targetMap, sourceMap);
+            }
+            target = writeJson(targetMap, deterministic);
+        }
+        return target;
+    }
+
+    private byte[] awaitJson(String name, Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Merge interrupted", e);
+        } catch (ExecutionException e) {
+            logger.warning("Failed to merge file " + name + ": " + e.getCause().getMessage());
+            return null;
+        }
     }
 
-    private boolean isModelFile(File file) {
-        String path = file.getPath().toLowerCase();
+    private boolean isModelFile(String path) {
+        path = path.toLowerCase();
         return path.contains("models") || path.contains("blockstates") || path.endsWith(".model.json");
     }
 
-    private boolean isLanguageFile(File file) {
-        return file.getPath().toLowerCase().contains("lang");
+    private boolean isLanguageFile(String path) {
+        return path.toLowerCase().contains("lang");
     }
 
     @SuppressWarnings("unchecked")
@@ -281,45 +534,26 @@ public class ResourcePackMerger {
         }
     }
 
-    private Map<String, Object> readJsonFile(File file, ObjectMapper mapper) {
+    private Map<String, Object> readJson(byte[] data, String name) {
         try {
-            return mapper.readValue(file, new TypeReference<Map<String, Object>>() {});
+            return mapper.readValue(data, new TypeReference<Map<String, Object>>() {});
         } catch (IOException e) {
-            logger.warning("Failed to read JSON file " + file.getName() + ": " + e.getMessage());
+            logger.warning("Failed to read JSON file " + name + ": " + e.getMessage());
             return null;
         }
     }
 
-    private void writeJsonFile(File file, Map<String, Object> content, ObjectMapper mapper) throws IOException {
-        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
-        try {
-            file.getParentFile().mkdirs();
-            mapper.writerWithDefaultPrettyPrinter().writeValue(tempFile, content);
-            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        } catch (IOException e) {
-            tempFile.delete();
-            throw e;
-        }
+    private byte[] writeJson(Map<String, Object> content, boolean deterministic) throws IOException {
+        return ZipUtil.jsonWriter(mapper, deterministic).writeValueAsBytes(content);
     }
 
-    private void zipDirectory(File sourceDir, File zipFile) throws IOException {
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile))) {
-            Files.walk(sourceDir.toPath())
-                .filter(path -> !Files.isDirectory(path))
-                .forEach(path -> {
-                    ZipEntry zipEntry = new ZipEntry(sourceDir.toPath().relativize(path).toString().replace('\\', '/'));
-                    try {
-                        zos.putNextEntry(zipEntry);
-                        Files.copy(path, zos);
-                        zos.closeEntry();
-                    } catch (IOException e) {
-                        logger.warning("Failed to add file to zip: " + path);
-                    }
-                });
-        }
+    private void writeEntry(ZipOutputStream zos, String name, boolean deterministic, InputStream in) throws IOException {
+        zos.putNextEntry(ZipUtil.newEntry(name, deterministic));
+        in.transferTo(zos);
+        zos.closeEntry();
     }
 
-    private int getPackFormat() {
+    public int getPackFormat() {
         String version = plugin.getServer().getBukkitVersion();
         
         // Extract the main version number (e.g., "1.20.4-R0.1-SNAPSHOT" -> "1.20.4")
@@ -362,17 +596,9 @@ public class ResourcePackMerger {
         };
     }
 
-    private void updatePackMeta(File packDir) throws IOException {
-        File mcmetaFile = new File(packDir, "pack.mcmeta");
-        ObjectMapper mapper = new ObjectMapper();
-        
-        Map<String, Object> mcmeta;
-        if (mcmetaFile.exists()) {
-            mcmeta = readJsonFile(mcmetaFile, mapper);
-            if (mcmeta == null) {
-                mcmeta = new HashMap<>();
-            }
-        } else {
+    private byte[] updatePackMeta(byte[] existing, int packFormat, boolean deterministic) throws IOException {
+        Map<String, Object> mcmeta = existing != null ? readJson(existing, PACK_META) : null;
+        if (mcmeta == null) {
             mcmeta = new HashMap<>();
         }
 
@@ -388,27 +614,12 @@ public class ResourcePackMerger {
         }
         
         // Use the server's version to determine pack format
-        int packFormat = getPackFormat();
         pack.put("pack_format", packFormat);
         pack.put("description", "Merged Resource Pack (Format: " + packFormat + ")");
 
         logger.info("Setting merged pack format to " + packFormat + " for server version " + 
             plugin.getServer().getBukkitVersion());
 
-        writeJsonFile(mcmetaFile, mcmeta, mapper);
-    }
-
-    private void cleanup(File workDir) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                if (workDir != null && workDir.exists()) {
-                    FileUtils.deleteDirectory(workDir);
-                }
-            } catch (IOException e) {
-                logger.warning("Failed to clean up temporary directory: " + e.getMessage());
-            } finally {
-                pendingCleanup.remove(workDir);
-            }
-        }, executor);
+        return writeJson(mcmeta, deterministic);
     }
-}
\ No newline at end of file
+}
@@ -22,17 +22,43 @@ import org.vortex.resourceloader.util.MessageManager;
 import org.vortex.resourceloader.commands.CommandManager;
 import org.vortex.resourceloader.listeners.ResourcePackEnforcer;
 import org.vortex.resourceloader.listeners.EarlyPackLoader;
+import org.vortex.resourceloader.jobs.JobManager;
+import org.vortex.resourceloader.core.HashCacheManager;
+import org.vortex.resourceloader.core.ThroughputTracker;
+import org.vortex.resourceloader.core.ZipIndexStore;
+import org.vortex.resourceloader.merge.CompositePackManager;
+import org.vortex.resourceloader.validation.PackValidator;
+import org.vortex.resourceloader.analysis.PackAnalyzer;
+import org.vortex.resourceloader.analysis.PackDiffer;
 
 public final class Resourceloader extends JavaPlugin {
+    private final JobManager jobManager;
     private final ResourcePackManager packManager;
     private final PackCompressor packCompressor;
     private MergeGUI mergeGUI;
     private final MessageManager messageManager;
+    private final ResourcePackMerger merger;
+    private final HashCacheManager hashCache;
+    private final ZipIndexStore zipIndexes;
+    private final ThroughputTracker throughputTracker;
+    private final CompositePackManager compositePacks;
+    private final PackValidator packValidator;
+    private final PackAnalyzer packAnalyzer;
+    private final PackDiffer packDiffer;
 
     public Resourceloader() {
+        this.jobManager = new JobManager(this);
+        this.hashCache = new HashCacheManager(this);
+        this.zipIndexes = new ZipIndexStore(this);
+        this.throughputTracker = new ThroughputTracker(this);
         this.messageManager = new MessageManager(this);
         this.packManager = new ResourcePackManager(this);
         this.packCompressor = new PackCompressor(this);
+        this.merger = new ResourcePackMerger(this);
+        this.compositePacks = new CompositePackManager(this);
+        this.packValidator = new PackValidator(this);
+        this.packAnalyzer = new PackAnalyzer(this);
+        this.packDiffer = new PackDiffer(this);
     }
 
     @Override
@@ -62,17 +88,30 @@ public final class Resourceloader extends JavaPlugin {
             getServer().getPluginManager().registerEvents(new ResourcePackEnforcer(this), this);
         }
 
+        // Drop compression variants of packs that were removed or changed while the server was off
+        packCompressor.collectGarbage();
+
         getLogger().info("ResourceLoader has been enabled!");
     }
 
     @Override
     public void onDisable() {
+        // Stop running jobs first so nothing is still writing while the rest shuts down
+        if (jobManager != null) {
+            jobManager.shutdown();
+        }
+        if (merger != null) {
+            merger.shutdown();
+        }
         if (packManager != null) {
             packManager.shutdown();
         }
         if (packCompressor != null) {
             packCompressor.shutdown();
         }
+        if (throughputTracker != null) {
+            throughputTracker.save();
+        }
         getLogger().info("ResourceLoader has been disabled!");
     }
 
@@ -104,6 +143,42 @@ public final class Resourceloader extends JavaPlugin {
         return messageManager;
     }
 
+    public JobManager getJobManager() {
+        return jobManager;
+    }
+
+    public ResourcePackMerger getMerger() {
+        return merger;
+    }
+
+    public HashCacheManager getHashCache() {
+        return hashCache;
+    }
+
+    public ZipIndexStore getZipIndexes() {
+        return zipIndexes;
+    }
+
+    public ThroughputTracker getThroughputTracker() {
+        return throughputTracker;
+    }
+
+    public CompositePackManager getCompositePacks() {
+        return compositePacks;
+    }
+
+    public PackValidator getPackValidator() {
+        return packValidator;
+    }
+
+    public PackAnalyzer getPackAnalyzer() {
+        return packAnalyzer;
+    }
+
+    public PackDiffer getPackDiffer() {
+        return packDiffer;
+    }
+
     public class LoadCommand implements CommandExecutor, TabCompleter {
         private final Resourceloader plugin;
 
@@ -0,0 +1,211 @@
+package org.vortex.resourceloader.analysis;
+
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobContext;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.RawZipReader;
+import org.vortex.resourceloader.util.ZipIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds {@link SizeReport}s. Sizes and the largest entries come from the pack's {@link ZipIndex} alone.
+ * Duplicates are found in two steps: entries are grouped by size and CRC32 from the central
+ * directory, and only entries that share both with another one are read and hashed with SHA-1 to
+ * confirm they are identical. Hashing streams each entry and runs in partitions on the shared
+ * workers. Reports are kept in memory by the SHA-1 of the pack.
+ */
+public class PackAnalyzer {
+    private static final int MAX_LARGEST = 100;
+    private static final long PARTITION_BYTES = 8L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Resourceloader plugin;
+    private final Map<String, SizeReport> reports;
+
+    public PackAnalyzer(Resourceloader plugin) {
+        this.plugin = plugin;
+        int capacity = Math.max(1, plugin.getConfig().getInt("analysis.cache", 8));
+        this.reports = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SizeReport> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public SizeReport analyze(File packFile) throws IOException {
+        return analyze(packFile, JobContext.NONE);
+    }
+
+    public SizeReport analyze(File packFile, JobContext context) throws IOException {
+        String packHash = plugin.getHashCache().getOrCalculateHash(packFile);
+        if (packHash != null) {
+            synchronized (reports) {
+                SizeReport cached = reports.get(packHash);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+
+        SizeReport report = analyze(packFile, plugin.getZipIndexes().get(packFile), context);
+        if (packHash != null) {
+            synchronized (reports) {
+                reports.put(packHash, report);
+            }
+        }
+        return report;
+    }
+
+    private SizeReport analyze(File packFile, ZipIndex zipIndex, JobContext context) throws IOException {
+        Map<String, SizeReport.Category> namespaces = new HashMap<>();
+        Map<String, SizeReport.Category> types = new HashMap<>();
+        PriorityQueue<RawZipReader.Entry> largest = new PriorityQueue<>(Comparator.comparingLong(RawZipReader.Entry::size));
+        Map<String, List<RawZipReader.Entry>> candidates = new LinkedHashMap<>();
+        SizeReport.Category total = new SizeReport.Category(0, 0, 0);
+
+        for (RawZipReader.Entry entry : zipIndex.getEntries()) {
+            if (entry.name().endsWith("/")) {
+                continue;
+            }
+            long size = entry.size();
+            long compressed = entry.compressedSize();
+            total = total.add(compressed, size);
+            String[] category = category(entry.name());
+            namespaces.merge(category[0], new SizeReport.Category(1, compressed, size), PackAnalyzer::sum);
+            types.merge(category[1], new SizeReport.Category(1, compressed, size), PackAnalyzer::sum);
+
+            largest.add(entry);
+            if (largest.size() > MAX_LARGEST) {
+                largest.poll();
+            }
+            if (size > 0) {
+                candidates.computeIfAbsent(size + ":" + entry.crc(), key -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        List<SizeReport.Entry> largestEntries = new ArrayList<>();
+        largest.forEach(entry -> largestEntries.add(
+            new SizeReport.Entry(entry.name(), entry.compressedSize(), entry.size())));
+        largestEntries.sort(Comparator.comparingLong(SizeReport.Entry::size).reversed()
+            .thenComparing(SizeReport.Entry::name));
+
+        List<List<RawZipReader.Entry>> groups = candidates.values().stream().filter(group -> group.size() > 1).toList();
+        List<SizeReport.Duplicate> duplicates = List.of();
+        if (!groups.isEmpty()) {
+            // Only entries that may be duplicates are ever read
+            try (ZipFile zip = new ZipFile(packFile)) {
+                duplicates = findDuplicates(zip, groups, context);
+            }
+        }
+        return new SizeReport(packFile.length(), total.entries(), total.compressedSize(), total.size(),
+            Map.copyOf(namespaces), Map.copyOf(types), List.copyOf(largestEntries), duplicates);
+    }
+
+    private static SizeReport.Category sum(SizeReport.Category a, SizeReport.Category b) {
+        return new SizeReport.Category(a.entries() + b.entries(), a.compressedSize() + b.compressedSize(), a.size() + b.size());
+    }
+
+    /**
+     * Namespace and asset type of an entry.
+     */
+    private static String[] category(String name) {
+        if (!name.startsWith("assets/")) {
+            int slash = name.indexOf('/');
+            return new String[]{SizeReport.NO_NAMESPACE, slash < 0 ? "(pack root)" : name.substring(0, slash)};
+        }
+        String[] parts = name.substring("assets/".length()).split("/", 3);
+        return new String[]{parts[0], parts.length < 3 ? "(namespace root)" : parts[1]};
+    }
+
+    /**
+     * Hashes the entries that share size and CRC32 with another one, in partitions of about
+     * {@link #PARTITION_BYTES}, and groups them by content.
+     */
+    private List<SizeReport.Duplicate> findDuplicates(ZipFile zip, List<List<RawZipReader.Entry>> groups,
+                                                      JobContext context) throws IOException {
+        List<List<List<RawZipReader.Entry>>> chunks = new ArrayList<>();
+        List<List<RawZipReader.Entry>> chunk = new ArrayList<>();
+        long chunkBytes = 0;
+        for (List<RawZipReader.Entry> group : groups) {
+            chunk.add(group);
+            chunkBytes += group.get(0).size() * group.size();
+            if (chunkBytes >= PARTITION_BYTES) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkBytes = 0;
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+
+        ExecutorService workers = plugin.getJobManager().getWorkerPool();
+        List<CompletableFuture<List<SizeReport.Duplicate>>> partitions = new ArrayList<>();
+        for (List<List<RawZipReader.Entry>> partition : chunks) {
+            partitions.add(CompletableFuture.supplyAsync(() -> hashPartition(zip, partition, context), workers));
+        }
+
+        List<SizeReport.Duplicate> duplicates = new ArrayList<>();
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                duplicates.addAll(context.await(partitions.get(i)));
+                context.setProgress(i + 1, partitions.size());
+            }
+        } finally {
+            // The zip is closed by the caller; no partition may still be reading from it
+            partitions.forEach(partition -> partition.handle((result, error) -> null).join());
+        }
+        duplicates.sort(Comparator.comparingLong(SizeReport.Duplicate::wastedBytes).reversed()
+            .thenComparing(duplicate -> duplicate.names().get(0)));
+        return List.copyOf(duplicates);
+    }
+
+    private static List<SizeReport.Duplicate> hashPartition(ZipFile zip, List<List<RawZipReader.Entry>> groups,
+                                                            JobContext context) {
+        List<SizeReport.Duplicate> duplicates = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (List<RawZipReader.Entry> group : groups) {
+                // Same size and CRC is almost always the same content; the hash makes it certain
+                Map<String, List<RawZipReader.Entry>> byContent = new LinkedHashMap<>();
+                for (RawZipReader.Entry entry : group) {
+                    context.checkCancelled();
+                    ZipEntry zipEntry = zip.getEntry(entry.name());
+                    if (zipEntry == null) {
+                        throw new IOException("Entry " + entry.name() + " is listed but cannot be read");
+                    }
+                    try (InputStream in = zip.getInputStream(zipEntry)) {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            digest.update(buffer, 0, read);
+                        }
+                    }
+                    byContent.computeIfAbsent(FileUtil.toHex(digest.digest()), key -> new ArrayList<>()).add(entry);
+                }
+                for (List<RawZipReader.Entry> identical : byContent.values()) {
+                    if (identical.size() > 1) {
+                        duplicates.add(new SizeReport.Duplicate(identical.stream().map(RawZipReader.Entry::name).toList(),
+                            identical.get(0).size(),
+                            identical.stream().mapToLong(RawZipReader.Entry::compressedSize).min().orElse(0)));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+        return duplicates;
+    }
+}
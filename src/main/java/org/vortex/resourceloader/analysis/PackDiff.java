@@ -0,0 +1,103 @@
+package org.vortex.resourceloader.analysis;
+
+import org.vortex.resourceloader.util.FileUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The entries that differ between two versions of a pack. Sizes are uncompressed entry bytes unless
+ * named compressed; compressed sizes are what the entry adds to the download.
+ *
+ * @param oldPackSize size of the old pack file
+ * @param newPackSize size of the new pack file
+ * @param added       entries only in the new pack, largest first
+ * @param removed     entries only in the old pack, largest first
+ * @param changed     entries in both with different content, largest first
+ * @param moved       entries whose content is unchanged under a new name
+ * @param unchanged   entries with the same name, size and CRC32 in both
+ * @param hashed      entries that had to be read to tell moves apart
+ */
+public record PackDiff(long oldPackSize, long newPackSize, List<Change> added, List<Change> removed,
+                       List<Change> changed, List<Move> moved, int unchanged, int hashed) {
+
+    /**
+     * @param oldSize        0 for added entries
+     * @param newSize        0 for removed entries
+     * @param compressedSize in the new pack, or in the old one for removed entries
+     */
+    public record Change(String name, long oldSize, long newSize, long compressedSize) {}
+
+    public record Move(String from, String to, long size) {}
+
+    public boolean isIdentical() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty() && moved.isEmpty();
+    }
+
+    public long getPackDelta() {
+        return newPackSize - oldPackSize;
+    }
+
+    /**
+     * Uncompressed bytes gained or lost over all entries.
+     */
+    public long getContentDelta() {
+        return added.stream().mapToLong(Change::newSize).sum()
+            - removed.stream().mapToLong(Change::oldSize).sum()
+            + changed.stream().mapToLong(change -> change.newSize() - change.oldSize()).sum();
+    }
+
+    /**
+     * Compressed bytes of the new pack that players do not already have in the old one.
+     */
+    public long getNewContentBytes() {
+        return added.stream().mapToLong(Change::compressedSize).sum()
+            + changed.stream().mapToLong(Change::compressedSize).sum();
+    }
+
+    /**
+     * @param limit entries listed per kind of change
+     */
+    public List<String> format(int limit) {
+        List<String> lines = new ArrayList<>();
+        if (isIdentical()) {
+            lines.add(String.format("No entry changed (%d entries)", unchanged));
+            return lines;
+        }
+        lines.add(String.format("Added: %d, removed: %d, changed: %d, moved: %d, unchanged: %d",
+            added.size(), removed.size(), changed.size(), moved.size(), unchanged));
+        lines.add(String.format("Pack: %s -> %s (%s), content %s uncompressed",
+            FileUtil.formatSize(oldPackSize), FileUtil.formatSize(newPackSize), signed(getPackDelta()),
+            signed(getContentDelta())));
+        lines.add(String.format("New content in the download: %s of %s", FileUtil.formatSize(getNewContentBytes()),
+            FileUtil.formatSize(newPackSize)));
+        formatChanges("Added", added, limit, lines);
+        formatChanges("Removed", removed, limit, lines);
+        formatChanges("Changed", changed, limit, lines);
+        if (!moved.isEmpty()) {
+            lines.add("Moved:");
+            moved.stream().limit(limit).forEach(move -> lines.add("  " + move.from() + " -> " + move.to()));
+            if (moved.size() > limit) {
+                lines.add("  ... and " + (moved.size() - limit) + " more");
+            }
+        }
+        return lines;
+    }
+
+    private static void formatChanges(String title, List<Change> changes, int limit, List<String> lines) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        lines.add(title + ":");
+        changes.stream().limit(limit).forEach(change -> lines.add("  " + change.name() + " " + (change.oldSize() > 0 && change.newSize() > 0
+            ? FileUtil.formatSize(change.oldSize()) + " -> " + FileUtil.formatSize(change.newSize())
+            : FileUtil.formatSize(Math.max(change.oldSize(), change.newSize())))));
+        if (changes.size() > limit) {
+            lines.add("  ... and " + (changes.size() - limit) + " more");
+        }
+    }
+
+    private static String signed(long bytes) {
+        return (bytes < 0 ? "-" : "+") + FileUtil.formatSize(Math.abs(bytes));
+    }
+}
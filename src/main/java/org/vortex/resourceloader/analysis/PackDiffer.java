@@ -0,0 +1,192 @@
+package org.vortex.resourceloader.analysis;
+
+import org.bukkit.entity.Player;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobContext;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.RawZipReader;
+import org.vortex.resourceloader.util.ZipIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Compares two versions of a pack from their {@link ZipIndex}es: an entry with the same name, size
+ * and CRC32 in both is unchanged, a different size or CRC32 is a change, and nothing is extracted to
+ * tell them apart. The only entries read are removed and added ones that share size and CRC32, which
+ * are hashed with SHA-1 to find the files that were only renamed. Packs with the same SHA-1 are not
+ * compared at all.
+ */
+public class PackDiffer {
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Resourceloader plugin;
+
+    /**
+     * What sending a new version costs the players online now. Clients download the whole pack again
+     * whenever its hash changes, so every player fetches all of it.
+     *
+     * @param medianSeconds  expected download time of the median player
+     * @param slowestSeconds expected download time of the slowest player
+     */
+    public record DownloadCost(int players, long bytesPerPlayer, double medianSeconds, double slowestSeconds) {
+        public long totalBytes() {
+            return bytesPerPlayer * players;
+        }
+    }
+
+    public PackDiffer(Resourceloader plugin) {
+        this.plugin = plugin;
+    }
+
+    public PackDiff diff(File oldPack, File newPack) throws IOException {
+        return diff(oldPack, newPack, JobContext.NONE);
+    }
+
+    public PackDiff diff(File oldPack, File newPack, JobContext context) throws IOException {
+        ZipIndex oldIndex = plugin.getZipIndexes().get(oldPack);
+        ZipIndex newIndex = plugin.getZipIndexes().get(newPack);
+        String oldHash = plugin.getHashCache().getOrCalculateHash(oldPack);
+        if (oldHash != null && oldHash.equals(plugin.getHashCache().getOrCalculateHash(newPack))) {
+            int entries = (int) newIndex.getNames().stream().filter(name -> !name.endsWith("/")).count();
+            return new PackDiff(oldPack.length(), newPack.length(), List.of(), List.of(), List.of(), List.of(), entries, 0);
+        }
+
+        List<RawZipReader.Entry> added = new ArrayList<>();
+        List<PackDiff.Change> changed = new ArrayList<>();
+        int unchanged = 0;
+        for (RawZipReader.Entry entry : newIndex.getEntries()) {
+            if (entry.name().endsWith("/")) {
+                continue;
+            }
+            RawZipReader.Entry old = oldIndex.getEntry(entry.name());
+            if (old == null) {
+                added.add(entry);
+            } else if (old.crc() == entry.crc() && old.size() == entry.size()) {
+                unchanged++;
+            } else {
+                changed.add(new PackDiff.Change(entry.name(), old.size(), entry.size(), entry.compressedSize()));
+            }
+        }
+        List<RawZipReader.Entry> removed = new ArrayList<>();
+        for (RawZipReader.Entry entry : oldIndex.getEntries()) {
+            if (!entry.name().endsWith("/") && !newIndex.contains(entry.name())) {
+                removed.add(entry);
+            }
+        }
+        context.checkCancelled();
+
+        List<PackDiff.Move> moved = new ArrayList<>();
+        int hashed = findMoves(oldPack, newPack, removed, added, moved, context);
+
+        return new PackDiff(oldPack.length(), newPack.length(),
+            sorted(added.stream().map(entry -> new PackDiff.Change(entry.name(), 0, entry.size(), entry.compressedSize())).toList()),
+            sorted(removed.stream().map(entry -> new PackDiff.Change(entry.name(), entry.size(), 0, entry.compressedSize())).toList()),
+            sorted(changed), List.copyOf(moved), unchanged, hashed);
+    }
+
+    private static List<PackDiff.Change> sorted(List<PackDiff.Change> changes) {
+        List<PackDiff.Change> sorted = new ArrayList<>(changes);
+        sorted.sort(Comparator.comparingLong((PackDiff.Change change) -> Math.max(change.oldSize(), change.newSize()))
+            .reversed().thenComparing(PackDiff.Change::name));
+        return List.copyOf(sorted);
+    }
+
+    /**
+     * Pairs removed and added entries with the same content, taking both out of their lists. Only
+     * entries whose size and CRC32 match one on the other side are read.
+     *
+     * @return the number of entries hashed
+     */
+    private static int findMoves(File oldPack, File newPack, List<RawZipReader.Entry> removed,
+                                 List<RawZipReader.Entry> added, List<PackDiff.Move> moved,
+                                 JobContext context) throws IOException {
+        Map<String, List<RawZipReader.Entry>> removedByKey = new HashMap<>();
+        for (RawZipReader.Entry entry : removed) {
+            removedByKey.computeIfAbsent(entry.size() + ":" + entry.crc(), key -> new ArrayList<>()).add(entry);
+        }
+        List<RawZipReader.Entry> candidates = added.stream()
+            .filter(entry -> removedByKey.containsKey(entry.size() + ":" + entry.crc())).toList();
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        int hashed = 0;
+        Map<String, Deque<RawZipReader.Entry>> removedByContent = new HashMap<>();
+        Set<String> keys = new HashSet<>();
+        candidates.forEach(entry -> keys.add(entry.size() + ":" + entry.crc()));
+        try (ZipFile oldZip = new ZipFile(oldPack); ZipFile newZip = new ZipFile(newPack)) {
+            for (String key : keys) {
+                for (RawZipReader.Entry entry : removedByKey.get(key)) {
+                    context.checkCancelled();
+                    removedByContent.computeIfAbsent(hash(oldZip, entry.name()), hash -> new ArrayDeque<>()).add(entry);
+                    hashed++;
+                }
+            }
+
+            Set<RawZipReader.Entry> movedFrom = new HashSet<>();
+            Set<RawZipReader.Entry> movedTo = new HashSet<>();
+            for (RawZipReader.Entry entry : candidates) {
+                context.checkCancelled();
+                Deque<RawZipReader.Entry> sources = removedByContent.get(hash(newZip, entry.name()));
+                hashed++;
+                if (sources != null && !sources.isEmpty()) {
+                    RawZipReader.Entry source = sources.poll();
+                    moved.add(new PackDiff.Move(source.name(), entry.name(), entry.size()));
+                    movedFrom.add(source);
+                    movedTo.add(entry);
+                }
+            }
+            removed.removeAll(movedFrom);
+            added.removeAll(movedTo);
+        }
+        moved.sort(Comparator.comparing(PackDiff.Move::to));
+        return hashed;
+    }
+
+    private static String hash(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            throw new IOException("Entry " + name + " is listed but cannot be read");
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return FileUtil.toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    /**
+     * Download cost of the new pack for {@code players}, from each player's measured throughput, or
+     * {@code analysis.diff.default-mbps} for players without a measurement.
+     */
+    public DownloadCost estimateCost(PackDiff diff, Collection<? extends Player> players) {
+        double fallback = Math.max(0.1, plugin.getConfig().getDouble("analysis.diff.default-mbps", 10)) * 1_000_000 / 8;
+        List<Double> seconds = new ArrayList<>();
+        for (Player player : players) {
+            InetSocketAddress address = player.getAddress();
+            double bytesPerSecond = plugin.getThroughputTracker()
+                .estimate(player.getUniqueId(), address != null ? address.getAddress() : null).orElse(fallback);
+            seconds.add(diff.newPackSize() / Math.max(1, bytesPerSecond));
+        }
+        if (seconds.isEmpty()) {
+            seconds.add(diff.newPackSize() / fallback);
+        }
+        Collections.sort(seconds);
+        return new DownloadCost(players.size(), diff.newPackSize(), seconds.get(seconds.size() / 2),
+            seconds.get(seconds.size() - 1));
+    }
+}
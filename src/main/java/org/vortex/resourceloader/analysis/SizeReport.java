@@ -0,0 +1,105 @@
+package org.vortex.resourceloader.analysis;
+
+import org.vortex.resourceloader.util.FileUtil;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the bytes of a pack go: totals by namespace and by asset type, the largest entries and the
+ * files that are stored more than once. Sizes are uncompressed entry bytes unless named compressed.
+ *
+ * @param packSize   size of the pack file, what players download
+ * @param namespaces entries below {@code assets/<namespace>/}, other entries under {@link #NO_NAMESPACE}
+ * @param types      entries by asset type, the first folder below the namespace
+ * @param largest    the largest entries, largest first
+ * @param duplicates groups of byte-identical entries, most wasted bytes first
+ */
+public record SizeReport(long packSize, int entryCount, long compressedSize, long size,
+                         Map<String, Category> namespaces, Map<String, Category> types,
+                         List<Entry> largest, List<Duplicate> duplicates) {
+    public static final String NO_NAMESPACE = "(outside assets)";
+
+    public record Category(int entries, long compressedSize, long size) {
+        Category add(long compressed, long uncompressed) {
+            return new Category(entries + 1, compressedSize + compressed, size + uncompressed);
+        }
+
+        /**
+         * Compressed size as a share of the uncompressed size; 1 means nothing was gained.
+         */
+        public double ratio() {
+            return size > 0 ? (double) compressedSize / size : 1;
+        }
+    }
+
+    public record Entry(String name, long compressedSize, long size) {}
+
+    /**
+     * @param names entries with the same content, in pack order
+     */
+    public record Duplicate(List<String> names, long size, long compressedSize) {
+        /**
+         * Bytes of all copies but one.
+         */
+        public long wastedBytes() {
+            return size * (names.size() - 1);
+        }
+
+        public long wastedCompressedBytes() {
+            return compressedSize * (names.size() - 1);
+        }
+    }
+
+    public long getWastedBytes() {
+        return duplicates.stream().mapToLong(Duplicate::wastedBytes).sum();
+    }
+
+    public long getWastedCompressedBytes() {
+        return duplicates.stream().mapToLong(Duplicate::wastedCompressedBytes).sum();
+    }
+
+    /**
+     * @param limit rows per list: largest entries and duplicate groups
+     */
+    public List<String> format(int limit) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Pack: %s, %d entries, %s uncompressed (%.0f%% after compression)",
+            FileUtil.formatSize(packSize), entryCount, FileUtil.formatSize(size), percent(compressedSize, size)));
+        lines.add("By namespace:");
+        formatCategories(namespaces, lines);
+        lines.add("By asset type:");
+        formatCategories(types, lines);
+
+        lines.add("Largest entries:");
+        largest.stream().limit(limit).forEach(entry -> lines.add(String.format("  %s %s (%s compressed)",
+            entry.name(), FileUtil.formatSize(entry.size()), FileUtil.formatSize(entry.compressedSize()))));
+
+        if (duplicates.isEmpty()) {
+            lines.add("Duplicates: none");
+        } else {
+            lines.add(String.format("Duplicates: %d groups, %s wasted (%s in the download)", duplicates.size(),
+                FileUtil.formatSize(getWastedBytes()), FileUtil.formatSize(getWastedCompressedBytes())));
+            duplicates.stream().limit(limit).forEach(duplicate -> lines.add(String.format("  %dx %s: %s",
+                duplicate.names().size(), FileUtil.formatSize(duplicate.size()), String.join(", ", duplicate.names()))));
+            if (duplicates.size() > limit) {
+                lines.add("  ... and " + (duplicates.size() - limit) + " more groups");
+            }
+        }
+        return lines;
+    }
+
+    private static void formatCategories(Map<String, Category> categories, List<String> lines) {
+        categories.entrySet().stream()
+            .sorted(Map.Entry.<String, Category>comparingByValue(Comparator.comparingLong(Category::compressedSize)).reversed())
+            .forEach(category -> lines.add(String.format("  %s: %d entries, %s -> %s (%.0f%%)", category.getKey(),
+                category.getValue().entries(), FileUtil.formatSize(category.getValue().size()),
+                FileUtil.formatSize(category.getValue().compressedSize()), category.getValue().ratio() * 100)));
+    }
+
+    private static double percent(long part, long whole) {
+        return whole > 0 ? part * 100.0 / whole : 100;
+    }
+}
@@ -7,7 +7,6 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.bukkit.util.StringUtil;
 import org.vortex.resourceloader.Resourceloader;
-import org.vortex.resourceloader.util.FileUtil;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -41,6 +40,16 @@ public class AutoLoadCommand implements CommandExecutor, TabCompleter {
                 player.sendMessage(plugin.getMessageManager().formatMessage("autoload.current-preference", 
                     "pack", preferences.get(0)));
             }
+            List<String> addons = plugin.getPackManager().getPlayerAddons(player.getUniqueId());
+            if (plugin.getCompositePacks().isEnabled() && !addons.isEmpty()) {
+                player.sendMessage(plugin.getMessageManager().formatMessage("autoload.current-addons", 
+                    "addons", String.join(", ", addons)));
+            }
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("addon")) {
+            handleAddon(player, args);
             return true;
         }
 
@@ -60,13 +69,25 @@ public class AutoLoadCommand implements CommandExecutor, TabCompleter {
         // Set preference and immediately apply the pack
         plugin.getPackManager().setPlayerPreference(player.getUniqueId(), packName);
         
-        // Apply the pack immediately
+        // Apply the pack immediately, layered with the player's add-ons when composites are enabled
+        List<String> addons = plugin.getPackManager().getPlayerAddons(player.getUniqueId());
+        if (plugin.getCompositePacks().isEnabled()
+                && !plugin.getCompositePacks().resolveAddons(packName, addons).isEmpty()) {
+            player.sendMessage(plugin.getMessageManager().formatMessage("autoload.set", 
+                "pack", packName));
+            player.sendMessage(plugin.getMessageManager().getMessage("autoload.composite-building"));
+            plugin.getCompositePacks().send(player, packName, addons)
+                .exceptionally(e -> {
+                    plugin.getServer().getScheduler().runTask(plugin, () -> applyPack(player, packName));
+                    return null;
+                });
+            return true;
+        }
+
         File packFile = plugin.getResourcePacks().get(packName);
         if (packFile != null && packFile.exists()) {
             try {
-                String downloadUrl = plugin.getPackManager().getPackServer().createDownloadURL(player, packName, packFile.getName());
-                byte[] hash = FileUtil.calcSHA1(packFile);
-                player.setResourcePack(downloadUrl, hash);
+                plugin.getPackManager().sendPack(player, packName, packFile);
                 player.sendMessage(plugin.getMessageManager().formatMessage("autoload.set", 
                     "pack", packName));
             } catch (Exception e) {
@@ -79,6 +100,62 @@ public class AutoLoadCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    private void handleAddon(Player player, String[] args) {
+        if (!plugin.getCompositePacks().isEnabled()) {
+            player.sendMessage(plugin.getMessageManager().getMessage("autoload.addons-disabled"));
+            return;
+        }
+        if (args.length < 2) {
+            player.sendMessage(plugin.getMessageManager().getMessage("autoload.addon-usage"));
+            return;
+        }
+
+        String addon = args[1].toLowerCase();
+        if (!plugin.getResourcePacks().containsKey(addon) || !plugin.getCompositePacks().isAllowedAddon(addon)) {
+            player.sendMessage(plugin.getMessageManager().formatMessage("autoload.addon-invalid", 
+                "pack", addon));
+            return;
+        }
+
+        boolean added = plugin.getPackManager().togglePlayerAddon(player.getUniqueId(), addon);
+        player.sendMessage(plugin.getMessageManager().formatMessage(added ? "autoload.addon-added" : "autoload.addon-removed", 
+            "pack", addon));
+
+        // Re-apply right away: the composite is built (or shared) in the background
+        List<String> preferences = plugin.getPackManager().getPlayerPreferences(player.getUniqueId());
+        if (preferences.isEmpty()) {
+            return;
+        }
+        String basePack = preferences.get(0);
+        List<String> addons = plugin.getPackManager().getPlayerAddons(player.getUniqueId());
+        if (plugin.getCompositePacks().resolveAddons(basePack, addons).isEmpty()) {
+            applyPack(player, basePack);
+            return;
+        }
+
+        player.sendMessage(plugin.getMessageManager().getMessage("autoload.composite-building"));
+        plugin.getCompositePacks().send(player, basePack, addons)
+            .exceptionally(e -> {
+                plugin.getServer().getScheduler().runTask(plugin, () -> player.sendMessage(
+                    plugin.getMessageManager().formatMessage("autoload.set-failed", 
+                        "pack", basePack, "error", e.getMessage())));
+                return null;
+            });
+    }
+
+    private void applyPack(Player player, String packName) {
+        File packFile = plugin.getResourcePacks().get(packName);
+        if (packFile != null && packFile.exists()) {
+            try {
+                plugin.getPackManager().sendPack(player, packName, packFile);
+            } catch (Exception e) {
+                player.sendMessage(plugin.getMessageManager().formatMessage("autoload.set-failed", 
+                    "pack", packName, "error", e.getMessage()));
+                plugin.getLogger().warning("Failed to apply resource pack for " + player.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         List<String> completions = new ArrayList<>();
@@ -87,8 +164,19 @@ public class AutoLoadCommand implements CommandExecutor, TabCompleter {
             if (sender.hasPermission("resourceloader.autoload")) {
                 List<String> options = new ArrayList<>(plugin.getResourcePacks().keySet());
                 options.add("clear");
+                if (plugin.getCompositePacks().isEnabled()) {
+                    options.add("addon");
+                }
                 StringUtil.copyPartialMatches(args[0], options, completions);
             }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("addon") && plugin.getCompositePacks().isEnabled()) {
+            List<String> options = new ArrayList<>();
+            for (String packName : plugin.getResourcePacks().keySet()) {
+                if (plugin.getCompositePacks().isAllowedAddon(packName)) {
+                    options.add(packName);
+                }
+            }
+            StringUtil.copyPartialMatches(args[1], options, completions);
         }
 
         Collections.sort(completions);
@@ -0,0 +1,62 @@
+package org.vortex.resourceloader.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.util.StringUtil;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class CalibrateCommand extends PackJobCommand {
+    public CalibrateCommand(Resourceloader plugin) {
+        super(plugin, "calibrate");
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("resourceloader.admin")) {
+            sender.sendMessage(messageManager.getMessage("general.no-permission"));
+            return true;
+        }
+
+        if (args.length < 1 || args.length > 2 || (args.length == 2 && !args[1].equalsIgnoreCase("rerun"))) {
+            sender.sendMessage(messageManager.getMessage("calibrate.usage"));
+            return true;
+        }
+
+        String packName = args[0];
+        boolean rerun = args.length == 2;
+
+        // URL packs are calibrated from their cached download
+        runPackJob(sender, List.of(packName), JobType.COMPRESS, "Calibrate " + packName,
+            (files, context) -> plugin.getPackCompressor().calibratePack(files.get(0), rerun, context),
+            (target, calibration) -> {
+                if (!plugin.getPackCompressor().isCalibrationEnabled()) {
+                    target.sendMessage(messageManager.getMessage("calibrate.disabled"));
+                }
+                sendLines(target, calibration.format(plugin.getPackCompressor().getCalibrationTolerance()));
+            }, "pack", packName);
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+
+        if (!sender.hasPermission("resourceloader.admin")) {
+            return completions;
+        }
+
+        if (args.length == 1) {
+            StringUtil.copyPartialMatches(args[0], new ArrayList<>(plugin.getResourcePacks().keySet()), completions);
+        } else if (args.length == 2) {
+            StringUtil.copyPartialMatches(args[1], List.of("rerun"), completions);
+        }
+
+        Collections.sort(completions);
+        return completions;
+    }
+}
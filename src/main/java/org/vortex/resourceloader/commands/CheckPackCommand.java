@@ -5,22 +5,26 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.Job;
+import org.vortex.resourceloader.jobs.JobType;
 import org.vortex.resourceloader.util.MessageManager;
 import org.vortex.resourceloader.validation.PackValidator;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
 
 public class CheckPackCommand implements CommandExecutor, TabCompleter {
     private final Resourceloader plugin;
     private final MessageManager messageManager;
-    private final PackValidator validator;
 
     public CheckPackCommand(Resourceloader plugin) {
         this.plugin = plugin;
         this.messageManager = plugin.getMessageManager();
-        this.validator = new PackValidator(plugin);
     }
 
     @Override
@@ -31,11 +35,15 @@ public class CheckPackCommand implements CommandExecutor, TabCompleter {
         }
 
         if (args.length != 1) {
-            sender.sendMessage("§cUsage: /checkpack <packname>");
+            sender.sendMessage("§cUsage: /checkpack <packname|all>");
             return true;
         }
 
         String packName = args[0];
+        if (packName.equalsIgnoreCase("all") && !plugin.getConfig().contains("resource-packs." + packName)) {
+            validateAll(sender);
+            return true;
+        }
         
         // Check if pack exists in configuration
         if (!plugin.getConfig().contains("resource-packs." + packName)) {
@@ -62,18 +70,97 @@ public class CheckPackCommand implements CommandExecutor, TabCompleter {
             }
         }
 
+        // Validation reads the whole archive, so it runs as a background job
+        Job<PackValidator.ValidationResult> job;
+        try {
+            job = plugin.getJobManager().submit(JobType.VALIDATE, "Validate " + packName, sender.getName(),
+                "validate:" + packName, context -> plugin.getPackValidator().validate(packFile, context));
+        } catch (RejectedExecutionException e) {
+            sender.sendMessage(messageManager.formatMessage("jobs.rejected", "reason", e.getMessage()));
+            return true;
+        }
+
         sender.sendMessage("§eValidating resource pack: §f" + packName);
         sender.sendMessage("§7File: " + packFile.getName());
-        
-        // Perform validation
-        PackValidator.ValidationResult result = validator.validate(packFile);
-        
+        sender.sendMessage(messageManager.formatMessage("jobs.submitted", "id", String.valueOf(job.getId())));
+
+        job.getResult().whenComplete((result, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (error instanceof CancellationException) {
+                sender.sendMessage(messageManager.formatMessage("jobs.cancelled", "id", String.valueOf(job.getId())));
+            } else if (error != null) {
+                sender.sendMessage("§cValidation of '" + packName + "' failed: " + error.getMessage());
+            } else {
+                showResult(sender, result);
+            }
+        }));
+
+        return true;
+    }
+
+    /**
+     * Validates every local pack that is loaded, several at a time, and lists one line per pack.
+     */
+    private void validateAll(CommandSender sender) {
+        Map<String, File> packs = new TreeMap<>();
+        plugin.getResourcePacks().forEach((name, file) -> {
+            if (file != null && file.exists()) {
+                packs.put(name, file);
+            }
+        });
+        if (packs.isEmpty()) {
+            sender.sendMessage("§cNo loaded resource packs to validate.");
+            return;
+        }
+
+        Job<Map<String, PackValidator.ValidationResult>> job;
+        try {
+            job = plugin.getJobManager().submit(JobType.VALIDATE, "Validate " + packs.size() + " packs", sender.getName(),
+                "validate:*", context -> plugin.getPackValidator().validateAll(packs, context));
+        } catch (RejectedExecutionException e) {
+            sender.sendMessage(messageManager.formatMessage("jobs.rejected", "reason", e.getMessage()));
+            return;
+        }
+
+        sender.sendMessage("§eValidating " + packs.size() + " resource packs");
+        sender.sendMessage(messageManager.formatMessage("jobs.submitted", "id", String.valueOf(job.getId())));
+
+        job.getResult().whenComplete((results, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (error instanceof CancellationException) {
+                sender.sendMessage(messageManager.formatMessage("jobs.cancelled", "id", String.valueOf(job.getId())));
+            } else if (error != null) {
+                sender.sendMessage("§cValidation failed: " + error.getMessage());
+            } else {
+                results.forEach((name, result) -> {
+                    long critical = result.issues().stream().filter(PackValidator.ValidationIssue::isCritical).count();
+                    long warnings = result.issues().size() - critical;
+                    sender.sendMessage((result.isValid() ? "§a✓ " : "§c✗ ") + name + " §7- " + critical + " critical, "
+                        + warnings + " warnings (" + result.entryCount() + " entries, " + result.elapsedMillis() + "ms"
+                        + (result.cached() ? ", cached" : "") + ")");
+                });
+                sender.sendMessage("§7Cache hit rate: " + plugin.getPackValidator().getCache().formatHitRates());
+                sender.sendMessage("§7Use /checkpack <pack> for the details of one pack.");
+            }
+        }));
+    }
+
+    private void showResult(CommandSender sender, PackValidator.ValidationResult result) {
         // Display results
         if (result.isValid()) {
             sender.sendMessage("§a✓ Pack validation successful!");
         } else {
             sender.sendMessage("§c✗ Pack validation failed!");
         }
+        sender.sendMessage("§7Checked " + result.entryCount() + " entries in " + result.elapsedMillis() + "ms");
+        if (result.cached()) {
+            sender.sendMessage("§7Pack unchanged since its last validation, result reused");
+        } else {
+            sender.sendMessage("§7Entries parsed: " + result.parsedEntries() + ", reused from cache: " + result.reusedEntries());
+        }
+        sender.sendMessage("§7Cache hit rate: " + plugin.getPackValidator().getCache().formatHitRates());
+        if (!result.budget().isEmpty()) {
+            sender.sendMessage("§eBudget:");
+            result.budget().forEach(line -> sender.sendMessage("§7" + line));
+        }
         
         // Show formatted results
         List<String> formattedResults = result.getFormattedIssues();
@@ -97,8 +184,6 @@ public class CheckPackCommand implements CommandExecutor, TabCompleter {
                 sender.sendMessage("§7" + line);
             }
         }
-        
-        return true;
     }
 
     @Override
@@ -114,6 +199,9 @@ public class CheckPackCommand implements CommandExecutor, TabCompleter {
                     }
                 }
             }
+            if ("all".startsWith(args[0].toLowerCase())) {
+                completions.add("all");
+            }
         }
         
         return completions;
@@ -37,6 +37,30 @@ public class CommandManager {
         CheckPackCommand checkPackCmd = new CheckPackCommand(plugin);
         plugin.getCommand("checkpack").setExecutor(checkPackCmd);
         plugin.getCommand("checkpack").setTabCompleter(checkPackCmd);
+
+        OptimizeCommand optimizeCmd = new OptimizeCommand(plugin);
+        plugin.getCommand("optimizepack").setExecutor(optimizeCmd);
+        plugin.getCommand("optimizepack").setTabCompleter(optimizeCmd);
+
+        PruneCommand pruneCmd = new PruneCommand(plugin);
+        plugin.getCommand("prunepack").setExecutor(pruneCmd);
+        plugin.getCommand("prunepack").setTabCompleter(pruneCmd);
+
+        CalibrateCommand calibrateCmd = new CalibrateCommand(plugin);
+        plugin.getCommand("calibratepack").setExecutor(calibrateCmd);
+        plugin.getCommand("calibratepack").setTabCompleter(calibrateCmd);
+
+        AnalyzeCommand analyzeCmd = new AnalyzeCommand(plugin);
+        plugin.getCommand("analyzepack").setExecutor(analyzeCmd);
+        plugin.getCommand("analyzepack").setTabCompleter(analyzeCmd);
+
+        DiffCommand diffCmd = new DiffCommand(plugin);
+        plugin.getCommand("diffpack").setExecutor(diffCmd);
+        plugin.getCommand("diffpack").setTabCompleter(diffCmd);
+
+        JobsCommand jobsCmd = new JobsCommand(plugin);
+        plugin.getCommand("rljobs").setExecutor(jobsCmd);
+        plugin.getCommand("rljobs").setTabCompleter(jobsCmd);
         
         plugin.getCommand("resourcereload").setExecutor(new ReloadCommand(plugin));
         plugin.getCommand("clearcache").setExecutor(new ClearCacheCommand(plugin));
@@ -83,7 +107,13 @@ public class CommandManager {
                 sender.sendMessage("§e/mergepack <output> <pack1> <pack2> §7- Merge resource packs");
                 sender.sendMessage("§e/mergegui §7- Open merge GUI");
                 sender.sendMessage("§e/removepack <pack> §7- Remove a resource pack");
-                sender.sendMessage("§e/checkpack <pack> §7- Validate a resource pack");
+                sender.sendMessage("§e/checkpack <pack|all> §7- Validate a resource pack, or every loaded pack");
+                sender.sendMessage("§e/optimizepack <pack> §7- Build an optimized copy of a pack");
+                sender.sendMessage("§e/prunepack <pack> [top] §7- Build a copy of a pack without its unreachable assets");
+                sender.sendMessage("§e/calibratepack <pack> [rerun] §7- Show per-pack compression level calibration");
+                sender.sendMessage("§e/analyzepack <pack> [top] §7- Show where a pack's bytes go and its duplicate files");
+                sender.sendMessage("§e/diffpack <old> <new> [top] §7- Show what changed between two packs and what the update costs");
+                sender.sendMessage("§e/rljobs <list|cancel> §7- Show or cancel background jobs");
                 sender.sendMessage("§e/resourcereload §7- Reload configuration");
                 sender.sendMessage("§e/resourceversion §7- Check plugin version");
                 sender.sendMessage("§e/clearcache §7- Clear resource pack cache");
@@ -110,6 +140,7 @@ public class CommandManager {
 
             try {
                 plugin.reloadConfig();
+                plugin.getJobManager().reloadLimits(plugin);
                 plugin.getMessageManager().reloadMessages();
                 plugin.loadResourcePacks(true);
                 sender.sendMessage(plugin.getMessageManager().getMessage("general.reload-success"));
@@ -137,6 +168,7 @@ public class CommandManager {
             }
 
             plugin.getPackManager().getPackCache().clearCache();
+            plugin.getCompositePacks().clear();
             sender.sendMessage(plugin.getMessageManager().getMessage("cache.cleared"));
             return true;
         }
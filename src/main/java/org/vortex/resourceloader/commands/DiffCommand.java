@@ -0,0 +1,75 @@
+package org.vortex.resourceloader.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.util.StringUtil;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.analysis.PackDiffer;
+import org.vortex.resourceloader.jobs.JobType;
+import org.vortex.resourceloader.util.FileUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DiffCommand extends PackJobCommand {
+    public DiffCommand(Resourceloader plugin) {
+        super(plugin, "diff");
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("resourceloader.admin")) {
+            sender.sendMessage(messageManager.getMessage("general.no-permission"));
+            return true;
+        }
+
+        if (args.length < 2 || args.length > 3) {
+            sender.sendMessage(messageManager.getMessage("diff.usage"));
+            return true;
+        }
+
+        String oldName = args[0];
+        String newName = args[1];
+        int top = args.length == 3 ? parseCount(args[2]) : plugin.getConfig().getInt("analysis.top-entries", 10);
+        if (top <= 0) {
+            sender.sendMessage(messageManager.getMessage("diff.usage"));
+            return true;
+        }
+
+        // URL packs are compared from their cached download
+        runPackJob(sender, List.of(oldName, newName), JobType.ANALYZE, "Diff " + oldName + " -> " + newName,
+            (files, context) -> plugin.getPackDiffer().diff(files.get(0), files.get(1), context),
+            (target, diff) -> {
+                sendLines(target, diff.format(top));
+                if (!diff.isIdentical()) {
+                    PackDiffer.DownloadCost cost = plugin.getPackDiffer().estimateCost(diff, plugin.getServer().getOnlinePlayers());
+                    target.sendMessage(messageManager.formatMessage("diff.cost",
+                        "size", FileUtil.formatSize(cost.bytesPerPlayer()),
+                        "players", String.valueOf(cost.players()),
+                        "total", FileUtil.formatSize(cost.totalBytes()),
+                        "median", String.format("%.1f", cost.medianSeconds()),
+                        "slowest", String.format("%.1f", cost.slowestSeconds())));
+                }
+            }, "old", oldName, "new", newName);
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+
+        if (!sender.hasPermission("resourceloader.admin")) {
+            return completions;
+        }
+
+        if (args.length == 1 || args.length == 2) {
+            StringUtil.copyPartialMatches(args[args.length - 1], new ArrayList<>(plugin.getResourcePacks().keySet()), completions);
+        } else if (args.length == 3) {
+            StringUtil.copyPartialMatches(args[2], List.of("5", "10", "25"), completions);
+        }
+
+        Collections.sort(completions);
+        return completions;
+    }
+}
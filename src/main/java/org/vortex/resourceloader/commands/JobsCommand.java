@@ -0,0 +1,114 @@
+package org.vortex.resourceloader.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.util.StringUtil;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.Job;
+import org.vortex.resourceloader.jobs.JobManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JobsCommand implements CommandExecutor, TabCompleter {
+    private static final int RECENT_LIMIT = 5;
+
+    private final Resourceloader plugin;
+
+    public JobsCommand(Resourceloader plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("resourceloader.admin")) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("general.no-permission"));
+            return true;
+        }
+
+        if (args.length == 0 || args[0].equalsIgnoreCase("list")) {
+            listJobs(sender);
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("cancel") && args.length == 2) {
+            cancelJob(sender, args[1]);
+            return true;
+        }
+
+        sender.sendMessage(plugin.getMessageManager().getMessage("jobs.usage"));
+        return true;
+    }
+
+    private void listJobs(CommandSender sender) {
+        JobManager jobManager = plugin.getJobManager();
+        List<Job<?>> active = jobManager.getActiveJobs();
+        List<Job<?>> recent = jobManager.getRecentJobs();
+
+        sender.sendMessage(plugin.getMessageManager().getMessage("jobs.header"));
+        if (active.isEmpty()) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("jobs.none"));
+        }
+        active.forEach(job -> sender.sendMessage(formatJob(job)));
+
+        if (!recent.isEmpty()) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("jobs.recent-header"));
+            recent.stream().limit(RECENT_LIMIT).forEach(job -> sender.sendMessage(formatJob(job)));
+        }
+        sender.sendMessage(plugin.getMessageManager().getMessage("jobs.footer"));
+    }
+
+    private String formatJob(Job<?> job) {
+        String progress = job.hasProgress() && !job.isFinished()
+            ? String.format("%.0f%%", job.getProgress() * 100)
+            : "";
+        return plugin.getMessageManager().formatMessage("jobs.entry",
+            "id", String.valueOf(job.getId()),
+            "type", job.getType().name().toLowerCase(),
+            "description", job.getDescription(),
+            "state", job.getState().name().toLowerCase(),
+            "progress", progress,
+            "owner", job.getOwner(),
+            "time", String.format("%.1fs", job.getElapsedMillis() / 1000.0));
+    }
+
+    private void cancelJob(CommandSender sender, String idArg) {
+        int id;
+        try {
+            id = Integer.parseInt(idArg.startsWith("#") ? idArg.substring(1) : idArg);
+        } catch (NumberFormatException e) {
+            sender.sendMessage(plugin.getMessageManager().formatMessage("jobs.not-found", "id", idArg));
+            return;
+        }
+
+        if (plugin.getJobManager().cancel(id)) {
+            sender.sendMessage(plugin.getMessageManager().formatMessage("jobs.cancelled", "id", String.valueOf(id)));
+        } else {
+            sender.sendMessage(plugin.getMessageManager().formatMessage("jobs.cancel-failed", "id", String.valueOf(id)));
+        }
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+
+        if (!sender.hasPermission("resourceloader.admin")) {
+            return completions;
+        }
+
+        if (args.length == 1) {
+            StringUtil.copyPartialMatches(args[0], Arrays.asList("list", "cancel"), completions);
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("cancel")) {
+            List<String> ids = new ArrayList<>();
+            plugin.getJobManager().getActiveJobs().forEach(job -> ids.add(String.valueOf(job.getId())));
+            StringUtil.copyPartialMatches(args[1], ids, completions);
+        }
+
+        Collections.sort(completions);
+        return completions;
+    }
+}
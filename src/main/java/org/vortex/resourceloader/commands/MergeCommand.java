@@ -7,20 +7,24 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.util.StringUtil;
 import org.vortex.resourceloader.Resourceloader;
 import org.vortex.resourceloader.ResourcePackMerger;
+import org.vortex.resourceloader.jobs.Job;
+import org.vortex.resourceloader.jobs.JobType;
+import org.vortex.resourceloader.merge.MergeManifest;
+import org.vortex.resourceloader.util.FileUtil;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 public class MergeCommand implements CommandExecutor, TabCompleter {
     private final Resourceloader plugin;
-    private final AtomicBoolean isMerging;
 
     public MergeCommand(Resourceloader plugin) {
         this.plugin = plugin;
-        this.isMerging = new AtomicBoolean(false);
     }
 
     @Override
@@ -35,31 +39,34 @@ public class MergeCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        if (isMerging.get()) {
+        final String outputName = args[0].toLowerCase().endsWith(".zip") ? args[0] : args[0] + ".zip";
+        String jobKey = "merge:" + outputName.toLowerCase();
+
+        // Merges into different outputs may run side by side, but never two into the same file
+        if (plugin.getJobManager().findActive(jobKey) != null) {
             sender.sendMessage(plugin.getMessageManager().getMessage("merge.already-merging"));
             return true;
         }
 
-        final String outputName = args[0].toLowerCase().endsWith(".zip") ? args[0] : args[0] + ".zip";
-
-        // Check if output pack already exists
+        // Check if output pack already exists; packs produced by an earlier merge can be re-merged in place
         File outputFile = new File(plugin.getDataFolder(), "packs/" + outputName);
-        if (outputFile.exists()) {
+        if (outputFile.exists() && !MergeManifest.getManifestFile(plugin.getDataFolder(), outputName).exists()) {
             sender.sendMessage(plugin.getMessageManager().formatMessage("merge.output-exists", 
                 "pack", outputName));
             return true;
         }
 
-        List<File> packsToMerge = new ArrayList<>();
+        List<String> packsToMerge = new ArrayList<>();
         for (int i = 1; i < args.length; i++) {
             String packName = args[i];
+            // URL packs are registered without a local file and get downloaded as part of the merge
             File packFile = plugin.getResourcePacks().get(packName);
-            if (packFile == null || !packFile.exists()) {
+            if (!plugin.getResourcePacks().containsKey(packName) || (packFile != null && !packFile.exists())) {
                 sender.sendMessage(plugin.getMessageManager().formatMessage("merge.invalid-pack", 
                     "pack", packName));
                 return true;
             }
-            packsToMerge.add(packFile);
+            packsToMerge.add(packName);
         }
 
         if (packsToMerge.size() < 2) {
@@ -67,32 +74,52 @@ public class MergeCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        isMerging.set(true);
-        sender.sendMessage(plugin.getMessageManager().getMessage("merge.started"));
-
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                ResourcePackMerger merger = new ResourcePackMerger(plugin);
-                File result = merger.mergeResourcePacks(packsToMerge, outputName);
-                
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    if (result != null && result.exists()) {
-                        sender.sendMessage(plugin.getMessageManager().formatMessage("merge.success", 
-                            "pack", outputName));
-                        plugin.loadResourcePacks(true);
-                    } else {
-                        sender.sendMessage(plugin.getMessageManager().getMessage("merge.failed"));
+        Job<ResourcePackMerger.MergeResult> job;
+        try {
+            job = plugin.getJobManager().submit(JobType.MERGE, "Merge into " + outputName, sender.getName(), jobKey,
+                context -> {
+                    List<CompletableFuture<File>> inputs = new ArrayList<>();
+                    for (String packName : packsToMerge) {
+                        inputs.add(plugin.getPackManager().resolvePackFile(packName));
                     }
-                    isMerging.set(false);
-                });
-            } catch (Exception e) {
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    sender.sendMessage(plugin.getMessageManager().formatMessage("merge.failed", 
-                        "error", e.getMessage()));
-                    isMerging.set(false);
+                    return plugin.getMerger().mergeInputs(inputs, outputName, context);
                 });
+        } catch (RejectedExecutionException e) {
+            sender.sendMessage(plugin.getMessageManager().formatMessage("jobs.rejected",
+                "reason", e.getMessage()));
+            return true;
+        }
+
+        sender.sendMessage(plugin.getMessageManager().getMessage("merge.started"));
+        sender.sendMessage(plugin.getMessageManager().formatMessage("jobs.submitted",
+            "id", String.valueOf(job.getId())));
+
+        job.getResult().whenComplete((result, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (error instanceof CancellationException) {
+                sender.sendMessage(plugin.getMessageManager().formatMessage("jobs.cancelled",
+                    "id", String.valueOf(job.getId())));
+            } else if (error != null) {
+                sender.sendMessage(plugin.getMessageManager().formatMessage("merge.failed",
+                    "error", error.getMessage()));
+            } else if (result.unchanged()) {
+                sender.sendMessage(plugin.getMessageManager().formatMessage("merge.unchanged", 
+                    "pack", outputName));
+            } else if (result.outputFile().exists()) {
+                sender.sendMessage(plugin.getMessageManager().formatMessage("merge.success", 
+                    "pack", outputName));
+                sender.sendMessage(plugin.getMessageManager().formatMessage("merge.rebuilt", 
+                    "rebuilt", String.valueOf(result.rebuiltEntries()),
+                    "total", String.valueOf(result.totalEntries())));
+                if (result.deduplicated() > 0) {
+                    sender.sendMessage(plugin.getMessageManager().formatMessage("merge.deduplicated",
+                        "count", String.valueOf(result.deduplicated()),
+                        "saved", FileUtil.formatSize(result.savedBytes())));
+                }
+                plugin.loadResourcePacks(true);
+            } else {
+                sender.sendMessage(plugin.getMessageManager().getMessage("merge.failed"));
             }
-        });
+        }));
 
         return true;
     }
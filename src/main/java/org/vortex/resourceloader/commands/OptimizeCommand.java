@@ -0,0 +1,54 @@
+package org.vortex.resourceloader.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.util.StringUtil;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class OptimizeCommand extends PackJobCommand {
+    public OptimizeCommand(Resourceloader plugin) {
+        super(plugin, "optimize");
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("resourceloader.admin")) {
+            sender.sendMessage(messageManager.getMessage("general.no-permission"));
+            return true;
+        }
+
+        if (args.length != 1) {
+            sender.sendMessage(messageManager.getMessage("optimize.usage"));
+            return true;
+        }
+
+        String packName = args[0];
+
+        // URL packs are optimized from their cached download
+        runPackJob(sender, List.of(packName), JobType.COMPRESS, "Optimize " + packName,
+            (files, context) -> plugin.getPackCompressor().optimizePack(files.get(0), context),
+            (target, report) -> sendLines(target, report.format()), "pack", packName);
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+
+        if (!sender.hasPermission("resourceloader.admin")) {
+            return completions;
+        }
+
+        if (args.length == 1) {
+            StringUtil.copyPartialMatches(args[0], new ArrayList<>(plugin.getResourcePacks().keySet()), completions);
+        }
+
+        Collections.sort(completions);
+        return completions;
+    }
+}
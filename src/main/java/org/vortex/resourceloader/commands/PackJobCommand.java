@@ -0,0 +1,123 @@
+package org.vortex.resourceloader.commands;
+
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.Job;
+import org.vortex.resourceloader.jobs.JobContext;
+import org.vortex.resourceloader.jobs.JobType;
+import org.vortex.resourceloader.util.MessageManager;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Base of the admin commands that run one job on registered packs and print its report. URL packs
+ * are resolved to their cached download first; the job is announced, fails and reports with the
+ * {@code started}, {@code failed} and {@code header} messages of the command's section.
+ */
+abstract class PackJobCommand implements CommandExecutor, TabCompleter {
+    protected final Resourceloader plugin;
+    protected final MessageManager messageManager;
+    private final String section;
+
+    @FunctionalInterface
+    protected interface PackTask<T> {
+        T run(List<File> packFiles, JobContext context) throws Exception;
+    }
+
+    protected PackJobCommand(Resourceloader plugin, String section) {
+        this.plugin = plugin;
+        this.messageManager = plugin.getMessageManager();
+        this.section = section;
+    }
+
+    /**
+     * Runs {@code task} on the files of {@code packNames} as a job and, once it is done, sends the
+     * header and hands the result to {@code report} on the main thread.
+     *
+     * @param placeholders name and value pairs naming the packs in the section's messages
+     */
+    protected <T> void runPackJob(CommandSender sender, List<String> packNames, JobType type, String description,
+                                  PackTask<T> task, BiConsumer<CommandSender, T> report, String... placeholders) {
+        for (String packName : packNames) {
+            if (!plugin.getResourcePacks().containsKey(packName)) {
+                sender.sendMessage(messageManager.formatMessage("general.invalid-pack", "pack", packName));
+                return;
+            }
+        }
+
+        List<CompletableFuture<File>> inputs = packNames.stream()
+            .map(packName -> plugin.getPackManager().resolvePackFile(packName)).toList();
+        CompletableFuture.allOf(inputs.toArray(new CompletableFuture[0])).whenComplete((ignored, error) ->
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (error != null) {
+                    sendFailure(sender, error, placeholders);
+                    return;
+                }
+                List<File> files = inputs.stream().map(CompletableFuture::join).toList();
+                startJob(sender, files, type, description, task, report, placeholders);
+            }));
+    }
+
+    private <T> void startJob(CommandSender sender, List<File> files, JobType type, String description,
+                              PackTask<T> task, BiConsumer<CommandSender, T> report, String[] placeholders) {
+        String key = section + ":" + files.stream().map(File::getName).collect(Collectors.joining(":"));
+        Job<T> job;
+        try {
+            job = plugin.getJobManager().submit(type, description, sender.getName(), key,
+                context -> task.run(files, context));
+        } catch (RejectedExecutionException e) {
+            sender.sendMessage(messageManager.formatMessage("jobs.rejected", "reason", e.getMessage()));
+            return;
+        }
+
+        sender.sendMessage(messageManager.formatMessage(section + ".started", (Object[]) placeholders));
+        sender.sendMessage(messageManager.formatMessage("jobs.submitted", "id", String.valueOf(job.getId())));
+
+        job.getResult().whenComplete((result, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (error instanceof CancellationException) {
+                sender.sendMessage(messageManager.formatMessage("jobs.cancelled", "id", String.valueOf(job.getId())));
+            } else if (error != null) {
+                sendFailure(sender, error, placeholders);
+            } else {
+                sender.sendMessage(messageManager.formatMessage(section + ".header", (Object[]) placeholders));
+                report.accept(sender, result);
+            }
+        }));
+    }
+
+    private void sendFailure(CommandSender sender, Throwable error, String[] placeholders) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        List<String> values = new ArrayList<>(Arrays.asList(placeholders));
+        values.add("error");
+        values.add(cause.getMessage());
+        sender.sendMessage(messageManager.formatMessage(section + ".failed", values.toArray()));
+    }
+
+    protected static void sendLines(CommandSender sender, List<String> lines) {
+        for (String line : lines) {
+            sender.sendMessage("§7" + line);
+        }
+    }
+
+    /**
+     * The positive number in {@code value}, or 0 if there is none.
+     */
+    protected static int parseCount(String value) {
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.vortex.resourceloader.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.util.StringUtil;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class PruneCommand extends PackJobCommand {
+    public PruneCommand(Resourceloader plugin) {
+        super(plugin, "prune");
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("resourceloader.admin")) {
+            sender.sendMessage(messageManager.getMessage("general.no-permission"));
+            return true;
+        }
+
+        if (args.length < 1 || args.length > 2) {
+            sender.sendMessage(messageManager.getMessage("prune.usage"));
+            return true;
+        }
+
+        String packName = args[0];
+        int top = args.length == 2 ? parseCount(args[1]) : plugin.getConfig().getInt("optimization.prune.report-entries", 20);
+        if (top <= 0) {
+            sender.sendMessage(messageManager.getMessage("prune.usage"));
+            return true;
+        }
+
+        // URL packs are pruned from their cached download
+        runPackJob(sender, List.of(packName), JobType.COMPRESS, "Prune " + packName,
+            (files, context) -> plugin.getPackCompressor().prunePack(files.get(0), context),
+            (target, report) -> sendLines(target, report.format(top)), "pack", packName);
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+
+        if (!sender.hasPermission("resourceloader.admin")) {
+            return completions;
+        }
+
+        if (args.length == 1) {
+            StringUtil.copyPartialMatches(args[0], new ArrayList<>(plugin.getResourcePacks().keySet()), completions);
+        } else if (args.length == 2) {
+            StringUtil.copyPartialMatches(args[1], List.of("10", "20", "50"), completions);
+        }
+
+        Collections.sort(completions);
+        return completions;
+    }
+}
@@ -6,11 +6,14 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.util.StringUtil;
 import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.Job;
+import org.vortex.resourceloader.jobs.JobType;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 public class RemovePackCommand implements CommandExecutor, TabCompleter {
     private final Resourceloader plugin;
@@ -38,27 +41,35 @@ public class RemovePackCommand implements CommandExecutor, TabCompleter {
         }
 
         File packFile = plugin.getResourcePacks().get(packName);
-        if (packFile != null && packFile.exists()) {
-            try {
-                if (!packFile.delete()) {
-                    sender.sendMessage("§cFailed to remove resource pack '" + packName + "'!");
-                    return true;
-                }
-            } catch (SecurityException e) {
+
+        // Deleting large packs can block on slow disks, so only the config update runs on the main thread
+        Job<Boolean> job;
+        try {
+            job = plugin.getJobManager().submit(JobType.REMOVE, "Remove " + packName, sender.getName(),
+                "remove:" + packName, context -> packFile == null || !packFile.exists() || packFile.delete());
+        } catch (RejectedExecutionException e) {
+            sender.sendMessage(plugin.getMessageManager().formatMessage("jobs.rejected", "reason", e.getMessage()));
+            return true;
+        }
+
+        job.getResult().whenComplete((deleted, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (error != null || !deleted) {
                 sender.sendMessage("§cFailed to remove resource pack '" + packName + "'!");
-                plugin.getLogger().warning("Failed to delete pack file: " + e.getMessage());
-                return true;
+                if (error != null) {
+                    plugin.getLogger().warning("Failed to delete pack file: " + error.getMessage());
+                }
+                return;
             }
-        }
 
-        // Remove from config
-        plugin.getConfig().getConfigurationSection("resource-packs").set(packName, null);
-        plugin.saveConfig();
+            // Remove from config
+            plugin.getConfig().getConfigurationSection("resource-packs").set(packName, null);
+            plugin.saveConfig();
 
-        // Remove from memory
-        plugin.getResourcePacks().remove(packName);
-        
-        sender.sendMessage("§aSuccessfully removed resource pack '" + packName + "'!");
+            // Remove from memory
+            plugin.getResourcePacks().remove(packName);
+
+            sender.sendMessage("§aSuccessfully removed resource pack '" + packName + "'!");
+        }));
         return true;
     }
 
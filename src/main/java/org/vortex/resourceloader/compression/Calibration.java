@@ -0,0 +1,112 @@
+package org.vortex.resourceloader.compression;
+
+import org.vortex.resourceloader.util.FileUtil;
+
+import java.util.*;
+
+/**
+ * Size-versus-time curves of one pack: for each content category, a sample of its entries was
+ * deflated at every level and the output size and CPU time recorded. The level a variant uses for
+ * a category is picked from the Pareto front of that curve, see {@link #levelFor}.
+ */
+public class Calibration {
+    /**
+     * One trial: the sample deflated at {@code level}.
+     */
+    public record Point(int level, long compressedBytes, long nanos) {}
+
+    /**
+     * @param totalBytes uncompressed size of all entries of the category, to extrapolate the sample
+     */
+    public record Curve(int sampledEntries, long sampledBytes, long totalBytes, List<Point> points) {
+        /**
+         * Points no other point beats in both size and time.
+         */
+        public List<Point> frontier() {
+            List<Point> frontier = new ArrayList<>();
+            for (Point point : points) {
+                boolean dominated = points.stream().anyMatch(other -> other != point
+                    && other.compressedBytes() <= point.compressedBytes() && other.nanos() <= point.nanos()
+                    && (other.compressedBytes() < point.compressedBytes() || other.nanos() < point.nanos()));
+                if (!dominated) {
+                    frontier.add(point);
+                }
+            }
+            return frontier;
+        }
+    }
+
+    private final Map<CompressionPolicy.Category, Curve> curves;
+
+    public Calibration(Map<CompressionPolicy.Category, Curve> curves) {
+        this.curves = curves;
+    }
+
+    public Map<CompressionPolicy.Category, Curve> getCurves() {
+        return curves;
+    }
+
+    /**
+     * The level a variant uses for a category: of the Pareto-optimal levels no slower than the
+     * variant's nominal level, the fastest one within {@code tolerance} (a fraction of the input) of
+     * the smallest output. A category that barely compresses thus drops to a cheap level, while one
+     * that keeps shrinking stays at the top of the variant's budget.
+     */
+    public int levelFor(PackCompressor.CompressionLevel variant, CompressionPolicy.Category category, double tolerance) {
+        Curve curve = curves.get(category);
+        if (curve == null || curve.points().isEmpty()) {
+            return variant.getLevel();
+        }
+        long budget = curve.points().stream()
+            .filter(point -> point.level() == variant.getLevel())
+            .mapToLong(Point::nanos)
+            .findFirst()
+            .orElse(Long.MAX_VALUE);
+        List<Point> candidates = curve.frontier().stream().filter(point -> point.nanos() <= budget).toList();
+        if (candidates.isEmpty()) {
+            return variant.getLevel();
+        }
+        long smallest = candidates.stream().mapToLong(Point::compressedBytes).min().getAsLong();
+        long allowed = smallest + (long) (tolerance * curve.sampledBytes());
+        return candidates.stream()
+            .filter(point -> point.compressedBytes() <= allowed)
+            .min(Comparator.comparingLong(Point::nanos).thenComparingInt(Point::level))
+            .map(Point::level)
+            .orElse(variant.getLevel());
+    }
+
+    public Map<CompressionPolicy.Category, Integer> levelsFor(PackCompressor.CompressionLevel variant, double tolerance) {
+        Map<CompressionPolicy.Category, Integer> levels = new EnumMap<>(CompressionPolicy.Category.class);
+        for (CompressionPolicy.Category category : curves.keySet()) {
+            levels.put(category, levelFor(variant, category, tolerance));
+        }
+        return levels;
+    }
+
+    public List<String> format(double tolerance) {
+        List<String> lines = new ArrayList<>();
+        if (curves.isEmpty()) {
+            lines.add("Nothing to calibrate: every entry is stored uncompressed");
+            return lines;
+        }
+        curves.forEach((category, curve) -> {
+            double scale = curve.sampledBytes() > 0 ? (double) curve.totalBytes() / curve.sampledBytes() : 1;
+            lines.add(String.format("%s: %d entries sampled, %s of %s", category.name().toLowerCase(),
+                curve.sampledEntries(), FileUtil.formatSize(curve.sampledBytes()), FileUtil.formatSize(curve.totalBytes())));
+            List<Point> frontier = curve.frontier();
+            for (Point point : curve.points()) {
+                lines.add(String.format("  level %d: %5.1f%% smaller, est. %.1fms%s", point.level(),
+                    curve.sampledBytes() > 0 ? 100.0 * (curve.sampledBytes() - point.compressedBytes()) / curve.sampledBytes() : 0,
+                    point.nanos() * scale / 1_000_000.0, frontier.contains(point) ? "  *" : ""));
+            }
+            StringBuilder chosen = new StringBuilder("  chosen:");
+            for (PackCompressor.CompressionLevel variant : PackCompressor.CompressionLevel.values()) {
+                chosen.append(' ').append(variant.name().toLowerCase()).append('=')
+                    .append(levelFor(variant, category, tolerance));
+            }
+            lines.add(chosen.toString());
+        });
+        lines.add("* Pareto-optimal: no other level is both smaller and faster");
+        return lines;
+    }
+}
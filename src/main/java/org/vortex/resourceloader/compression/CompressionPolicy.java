@@ -0,0 +1,123 @@
+package org.vortex.resourceloader.compression;
+
+import org.vortex.resourceloader.Resourceloader;
+
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Decides per entry whether deflating is worth the CPU. PNG and OGG data is already compressed,
+ * so deflating it again at HIGH costs time for a fraction of a percent; those entries are stored.
+ * Text formats are always deflated, unknown types can be sample-compressed to decide.
+ */
+public class CompressionPolicy {
+    private static final int SAMPLE_SIZE = 16384;
+    private static final double DEFAULT_MIN_SAMPLE_SAVINGS = 0.05;
+
+    public enum Category {
+        TEXTURE(true),
+        SOUND(true),
+        JSON(false),
+        SHADER(false),
+        LANG(false),
+        TEXT(false),
+        OTHER(false);
+
+        private final boolean precompressed;
+
+        Category(boolean precompressed) {
+            this.precompressed = precompressed;
+        }
+
+        public boolean isPrecompressed() {
+            return precompressed;
+        }
+    }
+
+    public enum Method {
+        STORE,
+        DEFLATE
+    }
+
+    private final boolean storePrecompressed;
+    private final boolean sampleUnknown;
+    private final double minSampleSavings;
+
+    public CompressionPolicy(boolean storePrecompressed, boolean sampleUnknown, double minSampleSavings) {
+        this.storePrecompressed = storePrecompressed;
+        this.sampleUnknown = sampleUnknown;
+        this.minSampleSavings = minSampleSavings;
+    }
+
+    public static CompressionPolicy fromConfig(Resourceloader plugin) {
+        return new CompressionPolicy(
+            plugin.getConfig().getBoolean("compression.policy.store-precompressed", true),
+            plugin.getConfig().getBoolean("compression.policy.sample-unknown", true),
+            plugin.getConfig().getDouble("compression.policy.min-sample-savings", DEFAULT_MIN_SAMPLE_SAVINGS)
+        );
+    }
+
+    public static Category categorize(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        String extension = lower.substring(lower.lastIndexOf('.') + 1);
+        return switch (extension) {
+            case "png" -> Category.TEXTURE;
+            case "ogg" -> Category.SOUND;
+            case "fsh", "vsh", "glsl" -> Category.SHADER;
+            case "lang" -> Category.LANG;
+            case "json" -> lower.contains("/lang/") ? Category.LANG
+                : lower.contains("/shaders/") ? Category.SHADER
+                : Category.JSON;
+            case "mcmeta" -> Category.JSON;
+            case "txt", "properties" -> Category.TEXT;
+            default -> Category.OTHER;
+        };
+    }
+
+    /**
+     * Decides for an entry whose (possibly optimized) content is already in memory.
+     */
+    public Method decide(Category category, byte[] data) {
+        if (data.length == 0) {
+            return Method.DEFLATE;
+        }
+        if (category.isPrecompressed()) {
+            return storePrecompressed ? Method.STORE : Method.DEFLATE;
+        }
+        if (category == Category.OTHER && sampleUnknown) {
+            return sample(data, Math.min(data.length, SAMPLE_SIZE));
+        }
+        return Method.DEFLATE;
+    }
+
+    /**
+     * Whether every entry of the category is stored, whatever its content.
+     */
+    public boolean alwaysStores(Category category) {
+        return category.isPrecompressed() && storePrecompressed;
+    }
+
+    /**
+     * Deflates the start of the entry at the fastest level and only keeps deflating if that saves enough.
+     */
+    private Method sample(byte[] sample, int length) {
+        if (length == 0) {
+            return Method.DEFLATE;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[SAMPLE_SIZE];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+            double savings = 1.0 - (double) compressed / length;
+            return savings >= minSampleSavings ? Method.DEFLATE : Method.STORE;
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.vortex.resourceloader.compression;
+
+import org.vortex.resourceloader.util.FileUtil;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-category totals of one compression run: how many bytes each kind of entry saved and what it cost.
+ */
+public class CompressionReport {
+    public static class CategoryStats {
+        private int entries;
+        private int stored;
+        private int reused;
+        private long originalBytes;
+        private long compressedBytes;
+        private long cpuNanos;
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public int getStored() {
+            return stored;
+        }
+
+        public int getReused() {
+            return reused;
+        }
+
+        public long getOriginalBytes() {
+            return originalBytes;
+        }
+
+        public long getCompressedBytes() {
+            return compressedBytes;
+        }
+
+        public long getSavedBytes() {
+            return originalBytes - compressedBytes;
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+    }
+
+    private final Map<CompressionPolicy.Category, CategoryStats> categories = new EnumMap<>(CompressionPolicy.Category.class);
+
+    public void record(CompressionPolicy.Category category, CompressionPolicy.Method method,
+                       long originalBytes, long compressedBytes, long cpuNanos) {
+        CategoryStats stats = categories.computeIfAbsent(category, key -> new CategoryStats());
+        stats.entries++;
+        if (method == CompressionPolicy.Method.STORE) {
+            stats.stored++;
+        }
+        stats.originalBytes += originalBytes;
+        stats.compressedBytes += compressedBytes;
+        stats.cpuNanos += cpuNanos;
+    }
+
+    /**
+     * An entry copied from a previous build instead of being encoded again.
+     */
+    public void recordReused(CompressionPolicy.Category category, CompressionPolicy.Method method,
+                             long originalBytes, long compressedBytes) {
+        record(category, method, originalBytes, compressedBytes, 0);
+        categories.get(category).reused++;
+    }
+
+    public int getReused() {
+        return categories.values().stream().mapToInt(CategoryStats::getReused).sum();
+    }
+
+    public Map<CompressionPolicy.Category, CategoryStats> getCategories() {
+        return categories;
+    }
+
+    public long getSavedBytes() {
+        return categories.values().stream().mapToLong(CategoryStats::getSavedBytes).sum();
+    }
+
+    public long getCpuNanos() {
+        return categories.values().stream().mapToLong(CategoryStats::getCpuNanos).sum();
+    }
+
+    public List<String> format() {
+        List<String> lines = new ArrayList<>();
+        categories.forEach((category, stats) -> lines.add(String.format(
+            "  %-8s %5d entries (%d stored, %d reused)  %s -> %s  saved %s  cpu %.1fms",
+            category.name().toLowerCase(), stats.entries, stats.stored, stats.reused,
+            FileUtil.formatSize(stats.originalBytes), FileUtil.formatSize(stats.compressedBytes),
+            FileUtil.formatSize(stats.getSavedBytes()), stats.cpuNanos / 1_000_000.0)));
+        lines.add(String.format("  total    saved %s  cpu %.1fms", FileUtil.formatSize(getSavedBytes()), getCpuNanos() / 1_000_000.0));
+        return lines;
+    }
+}
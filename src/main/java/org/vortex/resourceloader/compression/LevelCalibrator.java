@@ -0,0 +1,213 @@
+package org.vortex.resourceloader.compression;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Trial-compresses a sample of a pack's entries at every deflate level and keeps the resulting
+ * {@link Calibration}, keyed by the SHA-1 of the pack and persisted next to the variants built from it.
+ * Entries the policy stores anyway are left out, since their level does not matter.
+ */
+public class LevelCalibrator {
+    private static final int BUFFER_SIZE = 32768;
+
+    private final Resourceloader plugin;
+    private final Logger logger;
+    private final File file;
+    private final Map<String, Calibration> calibrations;
+
+    public LevelCalibrator(Resourceloader plugin, File file) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.file = file;
+        this.calibrations = new ConcurrentHashMap<>();
+    }
+
+    public Calibration get(String sourceHash) {
+        return calibrations.get(sourceHash);
+    }
+
+    public void put(String sourceHash, Calibration calibration) {
+        calibrations.put(sourceHash, calibration);
+        save();
+    }
+
+    public Calibration calibrate(File pack, String sourceHash, JobContext context) throws IOException {
+        CompressionPolicy policy = CompressionPolicy.fromConfig(plugin);
+        long sampleSize = plugin.getConfig().getLong("compression.calibration.sample-size", 4L * 1024 * 1024);
+        Map<CompressionPolicy.Category, Calibration.Curve> curves = new EnumMap<>(CompressionPolicy.Category.class);
+
+        try (ZipFile zip = new ZipFile(pack)) {
+            Map<CompressionPolicy.Category, List<ZipEntry>> byCategory = new EnumMap<>(CompressionPolicy.Category.class);
+            List<ZipEntry> entries = new ArrayList<>(Collections.list(zip.entries()));
+            entries.sort(Comparator.comparing(ZipEntry::getName));
+            for (ZipEntry entry : entries) {
+                if (!entry.isDirectory()) {
+                    byCategory.computeIfAbsent(CompressionPolicy.categorize(entry.getName()), key -> new ArrayList<>()).add(entry);
+                }
+            }
+
+            boolean warmedUp = false;
+            int done = 0;
+            for (Map.Entry<CompressionPolicy.Category, List<ZipEntry>> category : byCategory.entrySet()) {
+                context.checkCancelled();
+                context.setProgress(done++, byCategory.size());
+                List<byte[]> sample = new ArrayList<>();
+                long totalBytes = sample(zip, category.getKey(), category.getValue(), policy, sampleSize, sample);
+                if (sample.isEmpty()) {
+                    continue;
+                }
+                if (!warmedUp) {
+                    // The first trial would otherwise also pay for JIT compilation
+                    trial(sample, Deflater.BEST_SPEED);
+                    warmedUp = true;
+                }
+
+                long sampledBytes = sample.stream().mapToLong(data -> data.length).sum();
+                List<Calibration.Point> points = new ArrayList<>();
+                for (int level = Deflater.BEST_SPEED; level <= Deflater.BEST_COMPRESSION; level++) {
+                    context.checkCancelled();
+                    long start = VariantEncoder.cpuTime();
+                    long compressed = trial(sample, level);
+                    points.add(new Calibration.Point(level, compressed, VariantEncoder.cpuTime() - start));
+                }
+                curves.put(category.getKey(), new Calibration.Curve(sample.size(), sampledBytes, totalBytes, points));
+            }
+        }
+
+        Calibration calibration = new Calibration(curves);
+        calibrations.put(sourceHash, calibration);
+        save();
+        logger.info("Calibrated compression levels for " + pack.getName() + ":");
+        calibration.format(getTolerance()).forEach(line -> logger.info("  " + line));
+        return calibration;
+    }
+
+    /**
+     * Reads a sample of a category's entries spread evenly over the whole list, as many as make about
+     * {@code sampleSize} bytes at the category's average entry size, keeping those the policy
+     * deflates. Returns the estimated total size of the category's deflated entries.
+     */
+    private long sample(ZipFile zip, CompressionPolicy.Category category, List<ZipEntry> entries,
+                        CompressionPolicy policy, long sampleSize, List<byte[]> sample) throws IOException {
+        if (policy.alwaysStores(category)) {
+            return 0;
+        }
+        long totalBytes = entries.stream().mapToLong(entry -> Math.max(0, entry.getSize())).sum();
+        int count = (int) Math.min(entries.size(),
+            Math.max(1, (entries.size() * sampleSize + totalBytes - 1) / Math.max(1, totalBytes)));
+        long readBytes = 0;
+        long sampledBytes = 0;
+        for (int k = 0; k < count; k++) {
+            byte[] data;
+            try (InputStream in = zip.getInputStream(entries.get((int) ((long) k * entries.size() / count)))) {
+                // Huge entries only contribute their start, the sample has to fit in memory
+                data = in.readNBytes((int) Math.min(sampleSize, Integer.MAX_VALUE - 8));
+            }
+            readBytes += data.length;
+            if (policy.decide(category, data) == CompressionPolicy.Method.DEFLATE) {
+                sample.add(data);
+                sampledBytes += data.length;
+            }
+        }
+        return readBytes > 0 ? totalBytes * sampledBytes / readBytes : 0;
+    }
+
+    private static long trial(List<byte[]> sample, int level) {
+        Deflater deflater = new Deflater(level, true);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long compressed = 0;
+        try {
+            for (byte[] data : sample) {
+                deflater.reset();
+                deflater.setInput(data);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed += deflater.deflate(buffer);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        return compressed;
+    }
+
+    public double getTolerance() {
+        return plugin.getConfig().getDouble("compression.calibration.tolerance", 0.005);
+    }
+
+    /**
+     * Forgets calibrations of packs no longer in use.
+     */
+    public void retain(Set<String> sources) {
+        if (calibrations.keySet().retainAll(sources)) {
+            save();
+        }
+    }
+
+    public void load() {
+        if (!file.exists()) {
+            return;
+        }
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        for (String hash : config.getKeys(false)) {
+            ConfigurationSection section = config.getConfigurationSection(hash);
+            if (section == null) {
+                continue;
+            }
+            Map<CompressionPolicy.Category, Calibration.Curve> curves = new EnumMap<>(CompressionPolicy.Category.class);
+            for (String name : section.getKeys(false)) {
+                CompressionPolicy.Category category;
+                try {
+                    category = CompressionPolicy.Category.valueOf(name.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                List<Calibration.Point> points = new ArrayList<>();
+                for (String point : section.getStringList(name + ".points")) {
+                    String[] parts = point.split(":");
+                    if (parts.length == 3) {
+                        points.add(new Calibration.Point(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                    }
+                }
+                curves.put(category, new Calibration.Curve(section.getInt(name + ".entries", 0),
+                    section.getLong(name + ".sampled", 0), section.getLong(name + ".total", 0), points));
+            }
+            calibrations.put(hash, new Calibration(curves));
+        }
+    }
+
+    public synchronized void save() {
+        YamlConfiguration config = new YamlConfiguration();
+        calibrations.forEach((hash, calibration) -> {
+            // Keep a marker for packs with nothing to calibrate, so they are not sampled again
+            config.createSection(hash);
+            calibration.getCurves().forEach((category, curve) -> {
+                String path = hash + "." + category.name().toLowerCase();
+                config.set(path + ".entries", curve.sampledEntries());
+                config.set(path + ".sampled", curve.sampledBytes());
+                config.set(path + ".total", curve.totalBytes());
+                config.set(path + ".points", curve.points().stream()
+                    .map(point -> point.level() + ":" + point.compressedBytes() + ":" + point.nanos())
+                    .toList());
+            });
+        });
+        try {
+            config.save(file);
+        } catch (IOException e) {
+            logger.warning("Failed to save compression calibration: " + e.getMessage());
+        }
+    }
+}
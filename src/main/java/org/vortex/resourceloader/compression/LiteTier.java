@@ -0,0 +1,279 @@
+package org.vortex.resourceloader.compression;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.util.FileUtil;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The "lite" quality tier, for players whose connection makes the full pack a long wait: textures
+ * wider than {@code compression.tiers.lite.max-resolution} are downscaled by a power of two, and
+ * configured sound folders are left out. Animation strips keep whole frames, since the factor must
+ * divide the frame size from the texture's .mcmeta, which is rewritten to match. One instance covers
+ * one build and counts what it changed.
+ */
+public class LiteTier implements VariantEncoder.Transform {
+    private final int maxResolution;
+    private final List<String> skipPaths;
+    private final List<String> dropSounds;
+    private final ObjectMapper mapper;
+    private final AtomicInteger downscaled = new AtomicInteger();
+    private final AtomicLong textureBytesBefore = new AtomicLong();
+    private final AtomicLong textureBytesAfter = new AtomicLong();
+    private final AtomicInteger droppedSounds = new AtomicInteger();
+
+    public LiteTier(int maxResolution, List<String> skipPaths, List<String> dropSounds) {
+        this.maxResolution = Math.max(1, maxResolution);
+        this.skipPaths = skipPaths;
+        this.dropSounds = dropSounds;
+        this.mapper = new ObjectMapper();
+    }
+
+    public static LiteTier fromConfig(Resourceloader plugin) {
+        return new LiteTier(
+            plugin.getConfig().getInt("compression.tiers.lite.max-resolution", 32),
+            plugin.getConfig().getStringList("compression.tiers.lite.skip-paths"),
+            plugin.getConfig().getStringList("compression.tiers.lite.drop-sounds"));
+    }
+
+    /**
+     * Short fingerprint of the settings, part of the tier's variant name.
+     */
+    public String fingerprint() {
+        String settings = maxResolution + ";" + String.join(",", skipPaths) + ";" + String.join(",", dropSounds);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return FileUtil.toHex(digest.digest(settings.getBytes(StandardCharsets.UTF_8))).substring(0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(settings.hashCode());
+        }
+    }
+
+    /**
+     * The entry whose content also decides this one's output: a texture and its .mcmeta are scaled
+     * by the same factor, so neither can be reused from a previous build if the other changed.
+     */
+    static String related(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".png.mcmeta")) {
+            return name.substring(0, name.length() - ".mcmeta".length());
+        }
+        return lower.endsWith(".png") ? name + ".mcmeta" : null;
+    }
+
+    @Override
+    public boolean keep(String name) {
+        String path = assetPath(name);
+        if (path == null || !path.startsWith("sounds/")) {
+            return true;
+        }
+        for (String prefix : dropSounds) {
+            if (path.startsWith("sounds/" + prefix)) {
+                droppedSounds.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public byte[] apply(ZipFile source, String name, byte[] data) throws IOException {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".png") && isScalable(name)) {
+            int factor = factor(dimensions(data), readJson(source, name + ".mcmeta"));
+            return factor > 1 ? downscale(data, factor) : data;
+        }
+        if (lower.endsWith(".png.mcmeta")) {
+            String texture = name.substring(0, name.length() - ".mcmeta".length());
+            if (!isScalable(texture)) {
+                return data;
+            }
+            JsonNode meta = parse(data);
+            int factor = factor(dimensions(readHead(source, texture)), meta);
+            return factor > 1 ? scaleMeta(meta, factor) : data;
+        }
+        return data;
+    }
+
+    /**
+     * Path below {@code assets/<namespace>/}, or null outside of it.
+     */
+    private static String assetPath(String name) {
+        if (!name.startsWith("assets/")) {
+            return null;
+        }
+        int slash = name.indexOf('/', "assets/".length());
+        return slash < 0 ? null : name.substring(slash + 1);
+    }
+
+    private boolean isScalable(String name) {
+        String path = assetPath(name);
+        if (path == null || !path.startsWith("textures/")) {
+            return false;
+        }
+        return skipPaths.stream().noneMatch(path::startsWith);
+    }
+
+    /**
+     * The power of two to divide by: as large as brings the width to the limit, but only as far as it
+     * divides the texture and its animation frames exactly. GUI sprites with nine-slice metadata are
+     * left alone, their borders are in pixels, and so are textures whose .mcmeta cannot be parsed,
+     * since their frame size is unknown.
+     */
+    int factor(int[] size, JsonNode meta) {
+        if (size == null || (meta != null && (meta.isMissingNode() || meta.has("gui")))) {
+            return 1;
+        }
+        int width = size[0];
+        int height = size[1];
+        int frameWidth = width;
+        int frameHeight = height;
+        JsonNode animation = meta != null ? meta.get("animation") : null;
+        if (animation != null) {
+            JsonNode declaredWidth = animation.get("width");
+            JsonNode declaredHeight = animation.get("height");
+            frameWidth = declaredWidth != null ? declaredWidth.asInt(width) : width;
+            frameHeight = declaredHeight != null ? declaredHeight.asInt(frameWidth) : declaredWidth != null ? height : width;
+        }
+
+        int factor = 1;
+        while (width / factor > maxResolution) {
+            int next = factor * 2;
+            if (width % next != 0 || height % next != 0 || frameWidth % next != 0 || frameHeight % next != 0) {
+                break;
+            }
+            factor = next;
+        }
+        return factor;
+    }
+
+    private byte[] downscale(byte[] data, int factor) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null) {
+            throw new IOException("Unreadable PNG");
+        }
+        int width = image.getWidth() / factor;
+        int height = image.getHeight() / factor;
+        int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int samples = factor * factor;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // Box filter on premultiplied colour, so transparent pixels do not darken edges
+                long alpha = 0, red = 0, green = 0, blue = 0;
+                for (int dy = 0; dy < factor; dy++) {
+                    int row = (y * factor + dy) * image.getWidth() + x * factor;
+                    for (int dx = 0; dx < factor; dx++) {
+                        int argb = pixels[row + dx];
+                        int a = argb >>> 24;
+                        alpha += a;
+                        red += ((argb >> 16) & 0xFF) * a;
+                        green += ((argb >> 8) & 0xFF) * a;
+                        blue += (argb & 0xFF) * a;
+                    }
+                }
+                int argb = 0;
+                if (alpha > 0) {
+                    argb = (int) ((alpha + samples / 2) / samples) << 24
+                        | (int) ((red + alpha / 2) / alpha) << 16
+                        | (int) ((green + alpha / 2) / alpha) << 8
+                        | (int) ((blue + alpha / 2) / alpha);
+                }
+                scaled.setRGB(x, y, argb);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(scaled, "png", out);
+        byte[] result = out.toByteArray();
+        downscaled.incrementAndGet();
+        textureBytesBefore.addAndGet(data.length);
+        textureBytesAfter.addAndGet(result.length);
+        return result;
+    }
+
+    private byte[] scaleMeta(JsonNode meta, int factor) throws IOException {
+        ObjectNode copy = meta.deepCopy();
+        JsonNode animation = copy.get("animation");
+        if (animation instanceof ObjectNode frames) {
+            for (String field : new String[]{"width", "height"}) {
+                if (frames.has(field)) {
+                    frames.put(field, frames.get(field).asInt() / factor);
+                }
+            }
+        }
+        return mapper.writeValueAsBytes(copy);
+    }
+
+    /**
+     * Width and height from the IHDR chunk, or null if this is not a PNG.
+     */
+    private static int[] dimensions(byte[] png) {
+        if (png == null || png.length < 24 || (png[0] & 0xFF) != 0x89 || png[1] != 'P' || png[2] != 'N' || png[3] != 'G') {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(png, 16, 8);
+        return new int[]{header.getInt(), header.getInt()};
+    }
+
+    private static byte[] readHead(ZipFile source, String name) throws IOException {
+        ZipEntry entry = source.getEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = source.getInputStream(entry)) {
+            return in.readNBytes(24);
+        }
+    }
+
+    private JsonNode readJson(ZipFile source, String name) throws IOException {
+        ZipEntry entry = source.getEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = source.getInputStream(entry)) {
+            return parse(in.readAllBytes());
+        }
+    }
+
+    /**
+     * The parsed object, or a missing node if it is not a valid JSON object; such textures and their
+     * .mcmeta are then left as they are.
+     */
+    private JsonNode parse(byte[] json) {
+        try {
+            JsonNode node = mapper.readTree(json);
+            return node != null && node.isObject() ? node : MissingNode.getInstance();
+        } catch (IOException e) {
+            return MissingNode.getInstance();
+        }
+    }
+
+    public List<String> format() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Textures downscaled: %d (%s -> %s)", downscaled.get(),
+            FileUtil.formatSize(textureBytesBefore.get()), FileUtil.formatSize(textureBytesAfter.get())));
+        lines.add("Sounds dropped: " + droppedSounds.get());
+        return lines;
+    }
+}
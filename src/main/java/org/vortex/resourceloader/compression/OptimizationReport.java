@@ -0,0 +1,101 @@
+package org.vortex.resourceloader.compression;
+
+import org.vortex.resourceloader.util.FileUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What one optimization run removed. Sizes are uncompressed entry bytes except for the pack totals.
+ */
+public class OptimizationReport {
+    private int junkEntries;
+    private long junkBytes;
+    private int emptyDirectories;
+    private int jsonMinified;
+    private long jsonSaved;
+    private int pngOptimized;
+    private long pngSaved;
+    private long originalPackSize;
+    private long optimizedPackSize;
+
+    synchronized void recordJunk(long bytes) {
+        junkEntries++;
+        junkBytes += bytes;
+    }
+
+    synchronized void recordEmptyDirectory() {
+        emptyDirectories++;
+    }
+
+    synchronized void recordJson(long before, long after) {
+        if (after < before) {
+            jsonMinified++;
+            jsonSaved += before - after;
+        }
+    }
+
+    synchronized void recordPng(long before, long after) {
+        if (after < before) {
+            pngOptimized++;
+            pngSaved += before - after;
+        }
+    }
+
+    void setPackSizes(long original, long optimized) {
+        this.originalPackSize = original;
+        this.optimizedPackSize = optimized;
+    }
+
+    public int getJunkEntries() {
+        return junkEntries;
+    }
+
+    public long getJunkBytes() {
+        return junkBytes;
+    }
+
+    public int getEmptyDirectories() {
+        return emptyDirectories;
+    }
+
+    public int getJsonMinified() {
+        return jsonMinified;
+    }
+
+    public long getJsonSaved() {
+        return jsonSaved;
+    }
+
+    public int getPngOptimized() {
+        return pngOptimized;
+    }
+
+    public long getPngSaved() {
+        return pngSaved;
+    }
+
+    public long getOriginalPackSize() {
+        return originalPackSize;
+    }
+
+    public long getOptimizedPackSize() {
+        return optimizedPackSize;
+    }
+
+    public long getSavedBytes() {
+        return originalPackSize - optimizedPackSize;
+    }
+
+    public List<String> format() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("System files removed: %d (%s)", junkEntries, FileUtil.formatSize(junkBytes)));
+        lines.add(String.format("Empty directories removed: %d", emptyDirectories));
+        lines.add(String.format("JSON minified: %d files, -%s", jsonMinified, FileUtil.formatSize(jsonSaved)));
+        lines.add(String.format("PNG recompressed: %d files, -%s", pngOptimized, FileUtil.formatSize(pngSaved)));
+        double percent = originalPackSize > 0 ? getSavedBytes() * 100.0 / originalPackSize : 0;
+        lines.add(String.format("Pack size: %s -> %s (%.1f%% smaller)",
+            FileUtil.formatSize(originalPackSize), FileUtil.formatSize(optimizedPackSize), percent));
+        return lines;
+    }
+}
@@ -2,23 +2,50 @@ package org.vortex.resourceloader.compression;
 
 import org.bukkit.entity.Player;
 import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobContext;
+import org.vortex.resourceloader.jobs.JobType;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.ZipUtil;
 import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
-import java.util.zip.*;
+import java.util.zip.Deflater;
 
+/**
+ * Builds and picks the compressed variants sent in place of a pack. Variants are keyed by the SHA-1
+ * of their source plus the policy they were built with, so renaming or moving a pack keeps its
+ * variants, two packs with the same name never collide, and any content or setting change is a miss.
+ */
 public class PackCompressor {
     private final Resourceloader plugin;
     private final Logger logger;
-    private final Map<String, Map<CompressionLevel, File>> compressionCache;
+    private static final int POLICY_VERSION = 1;
+    private static final String OPTIMIZED_LABEL = "optimized";
+    private static final String LITE_LABEL = "lite-";
+    private static final String PRUNED_LABEL = "pruned";
+    private final VariantIndex index;
     private final Path cacheDir;
-    private final ExecutorService compressionExecutor;
-    private static final int BUFFER_SIZE = 32768; // 32KB buffer
-    private static final long MAX_PACK_SIZE = 100 * 1024 * 1024; // 100MB
-    private static final int MAX_THREADS = 4; // Limit concurrent compression tasks
-    private final Map<String, CompletableFuture<File>> activeCompressions;
+    private final Map<String, CompletableFuture<Map<CompressionLevel, File>>> activeCompressions;
+    private final Map<String, CompletableFuture<File>> activeTiers;
+    private final Set<String> failedTiers;
+    private final VariantEncoder encoder;
+    private final Map<String, Object> optimizeLocks;
+    private final Map<String, Integer> building;
+    private final LevelCalibrator calibrator;
+
+    /**
+     * A file that can be sent in place of a pack, with its SHA-1. The level is null for the original,
+     * and the SHA-1 is null while the original is still being hashed.
+     *
+     * @param lite whether this is the lite tier, with downscaled textures
+     */
+    public record PackVariant(File file, byte[] sha1, CompressionLevel level, boolean lite) {}
 
     public enum CompressionLevel {
         LOW(1),
@@ -47,15 +74,15 @@ public class PackCompressor {
     public PackCompressor(Resourceloader plugin) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
-        this.compressionCache = new ConcurrentHashMap<>();
         this.cacheDir = plugin.getDataFolder().toPath().resolve("compression_cache");
-        this.compressionExecutor = new ThreadPoolExecutor(
-            2, MAX_THREADS,
-            60L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(),
-            new ThreadPoolExecutor.CallerRunsPolicy()
-        );
+        this.index = new VariantIndex(cacheDir.resolve("index.yml").toFile(), logger);
         this.activeCompressions = new ConcurrentHashMap<>();
+        this.activeTiers = new ConcurrentHashMap<>();
+        this.failedTiers = ConcurrentHashMap.newKeySet();
+        this.encoder = new VariantEncoder(plugin, new PackOptimizer(plugin));
+        this.optimizeLocks = new ConcurrentHashMap<>();
+        this.building = new ConcurrentHashMap<>();
+        this.calibrator = new LevelCalibrator(plugin, cacheDir.resolve("calibration.yml").toFile());
 
         initialize();
     }
@@ -63,7 +90,8 @@ public class PackCompressor {
     private void initialize() {
         try {
             Files.createDirectories(cacheDir);
-            cleanupOldCache();
+            index.load();
+            calibrator.load();
         } catch (IOException e) {
             logger.warning("Failed to initialize compression cache: " + e.getMessage());
         }
@@ -74,112 +102,492 @@ public class PackCompressor {
             return CompletableFuture.completedFuture(originalPack);
         }
 
-        // Validate file size
-        if (originalPack.length() > MAX_PACK_SIZE) {
-            logger.warning("Pack " + originalPack.getName() + " exceeds maximum size limit of " + (MAX_PACK_SIZE / 1024 / 1024) + "MB");
+        String sourceHash = plugin.getHashCache().getOrCalculateHash(originalPack);
+        if (sourceHash == null) {
             return CompletableFuture.completedFuture(originalPack);
         }
 
+        VariantIndex.Variant variant = findVariant(sourceHash, policyKey(), level.name().toLowerCase());
+        if (variant != null) {
+            return CompletableFuture.completedFuture(cacheDir.resolve(variant.fileName()).toFile());
+        }
+
+        return buildVariants(originalPack, sourceHash).thenApply(files -> files.getOrDefault(level, originalPack));
+    }
+
+    private static String variantName(String sourceHash, String policy, String label) {
+        return sourceHash + "-" + policy + "-" + label;
+    }
+
+    private VariantIndex.Variant findVariant(String sourceHash, String policy, String label) {
+        VariantIndex.Variant variant = index.use(variantName(sourceHash, policy, label));
+        if (variant == null) {
+            return null;
+        }
+        if (!cacheDir.resolve(variant.fileName()).toFile().exists()) {
+            index.remove(variant.name());
+            return null;
+        }
+        return variant;
+    }
+
+    /**
+     * Short fingerprint of every setting that changes the bytes of a variant. Level variants are built
+     * from the optimized content, so the optimization settings are part of their key as well.
+     */
+    private String policyKey() {
+        String policy = String.join(";",
+            "v" + POLICY_VERSION,
+            "deterministic=" + ZipUtil.isDeterministic(plugin),
+            "store=" + plugin.getConfig().getBoolean("compression.policy.store-precompressed", true),
+            "sample=" + plugin.getConfig().getBoolean("compression.policy.sample-unknown", true),
+            "savings=" + plugin.getConfig().getDouble("compression.policy.min-sample-savings", 0.05),
+            "optimize=" + isOptimizationEnabled(),
+            "json=" + plugin.getConfig().getBoolean("optimization.minify-json", true),
+            "png=" + plugin.getConfig().getBoolean("optimization.optimize-png", true),
+            "prune=" + (isPruningEnabled() ? PackPruner.fromConfig(plugin).fingerprint() : "off"),
+            "calibrate=" + isCalibrationEnabled(),
+            "tolerance=" + calibrator.getTolerance());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return FileUtil.toHex(digest.digest(policy.getBytes(StandardCharsets.UTF_8))).substring(0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(policy.hashCode());
+        }
+    }
+
+    /**
+     * Rebuilds every missing level of a pack in one pass over it. Compression competes with merges and
+     * validation for CPU, so it is queued as a job; players keep getting the original pack if the queue
+     * is full or the job fails. Packs with identical content share one build.
+     */
+    private CompletableFuture<Map<CompressionLevel, File>> buildVariants(File originalPack, String sourceHash) {
         String packName = originalPack.getName();
-        
-        // Check if compression is already in progress
-        CompletableFuture<File> activeCompression = activeCompressions.get(packName);
-        if (activeCompression != null && !activeCompression.isDone()) {
-            return activeCompression;
+        CompletableFuture<Map<CompressionLevel, File>> future = new CompletableFuture<>();
+        CompletableFuture<Map<CompressionLevel, File>> active = activeCompressions.putIfAbsent(sourceHash, future);
+        if (active != null) {
+            return active;
         }
 
-        Map<CompressionLevel, File> packCache = compressionCache.computeIfAbsent(
-            packName, key -> new ConcurrentHashMap<>()
-        );
+        String policy = policyKey();
+        List<CompressionLevel> levels = new ArrayList<>();
+        for (CompressionLevel level : CompressionLevel.values()) {
+            if (findVariant(sourceHash, policy, level.name().toLowerCase()) == null) {
+                levels.add(level);
+            }
+        }
+        String levelNames = String.join(", ", levels.stream().map(level -> level.name().toLowerCase()).toList());
 
-        File cachedFile = packCache.get(level);
-        if (cachedFile != null && cachedFile.exists() && 
-            cachedFile.lastModified() >= originalPack.lastModified()) {
-            return CompletableFuture.completedFuture(cachedFile);
+        try {
+            plugin.getJobManager().submit(JobType.COMPRESS, "Compress " + packName + " (" + levelNames + ")", "server",
+                "compress:" + sourceHash, context -> encodeVariants(originalPack, sourceHash, policy, levels, context))
+                .getResult().whenComplete((files, error) -> {
+                    activeCompressions.remove(sourceHash, future);
+                    if (error != null) {
+                        logger.warning("Failed to compress pack " + packName + ": " + error.getMessage());
+                        future.complete(Map.of());
+                    } else {
+                        future.complete(files);
+                        // The pack changed, so the variants of its previous content are likely unused now
+                        collectGarbage();
+                    }
+                });
+        } catch (RejectedExecutionException e) {
+            activeCompressions.remove(sourceHash, future);
+            logger.warning("Skipping compression of " + packName + ": " + e.getMessage());
+            future.complete(Map.of());
         }
+        return future;
+    }
+
+    /**
+     * Writes the requested levels, plus the optimized copy if it is enabled and missing, in a single pass.
+     */
+    private Map<CompressionLevel, File> encodeVariants(File originalPack, String sourceHash, String policy,
+                                                       List<CompressionLevel> levels, JobContext context) throws IOException {
+        return build(sourceHash, () -> {
+            List<VariantEncoder.Target> targets = new ArrayList<>();
+            Map<File, String> labels = new HashMap<>();
+            File source = originalPack;
+            File optimizedFile = variantFile(sourceHash, policy, OPTIMIZED_LABEL);
+            boolean optimize = false;
+            if (isOptimizationEnabled()) {
+                if (findVariant(sourceHash, policy, OPTIMIZED_LABEL) != null) {
+                    source = optimizedFile;
+                } else {
+                    optimize = true;
+                    targets.add(new VariantEncoder.Target(optimizedFile, Deflater.BEST_COMPRESSION));
+                    labels.put(optimizedFile, OPTIMIZED_LABEL);
+                }
+            }
+
+            Calibration calibration = isCalibrationEnabled() ? calibrationFor(originalPack, sourceHash, policy, context) : null;
+
+            Map<CompressionLevel, File> files = new EnumMap<>(CompressionLevel.class);
+            for (CompressionLevel level : levels) {
+                File file = variantFile(sourceHash, policy, level.name().toLowerCase());
+                files.put(level, file);
+                targets.add(new VariantEncoder.Target(file, level.getLevel(), categoryLevels(calibration, level.name())));
+                labels.put(file, level.name().toLowerCase());
+            }
+
+            Map<String, String> manifest = SourceManifest.of(plugin.getZipIndexes().get(originalPack));
+            VariantEncoder.Reuse reuse = previousBuild(originalPack, sourceHash, policy, labels, manifest, null);
+            // The optimized copy is pruned already
+            PackPruner pruner = isPruningEnabled() && source == originalPack ? prune(originalPack, context) : null;
+            VariantEncoder.Result result = encoder.encode(source, targets, optimize, pruner, reuse, context);
+            logReports(originalPack, optimizedFile, result);
+            SourceManifest.write(manifest, manifestFile(sourceHash));
+            register(originalPack, sourceHash, policy, labels);
+            return files;
+        });
+    }
+
+    @FunctionalInterface
+    private interface CacheBuild<T> {
+        T run() throws IOException;
+    }
 
-        CompletableFuture<File> future = CompletableFuture.supplyAsync(() -> {
+    /**
+     * Runs work that writes cache files of one source under that source's lock, marked as building
+     * until it is registered, so a sweep on the IO runner leaves its temp and finished files alone.
+     */
+    private <T> T build(String sourceHash, CacheBuild<T> build) throws IOException {
+        synchronized (optimizeLocks.computeIfAbsent(sourceHash, key -> new Object())) {
+            building.merge(sourceHash, 1, Integer::sum);
             try {
-                File compressedFile = compressPack(originalPack, level);
-                packCache.put(level, compressedFile);
-                return compressedFile;
-            } catch (IOException e) {
-                logger.warning("Failed to compress pack " + packName + ": " + e.getMessage());
-                return originalPack;
+                return build.run();
             } finally {
-                activeCompressions.remove(packName);
+                building.computeIfPresent(sourceHash, (key, count) -> count > 1 ? count - 1 : null);
             }
-        }, compressionExecutor);
+        }
+    }
 
-        activeCompressions.put(packName, future);
-        return future;
+    private File manifestFile(String sourceHash) {
+        return cacheDir.resolve(sourceHash + ".entries").toFile();
     }
 
-    private File compressPack(File originalPack, CompressionLevel level) throws IOException {
-        String baseName = originalPack.getName().replaceFirst("[.][^.]+$", "");
-        File compressedFile = cacheDir.resolve(
-            baseName + "_" + level.name().toLowerCase() + ".zip"
-        ).toFile();
-
-        // Create temp file for safe compression
-        File tempFile = new File(compressedFile.getParent(), compressedFile.getName() + ".tmp");
-
-        try (ZipFile sourceZip = new ZipFile(originalPack);
-             ZipOutputStream zos = new ZipOutputStream(
-                 new BufferedOutputStream(new FileOutputStream(tempFile)))) {
-            
-            zos.setLevel(level.getLevel());
-            byte[] buffer = new byte[BUFFER_SIZE];
-
-            // Get total entries for progress tracking
-            int totalEntries = Collections.list(sourceZip.entries()).size();
-            int processedEntries = 0;
-
-            for (Enumeration<? extends ZipEntry> entries = sourceZip.entries(); 
-                 entries.hasMoreElements();) {
-                ZipEntry entry = entries.nextElement();
-                ZipEntry newEntry = new ZipEntry(entry.getName());
-                
-                // Preserve original entry metadata
-                newEntry.setTime(entry.getTime());
-                newEntry.setComment(entry.getComment());
-                if (entry.getExtra() != null) {
-                    newEntry.setExtra(entry.getExtra());
-                }
+    /**
+     * The last build of the same pack with the same policy, if its variants are still cached. Entries
+     * whose CRC and size did not change are copied from it instead of being read and encoded again.
+     * For the lite tier, a texture and its .mcmeta also need their counterpart unchanged.
+     */
+    private VariantEncoder.Reuse previousBuild(File originalPack, String sourceHash, String policy,
+                                               Map<File, String> labels, Map<String, String> manifest, LiteTier tier) {
+        String previousSource = index.findPreviousSource(originalPack.getAbsolutePath(), policy, sourceHash);
+        if (previousSource == null || !manifestFile(previousSource).exists()) {
+            return VariantEncoder.Reuse.NONE;
+        }
+
+        // Copied entries keep the level they were deflated with, so only reuse variants whose calibrated
+        // levels are the same as now
+        Calibration previousCalibration = calibrator.get(previousSource);
+        Calibration calibration = calibrator.get(sourceHash);
+        Map<File, File> previous = new HashMap<>();
+        labels.forEach((file, label) -> {
+            VariantIndex.Variant variant = index.get(variantName(previousSource, policy, label));
+            if (variant != null && categoryLevels(previousCalibration, label).equals(categoryLevels(calibration, label))) {
+                previous.put(file, cacheDir.resolve(variant.fileName()).toFile());
+            }
+        });
+        try {
+            Map<String, String> previousManifest = SourceManifest.read(manifestFile(previousSource));
+            Set<String> unchanged = SourceManifest.unchanged(previousManifest, manifest);
+            if (tier != null) {
+                Set<String> changed = SourceManifest.changed(previousManifest, manifest);
+                unchanged.removeIf(name -> changed.contains(LiteTier.related(name)));
+            }
+            return previous.isEmpty() ? VariantEncoder.Reuse.NONE : new VariantEncoder.Reuse(unchanged, previous);
+        } catch (IOException e) {
+            logger.fine("Ignoring previous build of " + originalPack.getName() + ": " + e.getMessage());
+            return VariantEncoder.Reuse.NONE;
+        }
+    }
+
+    /**
+     * A new version of a pack keeps the calibration of the previous one: its content mix rarely changes
+     * between edits, and with the same levels the previous variants' entries can be reused as they are.
+     */
+    private Calibration calibrationFor(File originalPack, String sourceHash, String policy, JobContext context) throws IOException {
+        Calibration calibration = calibrator.get(sourceHash);
+        if (calibration != null) {
+            return calibration;
+        }
+        String previousSource = index.findPreviousSource(originalPack.getAbsolutePath(), policy, sourceHash);
+        Calibration previous = previousSource != null ? calibrator.get(previousSource) : null;
+        if (previous != null) {
+            calibrator.put(sourceHash, previous);
+            return previous;
+        }
+        return calibrator.calibrate(originalPack, sourceHash, context);
+    }
 
-                zos.putNextEntry(newEntry);
+    /**
+     * Calibrated deflate level per category for a level variant; empty (the variant's own level for
+     * everything) without a calibration and for the optimized copy. The lite tier uses high levels.
+     */
+    private Map<CompressionPolicy.Category, Integer> categoryLevels(Calibration calibration, String label) {
+        if (calibration == null || label.equals(OPTIMIZED_LABEL)) {
+            return Map.of();
+        }
+        CompressionLevel level = label.startsWith(LITE_LABEL) ? CompressionLevel.HIGH : CompressionLevel.fromString(label);
+        return calibration.levelsFor(level, calibrator.getTolerance());
+    }
 
-                if (!entry.isDirectory()) {
-                    try (InputStream in = new BufferedInputStream(
-                            sourceZip.getInputStream(entry), BUFFER_SIZE)) {
-                        int len;
-                        while ((len = in.read(buffer)) > 0) {
-                            zos.write(buffer, 0, len);
+    private File variantFile(String sourceHash, String policy, String label) {
+        return cacheDir.resolve(variantName(sourceHash, policy, label) + ".zip").toFile();
+    }
+
+    /**
+     * Records freshly built variants with their own SHA-1, so sending one never has to hash it.
+     */
+    private void register(File originalPack, String sourceHash, String policy, Map<File, String> labels) throws IOException {
+        for (Map.Entry<File, String> entry : labels.entrySet()) {
+            File file = entry.getKey();
+            String hash = plugin.getHashCache().getOrCalculateHash(file);
+            if (hash == null) {
+                throw new IOException("Failed to hash " + file.getName());
+            }
+            index.put(new VariantIndex.Variant(variantName(sourceHash, policy, entry.getValue()), sourceHash,
+                originalPack.getAbsolutePath(), policy, entry.getValue(), hash, file.length(), System.currentTimeMillis()));
+        }
+        index.save();
+    }
+
+    private void logReports(File originalPack, File optimizedFile, VariantEncoder.Result result) {
+        if (result.optimization() != null) {
+            result.optimization().setPackSizes(originalPack.length(), optimizedFile.length());
+            logger.info("Optimized " + originalPack.getName() + ":");
+            result.optimization().format().forEach(line -> logger.info("  " + line));
+        }
+        result.reports().forEach((file, report) -> {
+            if (!file.equals(optimizedFile)) {
+                logger.info("Compression report for " + file.getName() + ":");
+                report.format().forEach(logger::info);
+            }
+        });
+    }
+
+    public boolean isLiteTierEnabled() {
+        return plugin.getConfig().getBoolean("compression.enabled", true)
+            && plugin.getConfig().getBoolean("compression.tiers.lite.enabled", false);
+    }
+
+    /**
+     * The lite tier of a pack, built in the background if missing. Completes with null if the tier is
+     * disabled or could not be built; a build that failed is not tried again for the same source and
+     * settings until the plugin restarts.
+     */
+    public CompletableFuture<File> getLiteTier(File originalPack) {
+        if (!isLiteTierEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String sourceHash = plugin.getHashCache().getOrCalculateHash(originalPack);
+        if (sourceHash == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        LiteTier tier = LiteTier.fromConfig(plugin);
+        String policy = policyKey();
+        String label = LITE_LABEL + tier.fingerprint();
+        VariantIndex.Variant variant = findVariant(sourceHash, policy, label);
+        if (variant != null) {
+            return CompletableFuture.completedFuture(cacheDir.resolve(variant.fileName()).toFile());
+        }
+        String name = variantName(sourceHash, policy, label);
+        if (failedTiers.contains(name)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> active = activeTiers.putIfAbsent(sourceHash, future);
+        if (active != null) {
+            return active;
+        }
+        String packName = originalPack.getName();
+        try {
+            plugin.getJobManager().submit(JobType.COMPRESS, "Build lite tier of " + packName, "server",
+                "tier:" + sourceHash, context -> encodeLiteTier(originalPack, sourceHash, policy, label, tier, context))
+                .getResult().whenComplete((file, error) -> {
+                    activeTiers.remove(sourceHash, future);
+                    if (error != null) {
+                        if (!(error instanceof CancellationException) && !(error.getCause() instanceof CancellationException)) {
+                            failedTiers.add(name);
                         }
+                        logger.warning("Failed to build lite tier of " + packName + ": " + error.getMessage());
+                        future.complete(null);
+                    } else {
+                        future.complete(file);
                     }
-                }
-                zos.closeEntry();
-                
-                processedEntries++;
-                if (processedEntries % 50 == 0 || processedEntries == totalEntries) {
-                    logger.info(String.format("Compressing %s: %d/%d entries (%.1f%%)", 
-                        originalPack.getName(), processedEntries, totalEntries,
-                        (processedEntries * 100.0) / totalEntries));
+                });
+        } catch (RejectedExecutionException e) {
+            activeTiers.remove(sourceHash, future);
+            logger.warning("Skipping lite tier of " + packName + ": " + e.getMessage());
+            future.complete(null);
+        }
+        return future;
+    }
+
+    /**
+     * Writes the lite tier from the original pack, optimized like the other variants and deflated at
+     * the pack's high levels. Entries the tier leaves alone are copied from its previous build.
+     */
+    private File encodeLiteTier(File originalPack, String sourceHash, String policy, String label, LiteTier tier,
+                                JobContext context) throws IOException {
+        return build(sourceHash, () -> {
+            Calibration calibration = isCalibrationEnabled() ? calibrationFor(originalPack, sourceHash, policy, context) : null;
+            File file = variantFile(sourceHash, policy, label);
+            List<VariantEncoder.Target> targets = List.of(new VariantEncoder.Target(file,
+                CompressionLevel.HIGH.getLevel(), categoryLevels(calibration, label)));
+            Map<File, String> labels = Map.of(file, label);
+
+            Map<String, String> manifest = SourceManifest.of(plugin.getZipIndexes().get(originalPack));
+            VariantEncoder.Reuse reuse = previousBuild(originalPack, sourceHash, policy, labels, manifest, tier);
+            PackPruner pruner = isPruningEnabled() ? prune(originalPack, context) : null;
+            VariantEncoder.Result result = encoder.encode(originalPack, targets, isOptimizationEnabled(),
+                VariantEncoder.Transform.chain(pruner, tier), reuse, context);
+            logger.info("Lite tier of " + originalPack.getName() + ": " + FileUtil.formatSize(originalPack.length())
+                + " -> " + FileUtil.formatSize(file.length()));
+            tier.format().forEach(line -> logger.info("  " + line));
+            result.reports().get(file).format().forEach(logger::info);
+            SourceManifest.write(manifest, manifestFile(sourceHash));
+            register(originalPack, sourceHash, policy, labels);
+            return file;
+        });
+    }
+
+    public boolean isCalibrationEnabled() {
+        return plugin.getConfig().getBoolean("compression.calibration.enabled", true);
+    }
+
+    public double getCalibrationTolerance() {
+        return calibrator.getTolerance();
+    }
+
+    /**
+     * The calibration of a pack, trial-compressing it first if it has none or {@code rerun} is set.
+     * A new calibration applies to variants built from then on.
+     */
+    public Calibration calibratePack(File originalPack, boolean rerun, JobContext context) throws IOException {
+        String sourceHash = plugin.getHashCache().getOrCalculateHash(originalPack);
+        if (sourceHash == null) {
+            throw new IOException("Failed to hash " + originalPack.getName());
+        }
+        return build(sourceHash, () -> {
+            Calibration calibration = rerun ? null : calibrator.get(sourceHash);
+            return calibration != null ? calibration : calibrator.calibrate(originalPack, sourceHash, context);
+        });
+    }
+
+    public boolean isOptimizationEnabled() {
+        return plugin.getConfig().getBoolean("optimization.enabled", true);
+    }
+
+    /**
+     * Rebuilds the optimized copy of a pack on its own and reports what it saved.
+     */
+    public OptimizationReport optimizePack(File originalPack, JobContext context) throws IOException {
+        String sourceHash = plugin.getHashCache().getOrCalculateHash(originalPack);
+        if (sourceHash == null) {
+            throw new IOException("Failed to hash " + originalPack.getName());
+        }
+        return build(sourceHash, () -> {
+            String policy = policyKey();
+            File optimizedFile = variantFile(sourceHash, policy, OPTIMIZED_LABEL);
+            PackPruner pruner = isPruningEnabled() ? prune(originalPack, context) : null;
+            VariantEncoder.Result result = encoder.encode(originalPack,
+                List.of(new VariantEncoder.Target(optimizedFile, Deflater.BEST_COMPRESSION)), true, pruner,
+                VariantEncoder.Reuse.NONE, context);
+            logReports(originalPack, optimizedFile, result);
+            SourceManifest.write(SourceManifest.of(plugin.getZipIndexes().get(originalPack)), manifestFile(sourceHash));
+            register(originalPack, sourceHash, policy, Map.of(optimizedFile, OPTIMIZED_LABEL));
+            return result.optimization();
+        });
+    }
+
+    public boolean isPruningEnabled() {
+        return plugin.getConfig().getBoolean("optimization.prune.enabled", false);
+    }
+
+    /**
+     * Finds the unreachable assets of a pack with the configured allow-list.
+     */
+    private PackPruner prune(File originalPack, JobContext context) throws IOException {
+        PackPruner pruner = PackPruner.fromConfig(plugin);
+        pruner.analyze(originalPack, plugin.getZipIndexes().get(originalPack), context);
+        return pruner;
+    }
+
+    /**
+     * Builds the pruned copy of a pack, optimized and without its unreachable assets, whether or not
+     * pruning is enabled for the variants sent to players. The returned pruner lists what was dropped.
+     */
+    public PackPruner prunePack(File originalPack, JobContext context) throws IOException {
+        String sourceHash = plugin.getHashCache().getOrCalculateHash(originalPack);
+        if (sourceHash == null) {
+            throw new IOException("Failed to hash " + originalPack.getName());
+        }
+        return build(sourceHash, () -> {
+            String policy = policyKey();
+            String label = PRUNED_LABEL + "-" + PackPruner.fromConfig(plugin).fingerprint();
+            File prunedFile = variantFile(sourceHash, policy, label);
+            PackPruner pruner = prune(originalPack, context);
+            encoder.encode(originalPack, List.of(new VariantEncoder.Target(prunedFile, Deflater.BEST_COMPRESSION)),
+                true, pruner, VariantEncoder.Reuse.NONE, context);
+            pruner.setPackSizes(originalPack.length(), prunedFile.length());
+            register(originalPack, sourceHash, policy, Map.of(prunedFile, label));
+            return pruner;
+        });
+    }
+
+    /**
+     * Picks the variant to send to this player. If the variant for their connection is not built yet,
+     * building starts in the background and the original pack is sent meanwhile. This runs on the main
+     * thread and never reads the pack: until its hash is cached, it is hashed in the background and
+     * the original is sent without one.
+     */
+    public PackVariant selectVariant(Player player, File originalPack) {
+        String sourceHash = plugin.getHashCache().getCachedHash(originalPack);
+        if (sourceHash == null) {
+            plugin.getHashCache().refreshInBackground(List.of(originalPack));
+            return new PackVariant(originalPack, null, null, false);
+        }
+        if (!plugin.getConfig().getBoolean("compression.enabled", true)) {
+            return originalVariant(originalPack, sourceHash);
+        }
+
+        // Players measured below the lite threshold get the lite tier; until it is built, the high level
+        if (isLiteTierEnabled()) {
+            OptionalDouble throughput = estimateThroughput(player);
+            if (throughput.isPresent() && throughput.getAsDouble() / 1024
+                    < plugin.getConfig().getDouble("compression.tiers.lite.max-throughput", 256)) {
+                File lite = getLiteTier(originalPack).getNow(null);
+                PackVariant variant = lite != null ? indexedVariant(lite, CompressionLevel.HIGH, true) : null;
+                if (variant != null) {
+                    return variant;
                 }
             }
         }
 
-        // Atomic rename of temp file to final file
-        try {
-            Files.move(tempFile.toPath(), compressedFile.toPath(), 
-                      StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-        } catch (AtomicMoveNotSupportedException e) {
-            // Fallback to non-atomic move if atomic is not supported
-            Files.move(tempFile.toPath(), compressedFile.toPath(), 
-                      StandardCopyOption.REPLACE_EXISTING);
+        CompressionLevel level = getOptimalCompressionLevel(player);
+        CompletableFuture<File> variant = getCompressedPack(originalPack, level);
+        File variantFile = variant.getNow(originalPack);
+        if (variantFile == null || variantFile.equals(originalPack)) {
+            return originalVariant(originalPack, sourceHash);
         }
 
-        return compressedFile;
+        PackVariant indexed = indexedVariant(variantFile, level, false);
+        return indexed != null ? indexed : originalVariant(originalPack, sourceHash);
+    }
+
+    private PackVariant indexedVariant(File variantFile, CompressionLevel level, boolean lite) {
+        VariantIndex.Variant indexed = index.get(variantFile.getName().replaceFirst("[.]zip$", ""));
+        String hash = indexed != null ? indexed.sha1() : plugin.getHashCache().getCachedHash(variantFile);
+        return hash != null ? new PackVariant(variantFile, FileUtil.fromHex(hash), level, lite) : null;
+    }
+
+    private static PackVariant originalVariant(File originalPack, String sourceHash) {
+        return new PackVariant(originalPack, FileUtil.fromHex(sourceHash), null, false);
     }
 
     public CompressionLevel getOptimalCompressionLevel(Player player) {
@@ -190,7 +598,19 @@ public class PackCompressor {
             return CompressionLevel.fromString(defaultLevel);
         }
 
-        // Determine compression level based on player's ping and configured thresholds
+        // Measured download throughput decides; ping says little about bandwidth and is only used until
+        // the player (or someone on their network) has downloaded a pack
+        OptionalDouble throughput = estimateThroughput(player);
+        if (throughput.isPresent()) {
+            double kilobytesPerSecond = throughput.getAsDouble() / 1024;
+            if (kilobytesPerSecond >= plugin.getConfig().getDouble("compression.throughput.fast", 4096)) {
+                return CompressionLevel.LOW;
+            } else if (kilobytesPerSecond >= plugin.getConfig().getDouble("compression.throughput.slow", 1024)) {
+                return CompressionLevel.MEDIUM;
+            }
+            return CompressionLevel.HIGH;
+        }
+
         int ping = player.getPing();
         int excellentThreshold = plugin.getConfig().getInt("compression.thresholds.excellent", 50);
         int goodThreshold = plugin.getConfig().getInt("compression.thresholds.good", 150);
@@ -204,43 +624,114 @@ public class PackCompressor {
         }
     }
 
-    private void cleanupOldCache() {
+    private OptionalDouble estimateThroughput(Player player) {
+        InetSocketAddress address = player.getAddress();
+        return plugin.getThroughputTracker().estimate(player.getUniqueId(), address != null ? address.getAddress() : null);
+    }
+
+    /**
+     * Queues a sweep of the compression cache: variants whose source is no longer any registered,
+     * downloaded or composite pack are deleted, as are variants unused for {@code cache.expiry-days}
+     * and files the index does not know about.
+     */
+    public void collectGarbage() {
         try {
-            int cacheDuration = plugin.getConfig().getInt("cache.expiry-days", 7);
-            long expiryTime = System.currentTimeMillis() - 
-                            (cacheDuration * 24 * 60 * 60 * 1000L);
-
-            Files.walk(cacheDir)
-                .filter(path -> Files.isRegularFile(path))
-                .forEach(path -> {
-                    try {
-                        if (Files.getLastModifiedTime(path).toMillis() < expiryTime) {
-                            Files.delete(path);
-                            logger.fine("Deleted expired cache file: " + path.getFileName());
-                        }
-                    } catch (IOException e) {
-                        logger.warning("Failed to check/delete cached file: " + e.getMessage());
-                    }
-                });
-        } catch (IOException e) {
-            logger.warning("Failed to clean compression cache: " + e.getMessage());
+            plugin.getJobManager().submit(JobType.CLEANUP, "Clean up compression cache", "server", "compress-gc", context -> {
+                sweep(context);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            logger.fine("Compression cache cleanup skipped: " + e.getMessage());
         }
     }
 
-    public void shutdown() {
-        // Cancel any active compressions
-        activeCompressions.values().forEach(future -> future.cancel(true));
-        activeCompressions.clear();
+    private void sweep(JobContext context) throws IOException {
+        List<File> sources = new ArrayList<>();
+        plugin.getResourcePacks().values().stream().filter(Objects::nonNull).forEach(sources::add);
+        for (String dir : List.of("cache", "composites")) {
+            File[] files = new File(plugin.getDataFolder(), dir).listFiles((parent, name) -> name.endsWith(".zip"));
+            if (files != null) {
+                sources.addAll(Arrays.asList(files));
+            }
+        }
 
-        // Shutdown executor
-        compressionExecutor.shutdown();
-        try {
-            if (!compressionExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                compressionExecutor.shutdownNow();
+        Set<String> referenced = new HashSet<>();
+        for (File source : sources) {
+            context.checkCancelled();
+            String hash = plugin.getHashCache().getOrCalculateHash(source);
+            if (hash != null) {
+                referenced.add(hash);
             }
-        } catch (InterruptedException e) {
-            compressionExecutor.shutdownNow();
-            Thread.currentThread().interrupt();
         }
+
+        // The latest build of a pack that still exists is kept even once the pack changed, so the next
+        // build can copy its unchanged entries (e.g. the pack was edited while the server was down)
+        Map<String, VariantIndex.Variant> latest = new HashMap<>();
+        for (VariantIndex.Variant variant : index.getVariants()) {
+            if (!variant.pack().isEmpty() && new File(variant.pack()).exists()) {
+                latest.merge(variant.pack() + "\n" + variant.policy(), variant,
+                    (a, b) -> a.lastUsed() >= b.lastUsed() ? a : b);
+            }
+        }
+        Set<String> latestSources = new HashSet<>();
+        latest.values().forEach(variant -> latestSources.add(variant.source()));
+
+        long expiry = System.currentTimeMillis() - plugin.getConfig().getInt("cache.expiry-days", 7) * 24 * 60 * 60 * 1000L;
+        int removed = 0;
+        Set<String> keptSources = new HashSet<>();
+        for (VariantIndex.Variant variant : index.getVariants()) {
+            boolean inUse = referenced.contains(variant.source()) || latestSources.contains(variant.source());
+            if (inUse && variant.lastUsed() >= expiry) {
+                keptSources.add(variant.source());
+                continue;
+            }
+            if (isBuilding(variant.source())) {
+                keptSources.add(variant.source());
+                continue;
+            }
+            index.remove(variant.name());
+            Files.deleteIfExists(cacheDir.resolve(variant.fileName()));
+            removed++;
+        }
+
+        // Leftovers of older cache layouts and interrupted builds
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String variantName = name.replaceFirst("[.](?:zip|entries)(?:[.]tmp)?$", "");
+                if (name.equals("index.yml") || name.equals("calibration.yml") || index.get(variantName) != null
+                        || (name.endsWith(".entries") && keptSources.contains(variantName))
+                        || isBuilding(variantName.split("-")[0])) {
+                    continue;
+                }
+                Files.deleteIfExists(file);
+                removed++;
+            }
+        }
+
+        Set<String> calibrated = new HashSet<>(referenced);
+        calibrated.addAll(keptSources);
+        calibrated.addAll(building.keySet());
+        calibrator.retain(calibrated);
+
+        index.save();
+        if (removed > 0) {
+            logger.info("Removed " + removed + " unused file(s) from the compression cache");
+        }
+    }
+
+    /**
+     * Whether a build of this source is running now, in any job: background variants, the lite tier,
+     * or an admin's optimize, prune or calibrate command.
+     */
+    private boolean isBuilding(String sourceHash) {
+        return building.containsKey(sourceHash);
+    }
+
+    public void shutdown() {
+        // Running compressions are cancelled by the job manager; just forget about them
+        activeCompressions.clear();
+        activeTiers.clear();
+        index.save();
     }
 } 
\ No newline at end of file
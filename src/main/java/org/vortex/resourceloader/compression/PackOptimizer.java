@@ -0,0 +1,110 @@
+package org.vortex.resourceloader.compression;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.vortex.resourceloader.Resourceloader;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Lossless size reductions for a pack that is about to be sent: system junk and empty directories
+ * are dropped, JSON and mcmeta files are minified and PNGs are recompressed. Applied per entry by
+ * {@link VariantEncoder}; the original pack is never modified, so it stays the one to edit.
+ */
+public class PackOptimizer {
+    private final Resourceloader plugin;
+    private final ObjectMapper mapper;
+    private final PngOptimizer pngOptimizer;
+
+    public PackOptimizer(Resourceloader plugin) {
+        this.plugin = plugin;
+        // Keep numbers exactly as written, "1.50" must not turn into "1.5E0" or lose digits
+        this.mapper = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .setNodeFactory(JsonNodeFactory.withExactBigDecimals(true));
+        this.pngOptimizer = new PngOptimizer();
+    }
+
+    public static boolean isJunk(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        String fileName = lower.substring(lower.lastIndexOf('/', lower.length() - 2) + 1);
+        return lower.startsWith("__macosx/") || lower.contains("/__macosx/")
+            || fileName.equals(".ds_store") || fileName.equals("thumbs.db") || fileName.equals("desktop.ini");
+    }
+
+    /**
+     * The entries worth keeping: system junk and directory entries with no files below them are
+     * dropped and counted in the report.
+     */
+    public List<ZipEntry> selectEntries(ZipFile sourceZip, OptimizationReport report) {
+        List<ZipEntry> entries = new ArrayList<>();
+        Set<String> usedDirectories = new HashSet<>();
+        for (ZipEntry entry : Collections.list(sourceZip.entries())) {
+            if (isJunk(entry.getName())) {
+                report.recordJunk(Math.max(0, entry.getSize()));
+                continue;
+            }
+            if (!entry.isDirectory()) {
+                String name = entry.getName();
+                for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1)) {
+                    usedDirectories.add(name.substring(0, slash + 1));
+                }
+            }
+            entries.add(entry);
+        }
+        entries.removeIf(entry -> {
+            if (entry.isDirectory() && !usedDirectories.contains(entry.getName())) {
+                report.recordEmptyDirectory();
+                return true;
+            }
+            return false;
+        });
+        return entries;
+    }
+
+    /**
+     * Optimized content of one entry, or the data itself when there is nothing to gain.
+     */
+    public byte[] optimizeEntry(String name, byte[] data, OptimizationReport report) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".json") || lower.endsWith(".mcmeta")) {
+            if (!plugin.getConfig().getBoolean("optimization.minify-json", true)) {
+                return data;
+            }
+            byte[] minified = minify(data);
+            report.recordJson(data.length, minified.length);
+            return minified;
+        }
+        if (lower.endsWith(".png")) {
+            if (!plugin.getConfig().getBoolean("optimization.optimize-png", true)) {
+                return data;
+            }
+            byte[] optimized = pngOptimizer.optimize(data);
+            report.recordPng(data.length, optimized.length);
+            return optimized;
+        }
+        return data;
+    }
+
+    /**
+     * Compact form of the JSON, or the original if it does not parse (comments, trailing commas)
+     * since the client may still accept what a strict parser rejects.
+     */
+    private byte[] minify(byte[] json) {
+        try {
+            JsonNode tree = mapper.readTree(json);
+            if (tree == null) {
+                return json;
+            }
+            byte[] minified = mapper.writeValueAsBytes(tree);
+            return minified.length < json.length ? minified : json;
+        } catch (IOException e) {
+            return json;
+        }
+    }
+}
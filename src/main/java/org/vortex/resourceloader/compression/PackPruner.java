@@ -0,0 +1,281 @@
+package org.vortex.resourceloader.compression;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobContext;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.RawZipReader;
+import org.vortex.resourceloader.util.ZipIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Leaves out textures, models and sounds that nothing in the pack can reach. Everything the game
+ * loads by path is a root: blockstates, item definitions, fonts, atlases, equipment, particles,
+ * sounds.json and every other asset type, plus all of the minecraft namespace, since those files
+ * override vanilla ones. Roots and the models they reach are scanned for resource locations, which
+ * mark the model, texture or sound they may name; a texture's .mcmeta goes with it. Atlas directory
+ * sources keep their whole texture folder, and particle sprites are looked up in
+ * {@code textures/particle/}.
+ *
+ * <p>Matching is deliberately generous, a kept orphan costs bytes while a dropped texture breaks
+ * the pack. Assets that only plugins refer to, such as models named by an item_model component,
+ * are kept with the {@code optimization.prune.keep} patterns.
+ */
+public class PackPruner implements VariantEncoder.Transform {
+    private static final Set<String> PRUNABLE_TYPES = Set.of("textures", "models", "sounds");
+
+    private final List<String> keepPatterns;
+    private final List<Pattern> allowList;
+    private final ObjectMapper mapper;
+    private final Set<String> dropped;
+    private final Map<String, long[]> droppedByType;
+    private final List<RawZipReader.Entry> droppedEntries;
+    private int candidates;
+    private long originalPackSize;
+    private long prunedPackSize;
+
+    public PackPruner(List<String> keepPatterns) {
+        this.keepPatterns = List.copyOf(keepPatterns);
+        this.allowList = keepPatterns.stream().map(FileUtil::globPattern).toList();
+        this.mapper = new ObjectMapper();
+        this.dropped = new HashSet<>();
+        this.droppedByType = new TreeMap<>();
+        this.droppedEntries = new ArrayList<>();
+    }
+
+    public static PackPruner fromConfig(Resourceloader plugin) {
+        return new PackPruner(plugin.getConfig().getStringList("optimization.prune.keep"));
+    }
+
+    /**
+     * Short fingerprint of the allow-list, part of the compression policy.
+     */
+    public String fingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return FileUtil.toHex(digest.digest(String.join("\n", keepPatterns).getBytes(StandardCharsets.UTF_8))).substring(0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(keepPatterns.hashCode());
+        }
+    }
+
+    /**
+     * Finds what is reachable in {@code pack}; must run before the pruner is used as a transform.
+     */
+    public void analyze(File pack, ZipIndex index, JobContext context) throws IOException {
+        Set<String> names = new HashSet<>();
+        for (RawZipReader.Entry entry : index.getEntries()) {
+            if (!entry.name().endsWith("/")) {
+                names.add(entry.name());
+            }
+        }
+
+        Set<String> reachable = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        for (String name : names) {
+            if (!isPrunable(name) || allowList.stream().anyMatch(pattern -> pattern.matcher(name).matches())) {
+                reachable.add(name);
+                queue.add(name);
+            }
+        }
+
+        try (ZipFile zip = new ZipFile(pack)) {
+            while (!queue.isEmpty()) {
+                context.checkCancelled();
+                String name = queue.poll();
+                if (!name.startsWith("assets/") || !name.endsWith(".json")) {
+                    continue;
+                }
+                JsonNode json = read(zip, name);
+                if (json == null) {
+                    continue;
+                }
+                for (String target : references(name, json, names)) {
+                    if (reachable.add(target)) {
+                        queue.add(target);
+                    }
+                }
+            }
+        }
+
+        for (RawZipReader.Entry entry : index.getEntries()) {
+            String name = entry.name();
+            if (name.endsWith("/") || !isPrunable(name)) {
+                continue;
+            }
+            candidates++;
+            String texture = name.endsWith(".png.mcmeta") ? name.substring(0, name.length() - ".mcmeta".length()) : null;
+            if (reachable.contains(name) || (texture != null && reachable.contains(texture))) {
+                continue;
+            }
+            dropped.add(name);
+            droppedEntries.add(entry);
+            long[] totals = droppedByType.computeIfAbsent(name.split("/", 4)[2], key -> new long[2]);
+            totals[0]++;
+            totals[1] += entry.size();
+        }
+        droppedEntries.sort(Comparator.comparingLong(RawZipReader.Entry::size).reversed()
+            .thenComparing(RawZipReader.Entry::name));
+    }
+
+    /**
+     * Textures, models and sounds outside the minecraft namespace; only they can be left out.
+     */
+    private static boolean isPrunable(String name) {
+        String[] parts = name.split("/", 4);
+        return parts.length == 4 && parts[0].equals("assets") && !parts[1].equals("minecraft")
+            && PRUNABLE_TYPES.contains(parts[2]);
+    }
+
+    private JsonNode read(ZipFile zip, String name) {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return mapper.readTree(in);
+        } catch (IOException e) {
+            // Invalid JSON references nothing the game could load
+            return null;
+        }
+    }
+
+    /**
+     * Entries of the pack that a JSON file may refer to.
+     */
+    private static Set<String> references(String name, JsonNode json, Set<String> names) {
+        String[] parts = name.split("/", 4);
+        String namespace = parts[1];
+        String type = parts.length == 4 ? parts[2] : "";
+        Set<String> found = new HashSet<>();
+
+        if (type.equals("atlases")) {
+            for (JsonNode source : json.path("sources")) {
+                String sourceType = source.path("type").asText("").replaceFirst("^minecraft:", "");
+                if (sourceType.equals("directory") && source.path("source").isTextual()) {
+                    // Directory sources stitch that folder of every namespace
+                    String folder = "/textures/" + source.path("source").asText() + "/";
+                    for (String candidate : names) {
+                        if (candidate.startsWith("assets/") && candidate.indexOf(folder) == candidate.indexOf('/', 7)) {
+                            found.add(candidate);
+                        }
+                    }
+                }
+            }
+        } else if (type.equals("equipment")) {
+            // Layers name textures relative to their layer folder
+            json.path("layers").fields().forEachRemaining(layer -> {
+                for (JsonNode entry : layer.getValue()) {
+                    if (entry.path("texture").isTextual()) {
+                        addLocation(found, names, namespace, entry.path("texture").asText(),
+                            "textures/entity/equipment/" + layer.getKey() + "/", ".png");
+                    }
+                }
+            });
+        } else if (type.equals("particles")) {
+            // Particle sprites are named relative to the particle texture folder
+            for (JsonNode texture : json.path("textures")) {
+                if (texture.isTextual()) {
+                    addLocation(found, names, namespace, texture.asText(), "textures/particle/", ".png");
+                }
+            }
+        }
+
+        collectStrings(json, value -> {
+            if (value.isEmpty() || value.startsWith("#") || value.indexOf(' ') >= 0) {
+                return;
+            }
+            addLocation(found, names, namespace, value, "models/", ".json");
+            addLocation(found, names, namespace, value, "textures/", ".png");
+            addLocation(found, names, namespace, value, "textures/", "");
+            addLocation(found, names, namespace, value, "sounds/", ".ogg");
+        });
+        return found;
+    }
+
+    /**
+     * Marks the entry a resource location names, if the pack has it. Locations without a namespace
+     * are tried in minecraft, as the game does, and in the namespace of the referring file, as
+     * sounds.json does.
+     */
+    private static void addLocation(Set<String> found, Set<String> names, String ownNamespace, String location,
+                                    String folder, String extension) {
+        int colon = location.indexOf(':');
+        String path = location.substring(colon + 1);
+        List<String> namespaces = colon >= 0 ? List.of(location.substring(0, colon)) : List.of("minecraft", ownNamespace);
+        for (String namespace : namespaces) {
+            String candidate = "assets/" + namespace + "/" + folder + path + extension;
+            if (names.contains(candidate)) {
+                found.add(candidate);
+            }
+        }
+    }
+
+    private static void collectStrings(JsonNode node, Consumer<String> consumer) {
+        if (node.isTextual()) {
+            consumer.accept(node.asText());
+        } else if (node.isContainerNode()) {
+            node.forEach(child -> collectStrings(child, consumer));
+        }
+    }
+
+    @Override
+    public boolean keep(String name) {
+        return !dropped.contains(name);
+    }
+
+    @Override
+    public byte[] apply(ZipFile source, String name, byte[] data) {
+        return data;
+    }
+
+    void setPackSizes(long original, long pruned) {
+        this.originalPackSize = original;
+        this.prunedPackSize = pruned;
+    }
+
+    public int getDroppedCount() {
+        return droppedEntries.size();
+    }
+
+    public long getDroppedBytes() {
+        return droppedEntries.stream().mapToLong(RawZipReader.Entry::size).sum();
+    }
+
+    /**
+     * @param limit dropped entries to list by name, largest first
+     */
+    public List<String> format(int limit) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Unreachable: %d of %d textures, models and sounds (%s uncompressed)",
+            getDroppedCount(), candidates, FileUtil.formatSize(getDroppedBytes())));
+        droppedByType.forEach((type, totals) ->
+            lines.add(String.format("  %s: %d entries, %s", type, totals[0], FileUtil.formatSize(totals[1]))));
+        if (!droppedEntries.isEmpty()) {
+            lines.add("Dropped:");
+            droppedEntries.stream().limit(limit).forEach(entry ->
+                lines.add("  " + entry.name() + " " + FileUtil.formatSize(entry.size())));
+            if (droppedEntries.size() > limit) {
+                lines.add("  ... and " + (droppedEntries.size() - limit) + " more");
+            }
+        }
+        if (prunedPackSize > 0) {
+            double percent = originalPackSize > 0 ? (originalPackSize - prunedPackSize) * 100.0 / originalPackSize : 0;
+            lines.add(String.format("Pack size: %s -> %s (%.1f%% smaller, optimized as well)",
+                FileUtil.formatSize(originalPackSize), FileUtil.formatSize(prunedPackSize), percent));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,295 @@
+package org.vortex.resourceloader.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Lossless PNG recompression in plain Java: drops ancillary chunks the client never reads,
+ * re-filters the scanlines and re-deflates the image data at maximum level. Pixels are untouched;
+ * anything unusual (APNG, unknown critical chunks, corrupt data) is returned as it was.
+ */
+public class PngOptimizer {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    // Keeps pixel buffers of 4096x4096 RGBA textures and below, larger images are only stripped
+    private static final long MAX_RAW_SIZE = 64L * 1024 * 1024;
+    // tRNS is ancillary but carries transparency, so it is the one optional chunk that must survive
+    private static final Set<String> KEPT_CHUNKS = Set.of("IHDR", "PLTE", "tRNS", "IDAT", "IEND");
+    private static final Set<String> ANIMATION_CHUNKS = Set.of("acTL", "fcTL", "fdAT");
+
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_SUB = 1;
+    private static final int FILTER_UP = 2;
+    private static final int FILTER_AVERAGE = 3;
+    private static final int FILTER_PAETH = 4;
+
+    /**
+     * Returns the optimized image, or the input itself if nothing smaller could be produced.
+     */
+    public byte[] optimize(byte[] png) {
+        try {
+            byte[] optimized = rewrite(png);
+            return optimized != null && optimized.length < png.length ? optimized : png;
+        } catch (RuntimeException | DataFormatException e) {
+            return png;
+        }
+    }
+
+    private byte[] rewrite(byte[] png) throws DataFormatException {
+        if (png.length < SIGNATURE.length || !ByteBuffer.wrap(png, 0, SIGNATURE.length).equals(ByteBuffer.wrap(SIGNATURE))) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(png);
+        buffer.position(SIGNATURE.length);
+        byte[] header = null;
+        byte[] palette = null;
+        byte[] transparency = null;
+        ByteArrayOutputStream imageData = new ByteArrayOutputStream();
+
+        while (buffer.remaining() >= 12) {
+            int length = buffer.getInt();
+            byte[] typeBytes = new byte[4];
+            buffer.get(typeBytes);
+            String type = new String(typeBytes, StandardCharsets.US_ASCII);
+            if (length < 0 || length > buffer.remaining() - 4) {
+                return null;
+            }
+            byte[] data = new byte[length];
+            buffer.get(data);
+            buffer.getInt(); // CRC, recomputed on write
+
+            if (ANIMATION_CHUNKS.contains(type)) {
+                return null;
+            }
+            if (!KEPT_CHUNKS.contains(type) && Character.isUpperCase(type.charAt(0))) {
+                // Unknown critical chunk, rewriting could lose meaning
+                return null;
+            }
+            switch (type) {
+                case "IHDR" -> header = data;
+                case "PLTE" -> palette = data;
+                case "tRNS" -> transparency = data;
+                case "IDAT" -> imageData.write(data, 0, data.length);
+                default -> {
+                }
+            }
+            if (type.equals("IEND")) {
+                break;
+            }
+        }
+        if (header == null || header.length != 13 || imageData.size() == 0) {
+            return null;
+        }
+
+        byte[] compressed = imageData.toByteArray();
+        byte[] refiltered = refilter(header, compressed);
+        if (refiltered != null && refiltered.length < compressed.length) {
+            compressed = refiltered;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(png.length);
+        out.write(SIGNATURE, 0, SIGNATURE.length);
+        writeChunk(out, "IHDR", header);
+        if (palette != null) {
+            writeChunk(out, "PLTE", palette);
+        }
+        if (transparency != null) {
+            writeChunk(out, "tRNS", transparency);
+        }
+        writeChunk(out, "IDAT", compressed);
+        writeChunk(out, "IEND", new byte[0]);
+        return out.toByteArray();
+    }
+
+    /**
+     * Re-encodes the image data with the better of two filter strategies, or null if it cannot be decoded.
+     */
+    private byte[] refilter(byte[] header, byte[] compressed) throws DataFormatException {
+        ByteBuffer ihdr = ByteBuffer.wrap(header);
+        long width = ihdr.getInt() & 0xFFFFFFFFL;
+        long height = ihdr.getInt() & 0xFFFFFFFFL;
+        int bitDepth = header[8];
+        int colorType = header[9];
+        int interlace = header[12];
+        if (interlace != 0) {
+            return null;
+        }
+
+        int channels = switch (colorType) {
+            case 0, 3 -> 1;
+            case 2 -> 3;
+            case 4 -> 2;
+            case 6 -> 4;
+            default -> -1;
+        };
+        if (channels < 0) {
+            return null;
+        }
+        int bitsPerPixel = channels * bitDepth;
+        int bytesPerPixel = Math.max(1, bitsPerPixel / 8);
+        long rowBytes = (width * bitsPerPixel + 7) / 8;
+        long rawSize = height * (rowBytes + 1);
+        if (rawSize > MAX_RAW_SIZE || rawSize == 0) {
+            return null;
+        }
+
+        byte[] raw = inflate(compressed, (int) rawSize);
+        if (raw == null) {
+            return null;
+        }
+        int stride = (int) rowBytes;
+        int rows = (int) height;
+        byte[] pixels = unfilter(raw, rows, stride, bytesPerPixel);
+        if (pixels == null) {
+            return null;
+        }
+
+        // Palette and sub-byte images compress best unfiltered; everything else usually prefers
+        // the per-row minimum-sum heuristic. Trying both and keeping the smaller costs little.
+        byte[] unfiltered = deflate(filterAll(pixels, rows, stride, bytesPerPixel, false));
+        byte[] adaptive = deflate(filterAll(pixels, rows, stride, bytesPerPixel, true));
+        return adaptive.length < unfiltered.length ? adaptive : unfiltered;
+    }
+
+    private static byte[] inflate(byte[] data, int expectedSize) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] raw = new byte[expectedSize];
+            int total = 0;
+            while (total < expectedSize && !inflater.finished()) {
+                int read = inflater.inflate(raw, total, expectedSize - total);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return null;
+                }
+                total += read;
+            }
+            return total == expectedSize ? raw : null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[32768];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(buffer);
+                out.write(buffer, 0, written);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] unfilter(byte[] raw, int rows, int stride, int bpp) {
+        byte[] pixels = new byte[rows * stride];
+        for (int y = 0; y < rows; y++) {
+            int filter = raw[y * (stride + 1)];
+            int in = y * (stride + 1) + 1;
+            int row = y * stride;
+            int prev = row - stride;
+            for (int x = 0; x < stride; x++) {
+                int a = x >= bpp ? pixels[row + x - bpp] & 0xFF : 0;
+                int b = y > 0 ? pixels[prev + x] & 0xFF : 0;
+                int c = x >= bpp && y > 0 ? pixels[prev + x - bpp] & 0xFF : 0;
+                int value = raw[in + x] & 0xFF;
+                pixels[row + x] = (byte) switch (filter) {
+                    case FILTER_NONE -> value;
+                    case FILTER_SUB -> value + a;
+                    case FILTER_UP -> value + b;
+                    case FILTER_AVERAGE -> value + ((a + b) >>> 1);
+                    case FILTER_PAETH -> value + paeth(a, b, c);
+                    default -> throw new IllegalArgumentException("Unknown PNG filter " + filter);
+                };
+            }
+        }
+        return pixels;
+    }
+
+    private static byte[] filterAll(byte[] pixels, int rows, int stride, int bpp, boolean adaptive) {
+        byte[] out = new byte[rows * (stride + 1)];
+        byte[] candidate = new byte[stride];
+        byte[] best = new byte[stride];
+        for (int y = 0; y < rows; y++) {
+            int outRow = y * (stride + 1);
+            if (!adaptive) {
+                out[outRow] = FILTER_NONE;
+                System.arraycopy(pixels, y * stride, out, outRow + 1, stride);
+                continue;
+            }
+
+            long bestSum = Long.MAX_VALUE;
+            int bestFilter = FILTER_NONE;
+            for (int filter = FILTER_NONE; filter <= FILTER_PAETH; filter++) {
+                long sum = applyFilter(pixels, y, stride, bpp, filter, candidate);
+                if (sum < bestSum) {
+                    bestSum = sum;
+                    bestFilter = filter;
+                    System.arraycopy(candidate, 0, best, 0, stride);
+                }
+            }
+            out[outRow] = (byte) bestFilter;
+            System.arraycopy(best, 0, out, outRow + 1, stride);
+        }
+        return out;
+    }
+
+    /**
+     * Filters one row into {@code target} and returns the sum of absolute signed values, the usual
+     * predictor of how well the row will deflate.
+     */
+    private static long applyFilter(byte[] pixels, int y, int stride, int bpp, int filter, byte[] target) {
+        int row = y * stride;
+        int prev = row - stride;
+        long sum = 0;
+        for (int x = 0; x < stride; x++) {
+            int value = pixels[row + x] & 0xFF;
+            int a = x >= bpp ? pixels[row + x - bpp] & 0xFF : 0;
+            int b = y > 0 ? pixels[prev + x] & 0xFF : 0;
+            int c = x >= bpp && y > 0 ? pixels[prev + x - bpp] & 0xFF : 0;
+            byte filtered = (byte) switch (filter) {
+                case FILTER_SUB -> value - a;
+                case FILTER_UP -> value - b;
+                case FILTER_AVERAGE -> value - ((a + b) >>> 1);
+                case FILTER_PAETH -> value - paeth(a, b, c);
+                default -> value;
+            };
+            target[x] = filtered;
+            sum += Math.abs((int) filtered);
+        }
+        return sum;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        ByteBuffer chunk = ByteBuffer.allocate(12 + data.length);
+        chunk.putInt(data.length).put(typeBytes).put(data).putInt((int) crc.getValue());
+        out.write(chunk.array(), 0, chunk.capacity());
+    }
+}
@@ -0,0 +1,77 @@
+package org.vortex.resourceloader.compression;
+
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.RawZipReader;
+import org.vortex.resourceloader.util.ZipIndex;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * CRC-32 and size of every entry of a source pack, as listed in its central directory. Kept next to
+ * the variants built from it, so the next build of the same pack can tell which entries changed
+ * without the old pack, and without reading any entry data.
+ */
+final class SourceManifest {
+    private SourceManifest() {}
+
+    /**
+     * Entry name to {@code "<crc> <size>"}.
+     */
+    static Map<String, String> of(ZipIndex pack) {
+        Map<String, String> entries = new HashMap<>();
+        for (RawZipReader.Entry entry : pack.getEntries()) {
+            if (!entry.name().endsWith("/")) {
+                entries.put(entry.name(), Long.toHexString(entry.crc()) + " " + entry.size());
+            }
+        }
+        return entries;
+    }
+
+    static void write(Map<String, String> entries, File file) throws IOException {
+        File tempFile = new File(file.getParent(), file.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writer.write(entry.getValue() + " " + entry.getKey());
+                writer.newLine();
+            }
+        }
+        FileUtil.replaceFile(tempFile.toPath(), file.toPath());
+    }
+
+    static Map<String, String> read(File file) throws IOException {
+        Map<String, String> entries = new HashMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            String[] parts = line.split(" ", 3);
+            if (parts.length == 3) {
+                entries.put(parts[2], parts[0] + " " + parts[1]);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Names whose CRC and size are the same in both manifests.
+     */
+    static Set<String> unchanged(Map<String, String> previous, Map<String, String> current) {
+        Set<String> unchanged = new HashSet<>();
+        current.forEach((name, value) -> {
+            if (value.equals(previous.get(name))) {
+                unchanged.add(name);
+            }
+        });
+        return unchanged;
+    }
+
+    /**
+     * Names added, removed or modified between the two manifests.
+     */
+    static Set<String> changed(Map<String, String> previous, Map<String, String> current) {
+        Set<String> changed = new HashSet<>(previous.keySet());
+        changed.addAll(current.keySet());
+        changed.removeAll(unchanged(previous, current));
+        return changed;
+    }
+}
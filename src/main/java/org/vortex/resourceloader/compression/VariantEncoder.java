@@ -0,0 +1,519 @@
+package org.vortex.resourceloader.compression;
+
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobContext;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.RawZipReader;
+import org.vortex.resourceloader.util.RawZipWriter;
+import org.vortex.resourceloader.util.ZipUtil;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Produces several variants of a pack in one pass over the source: every entry is read and
+ * inflated once (and optimized once, if requested), then handed to one writer per variant.
+ * Each writer deflates at its own level on the shared workers, so the variants are encoded
+ * concurrently while the next entries are still being read.
+ *
+ * <p>Entries that have not changed since a previous build are not read at all: their compressed
+ * bytes are copied from that build's variant. Every entry is deflated on its own and written with
+ * explicit sizes, so a copied entry is exactly what encoding it again would have produced.
+ *
+ * <p>Memory stays bounded whatever the pack size: buffered entries are limited by
+ * {@code compression.memory-budget}, and entries above {@link #STREAMING_THRESHOLD} are streamed in
+ * chunks that are deflated in parallel, each primed with the end of the previous chunk as dictionary.
+ */
+public class VariantEncoder {
+    private static final int BUFFER_SIZE = 32768;
+    /**
+     * Entries larger than this are streamed rather than held in memory, and are not optimized.
+     */
+    public static final long STREAMING_THRESHOLD = 16L * 1024 * 1024;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int DICTIONARY_SIZE = 32768;
+    private static final long DEFAULT_MEMORY_BUDGET_MB = 128;
+
+    private final Resourceloader plugin;
+    private final PackOptimizer optimizer;
+
+    /**
+     * One output of a pass: the file to write and the deflate level for its compressible entries,
+     * optionally overridden per category by a {@link Calibration}.
+     */
+    public record Target(File file, int level, Map<CompressionPolicy.Category, Integer> categoryLevels) {
+        public Target(File file, int level) {
+            this(file, level, Map.of());
+        }
+
+        public int levelFor(CompressionPolicy.Category category) {
+            return categoryLevels.getOrDefault(category, level);
+        }
+    }
+
+    /**
+     * A previous build to copy from: the source entries that are unchanged since, and the variant that
+     * build wrote for each target file. It must have been built with the same policy and level.
+     */
+    public record Reuse(Set<String> unchanged, Map<File, File> previous) {
+        public static final Reuse NONE = new Reuse(Set.of(), Map.of());
+    }
+
+    /**
+     * Changes the content of a pass, for variants that are more than a recompression of the source.
+     * Both methods are called concurrently for different entries. Streamed entries are not transformed.
+     */
+    public interface Transform {
+        /**
+         * Whether the entry belongs in the output at all.
+         */
+        boolean keep(String name);
+
+        /**
+         * The entry's new content; {@code source} is open for looking up related entries.
+         */
+        byte[] apply(ZipFile source, String name, byte[] data) throws IOException;
+
+        /**
+         * Keeps what both keep and applies {@code first}, then {@code second}; either may be null.
+         */
+        static Transform chain(Transform first, Transform second) {
+            if (first == null || second == null) {
+                return first != null ? first : second;
+            }
+            return new Transform() {
+                @Override
+                public boolean keep(String name) {
+                    return first.keep(name) && second.keep(name);
+                }
+
+                @Override
+                public byte[] apply(ZipFile source, String name, byte[] data) throws IOException {
+                    return second.apply(source, name, first.apply(source, name, data));
+                }
+            };
+        }
+    }
+
+    public record Result(Map<File, CompressionReport> reports, OptimizationReport optimization) {}
+
+    private record PreparedEntry(String name, byte[] data, long crc,
+                                 CompressionPolicy.Category category, CompressionPolicy.Method method) {}
+
+    private static final class Writer {
+        private final Target target;
+        private final File tempFile;
+        private final RawZipWriter zip;
+        private final Deflater[] deflaters;
+        private final RawZipReader previous;
+        private final CompressionReport report;
+        private CompletableFuture<Void> tail;
+
+        private Writer(Target target, File previousFile) throws IOException {
+            this.target = target;
+            this.tempFile = new File(target.file().getParent(), target.file().getName() + ".tmp");
+            this.previous = openPrevious(previousFile);
+            this.zip = new RawZipWriter(tempFile);
+            this.deflaters = new Deflater[Deflater.BEST_COMPRESSION + 1];
+            this.report = new CompressionReport();
+            this.tail = CompletableFuture.completedFuture(null);
+        }
+
+        private static RawZipReader openPrevious(File previousFile) {
+            if (previousFile == null || !previousFile.exists()) {
+                return null;
+            }
+            try {
+                return new RawZipReader(previousFile);
+            } catch (IOException e) {
+                // Encode everything instead
+                return null;
+            }
+        }
+
+        private Deflater deflater(int level) {
+            if (deflaters[level] == null) {
+                deflaters[level] = new Deflater(level, true);
+            }
+            return deflaters[level];
+        }
+
+        private void release() {
+            for (Deflater deflater : deflaters) {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+            if (previous != null) {
+                try {
+                    previous.close();
+                } catch (IOException ignored) {
+                    // Read-only, nothing to lose
+                }
+            }
+        }
+    }
+
+    public VariantEncoder(Resourceloader plugin, PackOptimizer optimizer) {
+        this.plugin = plugin;
+        this.optimizer = optimizer;
+    }
+
+    public Result encode(File source, List<Target> targets, boolean optimize, JobContext context) throws IOException {
+        return encode(source, targets, optimize, Reuse.NONE, context);
+    }
+
+    /**
+     * Writes all targets from {@code source}. With {@code optimize} the entries are passed through
+     * the {@link PackOptimizer} first, so every target receives the optimized content.
+     */
+    public Result encode(File source, List<Target> targets, boolean optimize, Reuse reuse, JobContext context) throws IOException {
+        return encode(source, targets, optimize, null, reuse, context);
+    }
+
+    /**
+     * Like {@link #encode(File, List, boolean, Reuse, JobContext)}, with every entry passed through
+     * {@code transform} (if not null) before it is optimized. Reused entries must be unchanged in the
+     * transformed output as well.
+     */
+    public Result encode(File source, List<Target> targets, boolean optimize, Transform transform, Reuse reuse,
+                         JobContext context) throws IOException {
+        boolean deterministic = ZipUtil.isDeterministic(plugin);
+        CompressionPolicy policy = CompressionPolicy.fromConfig(plugin);
+        ExecutorService workers = plugin.getJobManager().getWorkerPool();
+        OptimizationReport optimization = optimize ? new OptimizationReport() : null;
+        List<Writer> writers = new ArrayList<>();
+
+        try (ZipFile sourceZip = new ZipFile(source)) {
+            for (Target target : targets) {
+                writers.add(new Writer(target, reuse.previous().get(target.file())));
+            }
+
+            List<ZipEntry> entries = optimize
+                ? optimizer.selectEntries(sourceZip, optimization)
+                : new ArrayList<>(Collections.list(sourceZip.entries()));
+            if (transform != null) {
+                entries.removeIf(entry -> !entry.isDirectory() && !transform.keep(entry.getName()));
+            }
+            if (deterministic) {
+                entries.sort(Comparator.comparing(ZipEntry::getName));
+            }
+
+            // Entries still being read or written are held in memory, so only a window of them is in flight,
+            // bounded by count (for parallelism) and by size (for the heap)
+            int window = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+            long budget = getMemoryBudget();
+            Deque<CompletableFuture<Void>> inFlight = new ArrayDeque<>();
+            Deque<Long> inFlightCosts = new ArrayDeque<>();
+            long inFlightBytes = 0;
+            int done = 0;
+            for (ZipEntry entry : entries) {
+                context.checkCancelled();
+                String name = entry.getName();
+                int dosTime = ZipUtil.dosTime(entry.getTime(), deterministic);
+                boolean unchanged = reuse.unchanged().contains(name);
+
+                if (!entry.isDirectory() && (entry.getSize() < 0 || entry.getSize() > STREAMING_THRESHOLD)) {
+                    // Streamed entries are written by this thread, after everything queued before them
+                    while (!inFlight.isEmpty()) {
+                        context.await(inFlight.poll());
+                        inFlightBytes -= inFlightCosts.poll();
+                        context.setProgress(++done, entries.size());
+                    }
+                    stream(sourceZip, entry, writers, dosTime, unchanged, policy, budget, workers, context);
+                    context.setProgress(++done, entries.size());
+                    continue;
+                }
+
+                // The source data plus one output per variant
+                long cost = entry.isDirectory() ? 0 : entry.getSize() * (writers.size() + 1);
+                while (!inFlight.isEmpty() && (inFlight.size() >= window || inFlightBytes + cost > budget)) {
+                    context.await(inFlight.poll());
+                    inFlightBytes -= inFlightCosts.poll();
+                    context.setProgress(++done, entries.size());
+                }
+                CompletableFuture<PreparedEntry> prepared = null;
+
+                List<CompletableFuture<Void>> writes = new ArrayList<>();
+                for (Writer writer : writers) {
+                    RawZipReader.Entry previous = unchanged && writer.previous != null ? writer.previous.getEntry(name) : null;
+                    if (entry.isDirectory()) {
+                        writer.tail = writer.tail.thenRunAsync(() -> writeDirectory(writer, name, dosTime), workers);
+                    } else if (previous != null) {
+                        writer.tail = writer.tail.thenRunAsync(() -> copy(writer, previous, dosTime), workers);
+                    } else {
+                        if (prepared == null) {
+                            prepared = CompletableFuture.supplyAsync(
+                                () -> prepare(sourceZip, entry, transform, optimization, policy), workers);
+                        }
+                        writer.tail = writer.tail.thenCombineAsync(prepared, (ignored, data) -> {
+                            write(writer, data, dosTime);
+                            return null;
+                        }, workers);
+                    }
+                    writes.add(writer.tail);
+                }
+                inFlight.add(CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])));
+                inFlightCosts.add(cost);
+                inFlightBytes += cost;
+            }
+            while (!inFlight.isEmpty()) {
+                context.await(inFlight.poll());
+                context.setProgress(++done, entries.size());
+            }
+
+            for (Writer writer : writers) {
+                writer.zip.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Let the writers drain before deleting their files, then leave nothing partial behind
+            for (Writer writer : writers) {
+                writer.tail.handle((value, error) -> null).join();
+                try {
+                    writer.zip.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+                writer.tempFile.delete();
+            }
+            throw e;
+        } finally {
+            writers.forEach(Writer::release);
+        }
+
+        Map<File, CompressionReport> reports = new LinkedHashMap<>();
+        for (Writer writer : writers) {
+            FileUtil.replaceFile(writer.tempFile.toPath(), writer.target.file().toPath());
+            reports.put(writer.target.file(), writer.report);
+        }
+        return new Result(reports, optimization);
+    }
+
+    private PreparedEntry prepare(ZipFile sourceZip, ZipEntry entry, Transform transform,
+                                  OptimizationReport optimization, CompressionPolicy policy) {
+        try {
+            byte[] data;
+            try (InputStream in = sourceZip.getInputStream(entry)) {
+                data = in.readAllBytes();
+            }
+            if (transform != null) {
+                data = transform.apply(sourceZip, entry.getName(), data);
+            }
+            if (optimization != null) {
+                data = optimizer.optimizeEntry(entry.getName(), data, optimization);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            CompressionPolicy.Category category = CompressionPolicy.categorize(entry.getName());
+            return new PreparedEntry(entry.getName(), data, crc.getValue(), category, policy.decide(category, data));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static void write(Writer writer, PreparedEntry prepared, int dosTime) {
+        long startCpu = cpuTime();
+        byte[] data = prepared.data();
+        byte[] output = data;
+        CompressionPolicy.Method method = prepared.method();
+        if (method == CompressionPolicy.Method.DEFLATE) {
+            byte[] deflated = deflate(writer.deflater(writer.target.levelFor(prepared.category())), data);
+            // Deflating tiny or random entries can grow them; storing is smaller and just as valid
+            if (deflated.length < data.length) {
+                output = deflated;
+            } else {
+                method = CompressionPolicy.Method.STORE;
+            }
+        }
+        try {
+            writer.zip.writeEntry(prepared.name(), dosTime,
+                method == CompressionPolicy.Method.STORE ? ZipEntry.STORED : ZipEntry.DEFLATED,
+                prepared.crc(), data.length, output);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        writer.report.record(prepared.category(), method, data.length, output.length, cpuTime() - startCpu);
+    }
+
+    private static void copy(Writer writer, RawZipReader.Entry previous, int dosTime) {
+        try {
+            byte[] raw = writer.previous.readRaw(previous);
+            writer.zip.writeEntry(previous.name(), dosTime, previous.method(), previous.crc(), previous.size(), raw);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        writer.report.recordReused(CompressionPolicy.categorize(previous.name()), methodOf(previous.method()),
+            previous.size(), previous.compressedSize());
+    }
+
+    private static void writeDirectory(Writer writer, String name, int dosTime) {
+        try {
+            writer.zip.writeDirectory(name, dosTime);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    private long getMemoryBudget() {
+        return Math.max(1, plugin.getConfig().getLong("compression.memory-budget", DEFAULT_MEMORY_BUDGET_MB)) * 1024 * 1024;
+    }
+
+    /**
+     * Writes an entry too large to hold in memory. It is read once in chunks; each variant deflates
+     * the chunks in parallel and writes them in order, so only a bounded number of chunks is held at
+     * a time. The method is decided from the first chunk, as the policy only samples the start anyway.
+     */
+    private void stream(ZipFile sourceZip, ZipEntry entry, List<Writer> writers, int dosTime, boolean unchanged,
+                        CompressionPolicy policy, long budget, ExecutorService workers, JobContext context) throws IOException {
+        String name = entry.getName();
+        CompressionPolicy.Category category = CompressionPolicy.categorize(name);
+        List<Writer> encoding = new ArrayList<>();
+        for (Writer writer : writers) {
+            RawZipReader.Entry previous = unchanged && writer.previous != null ? writer.previous.getEntry(name) : null;
+            if (previous == null) {
+                encoding.add(writer);
+                continue;
+            }
+            OutputStream out = writer.zip.beginEntry(name, dosTime, previous.method(), previous.size());
+            writer.previous.copyRaw(previous, out);
+            writer.zip.endEntry(previous.crc(), previous.size());
+            writer.report.recordReused(category, methodOf(previous.method()), previous.size(), previous.compressedSize());
+        }
+        if (encoding.isEmpty()) {
+            return;
+        }
+
+        try (InputStream in = sourceZip.getInputStream(entry)) {
+            byte[] chunk = in.readNBytes(CHUNK_SIZE);
+            CompressionPolicy.Method method = policy.decide(category, chunk);
+            List<OutputStream> outputs = new ArrayList<>();
+            for (Writer writer : encoding) {
+                outputs.add(writer.zip.beginEntry(name, dosTime,
+                    method == CompressionPolicy.Method.STORE ? ZipEntry.STORED : ZipEntry.DEFLATED, entry.getSize()));
+            }
+
+            int maxPending = (int) Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() * 2L,
+                budget / ((long) CHUNK_SIZE * (encoding.size() + 1))));
+            Deque<List<CompletableFuture<byte[]>>> pending = new ArrayDeque<>();
+            long[] compressed = new long[encoding.size()];
+            long[] cpu = new long[encoding.size()];
+            CRC32 crc = new CRC32();
+            long size = 0;
+            byte[] dictionary = null;
+            while (true) {
+                context.checkCancelled();
+                byte[] next = in.readNBytes(CHUNK_SIZE);
+                boolean last = next.length == 0;
+                crc.update(chunk);
+                size += chunk.length;
+
+                List<CompletableFuture<byte[]>> results = new ArrayList<>();
+                for (int i = 0; i < encoding.size(); i++) {
+                    if (method == CompressionPolicy.Method.STORE) {
+                        results.add(CompletableFuture.completedFuture(chunk));
+                        continue;
+                    }
+                    int level = encoding.get(i).target.levelFor(category);
+                    int index = i;
+                    byte[] data = chunk;
+                    byte[] primer = dictionary;
+                    results.add(CompletableFuture.supplyAsync(() -> {
+                        long startCpu = cpuTime();
+                        byte[] deflated = deflateChunk(level, primer, data, last);
+                        synchronized (cpu) {
+                            cpu[index] += cpuTime() - startCpu;
+                        }
+                        return deflated;
+                    }, workers));
+                }
+                pending.add(results);
+
+                while (pending.size() >= maxPending || (last && !pending.isEmpty())) {
+                    List<CompletableFuture<byte[]>> oldest = pending.poll();
+                    for (int i = 0; i < encoding.size(); i++) {
+                        byte[] output = context.await(oldest.get(i));
+                        outputs.get(i).write(output);
+                        compressed[i] += output.length;
+                    }
+                }
+                if (last) {
+                    break;
+                }
+                dictionary = Arrays.copyOfRange(chunk, Math.max(0, chunk.length - DICTIONARY_SIZE), chunk.length);
+                chunk = next;
+            }
+
+            for (int i = 0; i < encoding.size(); i++) {
+                Writer writer = encoding.get(i);
+                writer.zip.endEntry(crc.getValue(), size);
+                synchronized (cpu) {
+                    writer.report.record(category, method, size, compressed[i], cpu[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deflates one chunk of a streamed entry. Chunks other than the last end on a byte boundary
+     * without closing the stream, so the chunks of all threads concatenate into one valid deflate
+     * stream; priming with the previous chunk's tail keeps matches across chunk borders.
+     */
+    private static byte[] deflateChunk(int level, byte[] dictionary, byte[] data, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, length);
+                } while (length == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static CompressionPolicy.Method methodOf(int zipMethod) {
+        return zipMethod == ZipEntry.STORED ? CompressionPolicy.Method.STORE : CompressionPolicy.Method.DEFLATE;
+    }
+
+    /**
+     * CPU time of the current thread, so time spent waiting on disk does not count against a category.
+     */
+    static long cpuTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
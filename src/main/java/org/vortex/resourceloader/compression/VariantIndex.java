@@ -0,0 +1,120 @@
+package org.vortex.resourceloader.compression;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Persistent record of the variants in {@code compression_cache/}, so they are found again after a
+ * restart without trusting file timestamps. Variants are named after the SHA-1 of their source and
+ * the policy they were built with; the index adds their own SHA-1 and when they were last sent.
+ */
+public class VariantIndex {
+    private final File file;
+    private final Logger logger;
+    private final Map<String, Variant> variants;
+
+    /**
+     * @param name   file name without extension, {@code <source sha1>-<policy>-<label>}
+     * @param pack   path of the pack it was last built for, to find the previous build when that pack changes
+     * @param label  compression level name or {@code optimized}
+     */
+    public record Variant(String name, String source, String pack, String policy, String label, String sha1,
+                          long size, long lastUsed) {
+        public String fileName() {
+            return name + ".zip";
+        }
+
+        Variant touch() {
+            return new Variant(name, source, pack, policy, label, sha1, size, System.currentTimeMillis());
+        }
+    }
+
+    public VariantIndex(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+        this.variants = new ConcurrentHashMap<>();
+    }
+
+    public void load() {
+        if (!file.exists()) {
+            return;
+        }
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        for (String name : config.getKeys(false)) {
+            ConfigurationSection section = config.getConfigurationSection(name);
+            if (section == null || section.getString("source") == null || section.getString("sha1") == null) {
+                continue;
+            }
+            variants.put(name, new Variant(name,
+                section.getString("source"),
+                section.getString("pack", ""),
+                section.getString("policy", ""),
+                section.getString("label", ""),
+                section.getString("sha1"),
+                section.getLong("size", 0),
+                section.getLong("last-used", 0)));
+        }
+    }
+
+    public synchronized void save() {
+        YamlConfiguration config = new YamlConfiguration();
+        for (Variant variant : variants.values()) {
+            config.set(variant.name() + ".source", variant.source());
+            config.set(variant.name() + ".pack", variant.pack());
+            config.set(variant.name() + ".policy", variant.policy());
+            config.set(variant.name() + ".label", variant.label());
+            config.set(variant.name() + ".sha1", variant.sha1());
+            config.set(variant.name() + ".size", variant.size());
+            config.set(variant.name() + ".last-used", variant.lastUsed());
+        }
+        try {
+            config.save(file);
+        } catch (IOException e) {
+            logger.warning("Failed to save compression cache index: " + e.getMessage());
+        }
+    }
+
+    public Variant get(String name) {
+        return variants.get(name);
+    }
+
+    /**
+     * Looks up a variant and marks it as used; the new time is persisted with the next save.
+     */
+    public Variant use(String name) {
+        return variants.computeIfPresent(name, (key, variant) -> variant.touch());
+    }
+
+    public void put(Variant variant) {
+        variants.put(variant.name(), variant);
+    }
+
+    public void remove(String name) {
+        variants.remove(name);
+    }
+
+    /**
+     * Source hash of the most recent build of {@code pack} with this policy other than {@code source}.
+     */
+    public String findPreviousSource(String pack, String policy, String source) {
+        return variants.values().stream()
+            .filter(variant -> variant.pack().equals(pack) && variant.policy().equals(policy)
+                && !variant.source().equals(source))
+            .max(Comparator.comparingLong(Variant::lastUsed))
+            .map(Variant::source)
+            .orElse(null);
+    }
+
+    public List<Variant> getVariants() {
+        return new ArrayList<>(variants.values());
+    }
+}
@@ -1,13 +1,22 @@
 package org.vortex.resourceloader.core;
 
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobType;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 /**
@@ -15,12 +24,18 @@ import java.util.logging.Logger;
  * by avoiding re-downloading unchanged packs.
  */
 public class HashCacheManager {
+    private final Resourceloader plugin;
     private final Logger logger;
+    private final File cacheFile;
     private final ConcurrentHashMap<String, CachedHash> hashCache;
+    private final Set<String> pendingRefresh;
     
     public HashCacheManager(Resourceloader plugin) {
+        this.plugin = plugin;
         this.logger = plugin.getLogger();
+        this.cacheFile = new File(plugin.getDataFolder(), "hashes.yml");
         this.hashCache = new ConcurrentHashMap<>();
+        this.pendingRefresh = ConcurrentHashMap.newKeySet();
         loadCache();
     }
     
@@ -56,22 +71,61 @@ public class HashCacheManager {
     public String getOrCalculateHash(File file) {
         String filePath = file.getAbsolutePath();
         long lastModified = file.lastModified();
+        long length = file.length();
         
         CachedHash cached = hashCache.get(filePath);
-        if (cached != null && cached.lastModified == lastModified) {
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
             return cached.hash;
         }
         
         // Calculate new hash
         String hash = calculateSHA1(file);
         if (hash != null) {
-            hashCache.put(filePath, new CachedHash(hash, lastModified));
+            hashCache.put(filePath, new CachedHash(hash, lastModified, length));
             saveCache();
         }
         
         return hash;
     }
     
+    /**
+     * The cached hash of a file if it is still current, without ever reading the file
+     */
+    public String getCachedHash(File file) {
+        CachedHash cached = hashCache.get(file.getAbsolutePath());
+        return cached != null && cached.lastModified == file.lastModified() && cached.length == file.length()
+            ? cached.hash : null;
+    }
+
+    /**
+     * Queues a re-hash job for the files whose cached hash is missing or stale, so the main thread
+     * finds them cached later. Files already queued are skipped.
+     */
+    public void refreshInBackground(Collection<File> files) {
+        List<File> stale = new ArrayList<>();
+        for (File file : files) {
+            if (file != null && file.isFile() && getCachedHash(file) == null && pendingRefresh.add(file.getAbsolutePath())) {
+                stale.add(file);
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        try {
+            plugin.getJobManager().submit(JobType.REHASH, "Hash " + stale.size() + " pack(s)", "server", null, context -> {
+                for (File file : stale) {
+                    context.checkCancelled();
+                    getOrCalculateHash(file);
+                }
+                return null;
+            }).getResult().whenComplete((result, error) ->
+                stale.forEach(file -> pendingRefresh.remove(file.getAbsolutePath())));
+        } catch (RejectedExecutionException e) {
+            stale.forEach(file -> pendingRefresh.remove(file.getAbsolutePath()));
+            logger.fine("Skipping background hashing: " + e.getMessage());
+        }
+    }
+
     /**
      * Check if two files have the same hash
      */
@@ -93,7 +147,7 @@ public class HashCacheManager {
      * Cache hash for a URL-based pack
      */
     public void cacheUrlHash(String url, String hash) {
-        hashCache.put("url:" + url, new CachedHash(hash, System.currentTimeMillis()));
+        hashCache.put("url:" + url, new CachedHash(hash, System.currentTimeMillis(), -1));
         saveCache();
     }
     
@@ -153,17 +207,45 @@ public class HashCacheManager {
         return new CacheStats(fileEntries, urlEntries);
     }
     
+    /**
+     * Hashes survive restarts, so unchanged packs (and the compression variants keyed by their hash)
+     * do not have to be re-read on startup. Entries are only trusted while mtime and length match.
+     */
     private void loadCache() {
-        // For now, just initialize empty cache
-        // In a full implementation, this would load from JSON file
         hashCache.clear();
-        logger.info("Hash cache initialized");
+        if (cacheFile.exists()) {
+            YamlConfiguration config = YamlConfiguration.loadConfiguration(cacheFile);
+            for (Map<?, ?> entry : config.getMapList("hashes")) {
+                Object key = entry.get("key");
+                Object hash = entry.get("hash");
+                if (key instanceof String && hash instanceof String
+                        && entry.get("modified") instanceof Number modified && entry.get("length") instanceof Number length) {
+                    hashCache.put((String) key, new CachedHash((String) hash, modified.longValue(), length.longValue()));
+                }
+            }
+        }
+        logger.info("Hash cache initialized (" + hashCache.size() + " entries)");
     }
     
-    private void saveCache() {
-        // For now, just log the save operation
-        // In a full implementation, this would save to JSON file
-        // We'll keep it simple since we already have a lot of functionality
+    private synchronized void saveCache() {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        hashCache.forEach((key, cached) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("key", key);
+            entry.put("hash", cached.hash);
+            entry.put("modified", cached.lastModified);
+            entry.put("length", cached.length);
+            entries.add(entry);
+        });
+
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("hashes", entries);
+        try {
+            cacheFile.getParentFile().mkdirs();
+            config.save(cacheFile);
+        } catch (IOException e) {
+            logger.warning("Failed to save hash cache: " + e.getMessage());
+        }
     }
     
     /**
@@ -172,10 +254,12 @@ public class HashCacheManager {
     private static class CachedHash {
         final String hash;
         final long lastModified;
+        final long length;
         
-        CachedHash(String hash, long lastModified) {
+        CachedHash(String hash, long lastModified, long length) {
             this.hash = hash;
             this.lastModified = lastModified;
+            this.length = length;
         }
     }
     
@@ -4,8 +4,11 @@ import org.bukkit.Bukkit;
 import org.bukkit.boss.BarColor;
 import org.bukkit.boss.BarStyle;
 import org.bukkit.boss.BossBar;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.util.FileUtil;
 
 import java.io.*;
 import java.net.URI;
@@ -13,33 +16,82 @@ import java.net.HttpURLConnection;
 import java.nio.file.*;
 import java.security.MessageDigest;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 public class ResourcePackCache {
     private final Resourceloader plugin;
     private final Logger logger;
     private final Path cacheDir;
+    private final Path validatorsFile;
     private final Map<String, String> etagCache;
+    private final Map<String, Long> lastModifiedCache;
+    private final Map<String, CompletableFuture<File>> pendingDownloads;
     private final Map<UUID, BossBar> downloadBars;
 
     public ResourcePackCache(Resourceloader plugin) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
         this.cacheDir = plugin.getDataFolder().toPath().resolve("cache");
-        this.etagCache = new HashMap<>();
+        this.validatorsFile = cacheDir.resolve("validators.yml");
+        this.etagCache = new ConcurrentHashMap<>();
+        this.lastModifiedCache = new ConcurrentHashMap<>();
+        this.pendingDownloads = new ConcurrentHashMap<>();
         this.downloadBars = new HashMap<>();
         
         try {
             Files.createDirectories(cacheDir);
             cleanOldCache();
+            loadValidators();
         } catch (IOException e) {
             logger.warning("Failed to create cache directory: " + e.getMessage());
         }
     }
 
+    private void loadValidators() {
+        if (!Files.exists(validatorsFile)) {
+            return;
+        }
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(validatorsFile.toFile());
+        for (String key : config.getKeys(false)) {
+            ConfigurationSection section = config.getConfigurationSection(key);
+            String url = section != null ? section.getString("url") : null;
+            if (url == null) {
+                continue;
+            }
+            String etag = section.getString("etag");
+            if (etag != null) {
+                etagCache.put(url, etag);
+            }
+            long lastModified = section.getLong("last-modified", 0);
+            if (lastModified > 0) {
+                lastModifiedCache.put(url, lastModified);
+            }
+        }
+    }
+
+    private synchronized void saveValidators() {
+        YamlConfiguration config = new YamlConfiguration();
+        Map<String, Boolean> urls = new HashMap<>();
+        etagCache.keySet().forEach(url -> urls.put(url, true));
+        lastModifiedCache.keySet().forEach(url -> urls.put(url, true));
+        for (String url : urls.keySet()) {
+            String key = getUrlHash(url);
+            config.set(key + ".url", url);
+            config.set(key + ".etag", etagCache.get(url));
+            config.set(key + ".last-modified", lastModifiedCache.get(url));
+        }
+        try {
+            config.save(validatorsFile.toFile());
+        } catch (IOException e) {
+            logger.warning("Failed to save cache validators: " + e.getMessage());
+        }
+    }
+
     public CompletableFuture<File> getCachedPack(String url, String packName) {
         return getCachedPack(url, packName, null);
     }
@@ -57,55 +109,110 @@ public class ResourcePackCache {
                 }
             });
         }
+        return fetchCached(url, packName, player);
+    }
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String cachedEtag = etagCache.get(url);
-                Path cachePath = cacheDir.resolve(packName + "_" + getUrlHash(url) + ".zip");
-                
-                if (Files.exists(cachePath)) {
-                    HttpURLConnection conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
-                    conn.setRequestMethod("HEAD");
-                    if (cachedEtag != null) {
-                        conn.setRequestProperty("If-None-Match", cachedEtag);
-                    }
-
-                    int responseCode = conn.getResponseCode();
-                    if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
-                        logger.info("Using cached version of " + packName);
-                        return cachePath.toFile();
-                    }
+    /**
+     * Like {@link #getCachedPack(String, String)}, but always kept in the cache directory, even with
+     * {@code cache.enabled} off. Merges, composites and analysis read the file on the server, and a
+     * stable path lets them find their previous builds instead of leaving a temp file behind each time.
+     */
+    public CompletableFuture<File> getLocalPack(String url, String packName) {
+        return fetchCached(url, packName, null);
+    }
 
-                    String newEtag = conn.getHeaderField("ETag");
-                    if (newEtag != null && newEtag.equals(cachedEtag)) {
-                        return cachePath.toFile();
-                    }
-                }
+    private CompletableFuture<File> fetchCached(String url, String packName, Player player) {
+        // Concurrent requests for the same URL (e.g. a merge and a joining player) share one download
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> pending = pendingDownloads.putIfAbsent(url, future);
+        if (pending != null) {
+            return pending;
+        }
 
-                logger.info("Downloading and caching " + packName);
-                downloadPack(url, cachePath, player);
-                return cachePath.toFile();
+        CompletableFuture.runAsync(() -> {
+            try {
+                Path cachePath = cacheDir.resolve(packName + "_" + getUrlHash(url) + ".zip");
+                File file = fetchPack(url, packName, cachePath, player).toFile();
+                pendingDownloads.remove(url, future);
+                future.complete(file);
             } catch (IOException e) {
                 logger.warning("Failed to cache resource pack " + packName + ": " + e.getMessage());
-                throw new RuntimeException("Failed to cache resource pack: " + e.getMessage(), e);
+                pendingDownloads.remove(url, future);
+                future.completeExceptionally(new RuntimeException("Failed to cache resource pack: " + e.getMessage(), e));
             } catch (Exception e) {
                 logger.warning("Unexpected error while caching resource pack " + packName + ": " + e.getMessage());
-                throw new RuntimeException("Unexpected error while caching resource pack: " + e.getMessage(), e);
+                pendingDownloads.remove(url, future);
+                future.completeExceptionally(new RuntimeException("Unexpected error while caching resource pack: " + e.getMessage(), e));
             }
         });
+        return future;
+    }
+
+    /**
+     * Revalidates the cached copy with a single conditional GET. A 304 reuses the file on disk;
+     * otherwise the body is streamed into a temp file that replaces the cached copy once complete,
+     * so readers never see a half-downloaded pack.
+     */
+    private Path fetchPack(String url, String packName, Path cachePath, Player player) throws IOException {
+        boolean cached = Files.exists(cachePath);
+        HttpURLConnection conn = openConnection(url);
+        try {
+            if (cached) {
+                String etag = etagCache.get(url);
+                Long lastModified = lastModifiedCache.get(url);
+                if (etag != null) {
+                    conn.setRequestProperty("If-None-Match", etag);
+                }
+                conn.setIfModifiedSince(lastModified != null ? lastModified : Files.getLastModifiedTime(cachePath).toMillis());
+            }
+
+            int responseCode = conn.getResponseCode();
+            if (cached && responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                logger.info("Using cached version of " + packName);
+                return cachePath;
+            }
+
+            logger.info("Downloading and caching " + packName);
+            Path tempFile = cachePath.resolveSibling(cachePath.getFileName() + ".part");
+            try {
+                streamResponse(conn, url, tempFile, player);
+                FileUtil.replaceFile(tempFile, cachePath);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            plugin.getHashCache().refreshInBackground(List.of(cachePath.toFile()));
+            saveValidators();
+            return cachePath;
+        } finally {
+            conn.disconnect();
+        }
     }
 
     private void downloadPack(String url, Path destination, Player player) throws IOException {
-        HttpURLConnection conn = null;
+        HttpURLConnection conn = openConnection(url);
+        try {
+            streamResponse(conn, url, destination, player);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private HttpURLConnection openConnection(String url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        conn.setRequestMethod("GET");
+        conn.setRequestProperty("User-Agent", "Resourceloader/2.1");
+        conn.setConnectTimeout(15000);
+        conn.setReadTimeout(30000);
+        return conn;
+    }
+
+    /**
+     * @param url the configured URL, which the validators are kept under even if the server redirected
+     */
+    private void streamResponse(HttpURLConnection conn, String url, Path destination, Player player) throws IOException {
         BossBar progressBar = null;
         
         try {
-            conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("User-Agent", "Resourceloader/2.1");
-            conn.setConnectTimeout(15000);
-            conn.setReadTimeout(30000);
-            
             int responseCode = conn.getResponseCode();
             if (responseCode != HttpURLConnection.HTTP_OK) {
                 throw new IOException("Failed to download resource pack. Server returned code: " + responseCode);
@@ -114,6 +221,14 @@ public class ResourcePackCache {
             String etag = conn.getHeaderField("ETag");
             if (etag != null) {
                 etagCache.put(url, etag);
+            } else {
+                etagCache.remove(url);
+            }
+            long lastModified = conn.getLastModified();
+            if (lastModified > 0) {
+                lastModifiedCache.put(url, lastModified);
+            } else {
+                lastModifiedCache.remove(url);
             }
 
             Files.createDirectories(destination.getParent());
@@ -143,9 +258,6 @@ public class ResourcePackCache {
                 }
             }
         } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
             if (progressBar != null) {
                 removeProgressBar(progressBar);
             }
@@ -258,6 +370,7 @@ public class ResourcePackCache {
                     }
                 });
             etagCache.clear();
+            lastModifiedCache.clear();
             logger.info("Resource pack cache cleared");
         } catch (IOException e) {
             logger.warning("Failed to clear cache directory: " + e.getMessage());
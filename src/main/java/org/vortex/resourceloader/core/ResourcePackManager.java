@@ -3,7 +3,7 @@ package org.vortex.resourceloader.core;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.vortex.resourceloader.Resourceloader;
-import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.compression.PackCompressor;
 
 import java.io.File;
 import java.util.Map;
@@ -12,6 +12,7 @@ import java.util.logging.Logger;
 import java.util.UUID;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -27,7 +28,9 @@ public class ResourcePackManager {
     private final ResourcePackServer packServer;
     private final ResourcePackWatcher packWatcher;
     private final Map<UUID, List<String>> playerPreferences;
+    private final Map<UUID, List<String>> playerAddons;
     private final Path preferencesFile;
+    private final Path addonsFile;
 
     public ResourcePackManager(Resourceloader plugin) {
         this.plugin = plugin;
@@ -37,9 +40,12 @@ public class ResourcePackManager {
         this.packServer = new ResourcePackServer(plugin);
         this.packWatcher = new ResourcePackWatcher(plugin, this);
         this.playerPreferences = new ConcurrentHashMap<>();
+        this.playerAddons = new ConcurrentHashMap<>();
         this.preferencesFile = plugin.getDataFolder().toPath().resolve("preferences.yml");
+        this.addonsFile = plugin.getDataFolder().toPath().resolve("addons.yml");
         
         loadPreferences();
+        loadAddons();
         loadResourcePacks(true);
         packServer.start();
     }
@@ -72,6 +78,59 @@ public class ResourcePackManager {
         }
     }
 
+    private void loadAddons() {
+        if (!Files.exists(addonsFile)) {
+            return;
+        }
+
+        try {
+            YamlConfiguration config = YamlConfiguration.loadConfiguration(addonsFile.toFile());
+            for (String uuidStr : config.getKeys(false)) {
+                playerAddons.put(UUID.fromString(uuidStr), new ArrayList<>(config.getStringList(uuidStr)));
+            }
+        } catch (Exception e) {
+            logger.warning("Failed to load player add-ons: " + e.getMessage());
+        }
+    }
+
+    private void saveAddons() {
+        try {
+            YamlConfiguration config = new YamlConfiguration();
+            for (Map.Entry<UUID, List<String>> entry : playerAddons.entrySet()) {
+                config.set(entry.getKey().toString(), entry.getValue());
+            }
+            config.save(addonsFile.toFile());
+        } catch (IOException e) {
+            logger.warning("Failed to save player add-ons: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add-on packs layered on top of the player's preferred pack when composite packs are enabled.
+     */
+    public List<String> getPlayerAddons(UUID playerId) {
+        return new ArrayList<>(playerAddons.getOrDefault(playerId, new ArrayList<>()));
+    }
+
+    /**
+     * @return true if the add-on is now selected, false if it was removed
+     */
+    public boolean togglePlayerAddon(UUID playerId, String packName) {
+        List<String> addons = playerAddons.computeIfAbsent(playerId, k -> new ArrayList<>());
+        boolean added;
+        if (addons.remove(packName)) {
+            added = false;
+        } else {
+            addons.add(packName);
+            added = true;
+        }
+        if (addons.isEmpty()) {
+            playerAddons.remove(playerId);
+        }
+        saveAddons();
+        return added;
+    }
+
     public List<String> getPlayerPreferences(UUID playerId) {
         return playerPreferences.getOrDefault(playerId, new ArrayList<>());
     }
@@ -92,6 +151,9 @@ public class ResourcePackManager {
     public void clearPlayerPreferences(UUID playerId) {
         playerPreferences.remove(playerId);
         savePreferences();
+        if (playerAddons.remove(playerId) != null) {
+            saveAddons();
+        }
     }
 
     public void loadResourcePacks(boolean silent) {
@@ -137,6 +199,9 @@ public class ResourcePackManager {
                 }
             }
         }
+
+        // Packs that changed since they were last hashed are re-hashed off the main thread
+        plugin.getHashCache().refreshInBackground(resourcePacks.values());
     }
 
     public void loadResourcePack(Player player, String packName, String packPath) {
@@ -152,18 +217,19 @@ public class ResourcePackManager {
                     "pack", packName));
                 
                 packCache.getCachedPack(packPath, packName)
-                    .thenAccept(cachedFile -> {
+                    .thenAccept(cachedFile -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+                        if (!player.isOnline()) {
+                            return;
+                        }
                         try {
-                            byte[] fileHash = FileUtil.calcSHA1(cachedFile);
-                            String downloadUrl = packServer.createDownloadURL(player, packName, cachedFile.getName());
-                            player.setResourcePack(downloadUrl, fileHash);
+                            sendPack(player, packName, cachedFile);
                             player.sendMessage(plugin.getMessageManager().getMessage("resource-packs.load-success"));
                         } catch (Exception e) {
                             player.sendMessage(plugin.getMessageManager().formatMessage("resource-packs.load-failed", 
                                 "error", e.getMessage()));
                             logger.warning("Failed to load cached pack: " + e.getMessage());
                         }
-                    })
+                    }))
                     .exceptionally(e -> {
                         player.sendMessage(plugin.getMessageManager().formatMessage("resource-packs.load-failed", 
                             "error", e.getMessage()));
@@ -176,14 +242,7 @@ public class ResourcePackManager {
                     player.sendMessage(plugin.getMessageManager().getMessage("resource-packs.invalid-pack"));
                     return;
                 }
-                String finalUrl = packServer.createDownloadURL(player, packName, packPath);
-                byte[] hash = FileUtil.calcSHA1(packFile);
-
-                if (hash != null) {
-                    player.setResourcePack(finalUrl, hash);
-                } else {
-                    player.setResourcePack(finalUrl);
-                }
+                sendPack(player, packName, packFile);
 
                 player.sendMessage(plugin.getMessageManager().formatMessage("resource-packs.loading", 
                     "pack", packName));
@@ -197,6 +256,17 @@ public class ResourcePackManager {
         }
     }
 
+    /**
+     * Sends the compression variant that suits this player, or the original pack while that
+     * variant is still being built. Must be called on the main thread.
+     */
+    public PackCompressor.PackVariant sendPack(Player player, String packName, File packFile) throws IOException {
+        PackCompressor.PackVariant variant = plugin.getPackCompressor().selectVariant(player, packFile);
+        String downloadUrl = packServer.createDownloadURL(player, packName, variant.file().getName());
+        player.setResourcePack(downloadUrl, variant.sha1());
+        return variant;
+    }
+
     private File getResourcePackDirectory() {
         String customPath = plugin.getConfig().getString("storage.resource-pack-directory", "");
         if (!customPath.isEmpty()) {
@@ -213,6 +283,29 @@ public class ResourcePackManager {
         return resourcePacks;
     }
 
+    /**
+     * Resolves a registered pack to a local file. URL packs (registered as null) are fetched
+     * into the pack cache directory, which reuses the cached copy when the server reports it unchanged.
+     */
+    public CompletableFuture<File> resolvePackFile(String packName) {
+        if (!resourcePacks.containsKey(packName)) {
+            return CompletableFuture.failedFuture(new IOException("Resource pack '" + packName + "' not found"));
+        }
+
+        File packFile = resourcePacks.get(packName);
+        if (packFile != null) {
+            return packFile.exists()
+                ? CompletableFuture.completedFuture(packFile)
+                : CompletableFuture.failedFuture(new IOException("Pack file not found: " + packFile.getName()));
+        }
+
+        String url = plugin.getConfig().getString("resource-packs." + packName);
+        if (url == null || !url.startsWith("http")) {
+            return CompletableFuture.failedFuture(new IOException("Invalid path for resource pack '" + packName + "'"));
+        }
+        return packCache.getLocalPack(url, packName);
+    }
+
     public ResourcePackCache getPackCache() {
         return packCache;
     }
@@ -311,6 +404,7 @@ public class ResourcePackManager {
             String configKey = getUniqueConfigKey(sanitizedName, packs);
             packs.set(configKey, newFile.getName());
             resourcePacks.put(configKey, newFile);
+            plugin.getHashCache().refreshInBackground(List.of(newFile));
 
             plugin.saveConfig();
             logger.info("Added new resource pack: " + configKey + " (file: " + newFile.getName() + ")");
@@ -60,7 +60,7 @@ public class ResourcePackServer {
                     return;
                 }
 
-                serveResourcePack(exchange, packPath);
+                serveResourcePack(exchange, packPath, playerId);
             });
 
             // Public endpoint for vanilla Minecraft client
@@ -71,7 +71,7 @@ public class ResourcePackServer {
                 }
 
                 String packPath = exchange.getRequestURI().getPath().substring("/public/".length());
-                serveResourcePack(exchange, packPath);
+                serveResourcePack(exchange, packPath, null);
             });
 
             server.setExecutor(null);
@@ -82,13 +82,22 @@ public class ResourcePackServer {
         }
     }
 
-    private void serveResourcePack(com.sun.net.httpserver.HttpExchange exchange, String packPath) throws IOException {
+    private void serveResourcePack(com.sun.net.httpserver.HttpExchange exchange, String packPath, UUID playerId) throws IOException {
         File packFile = new File(plugin.getDataFolder(), "packs/" + packPath);
         
         if (!packFile.exists()) {
             packFile = new File(plugin.getDataFolder(), "cache/" + packPath);
         }
 
+        if (!packFile.exists()) {
+            packFile = new File(plugin.getDataFolder(), "composites/" + packPath);
+        }
+
+        // Compressed variants chosen per player by PackCompressor
+        if (!packFile.exists()) {
+            packFile = new File(plugin.getDataFolder(), "compression_cache/" + packPath);
+        }
+
         if (!packFile.exists()) {
             exchange.sendResponseHeaders(404, -1);
             return;
@@ -98,10 +107,14 @@ public class ResourcePackServer {
         exchange.getResponseHeaders().set("Cache-Control", "public, max-age=31536000");
         exchange.sendResponseHeaders(200, packFile.length());
 
+        long start = System.nanoTime();
         try (OutputStream os = exchange.getResponseBody()) {
             Files.copy(packFile.toPath(), os);
-            plugin.getLogger().info("Successfully served resource pack: " + packPath);
         }
+        // Only complete transfers count; an aborted download throws before getting here
+        long elapsed = System.nanoTime() - start;
+        plugin.getThroughputTracker().record(playerId, exchange.getRemoteAddress().getAddress(), packFile.length(), elapsed);
+        plugin.getLogger().info("Successfully served resource pack: " + packPath);
     }
 
     public void stop() {
@@ -0,0 +1,139 @@
+package org.vortex.resourceloader.core;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.vortex.resourceloader.Resourceloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Download throughput measured on the packs {@link ResourcePackServer} actually served, smoothed
+ * across sessions and kept per player and per network (IPv4 /24, IPv6 /48). Players without a
+ * measurement of their own inherit the one of their network, which covers new players behind the
+ * same connection and the public endpoint, where downloads carry no player.
+ */
+public class ThroughputTracker {
+    private final Resourceloader plugin;
+    private final Logger logger;
+    private final File file;
+    private final Map<String, Estimate> estimates;
+
+    /**
+     * @param bytesPerSecond exponentially weighted moving average of the measured downloads
+     */
+    public record Estimate(double bytesPerSecond, int samples, long updated) {}
+
+    public ThroughputTracker(Resourceloader plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.file = new File(plugin.getDataFolder(), "throughput.yml");
+        this.estimates = new ConcurrentHashMap<>();
+        load();
+    }
+
+    /**
+     * Records one finished download. Small transfers are ignored: they mostly measure latency and
+     * socket buffers, not bandwidth.
+     *
+     * @param player  the downloading player, or null if the download was not tied to one
+     */
+    public void record(UUID player, InetAddress address, long bytes, long nanos) {
+        if (bytes < plugin.getConfig().getLong("compression.throughput.min-sample-size", 262144) || nanos <= 0) {
+            return;
+        }
+        double bytesPerSecond = bytes * 1_000_000_000.0 / nanos;
+        if (player != null) {
+            update("player:" + player, bytesPerSecond);
+        }
+        if (address != null) {
+            update("subnet:" + subnet(address), bytesPerSecond);
+        }
+        save();
+    }
+
+    private void update(String key, double bytesPerSecond) {
+        double weight = plugin.getConfig().getDouble("compression.throughput.smoothing", 0.3);
+        estimates.merge(key, new Estimate(bytesPerSecond, 1, System.currentTimeMillis()), (previous, sample) ->
+            new Estimate(previous.bytesPerSecond() + weight * (sample.bytesPerSecond() - previous.bytesPerSecond()),
+                previous.samples() + 1, sample.updated()));
+    }
+
+    /**
+     * Expected throughput in bytes per second: the player's own measurement, else their network's,
+     * else empty.
+     */
+    public OptionalDouble estimate(UUID player, InetAddress address) {
+        Estimate estimate = player != null ? find("player:" + player) : null;
+        if (estimate == null && address != null) {
+            estimate = find("subnet:" + subnet(address));
+        }
+        return estimate != null ? OptionalDouble.of(estimate.bytesPerSecond()) : OptionalDouble.empty();
+    }
+
+    private Estimate find(String key) {
+        Estimate estimate = estimates.get(key);
+        return estimate != null && !isExpired(estimate) ? estimate : null;
+    }
+
+    private boolean isExpired(Estimate estimate) {
+        long expiry = plugin.getConfig().getInt("compression.throughput.expiry-days", 30) * 24 * 60 * 60 * 1000L;
+        return estimate.updated() < System.currentTimeMillis() - expiry;
+    }
+
+    static String subnet(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        int prefix = address instanceof Inet4Address ? 3 : 6;
+        StringBuilder key = new StringBuilder();
+        for (byte b : Arrays.copyOf(bytes, prefix)) {
+            key.append(String.format("%02x", b));
+        }
+        return key.append('/').append(prefix * 8).toString();
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        for (String kind : new String[]{"player", "subnet"}) {
+            ConfigurationSection section = config.getConfigurationSection(kind);
+            if (section == null) {
+                continue;
+            }
+            for (String key : section.getKeys(false)) {
+                Estimate estimate = new Estimate(section.getDouble(key + ".bytes-per-second", 0),
+                    section.getInt(key + ".samples", 0), section.getLong(key + ".updated", 0));
+                if (estimate.bytesPerSecond() > 0 && !isExpired(estimate)) {
+                    estimates.put(kind + ":" + key, estimate);
+                }
+            }
+        }
+    }
+
+    public synchronized void save() {
+        YamlConfiguration config = new YamlConfiguration();
+        estimates.forEach((key, estimate) -> {
+            if (isExpired(estimate)) {
+                return;
+            }
+            String path = key.replaceFirst(":", ".");
+            config.set(path + ".bytes-per-second", Math.round(estimate.bytesPerSecond()));
+            config.set(path + ".samples", estimate.samples());
+            config.set(path + ".updated", estimate.updated());
+        });
+        try {
+            config.save(file);
+        } catch (IOException e) {
+            logger.warning("Failed to save throughput measurements: " + e.getMessage());
+        }
+    }
+}
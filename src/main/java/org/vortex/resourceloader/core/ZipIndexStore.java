@@ -0,0 +1,108 @@
+package org.vortex.resourceloader.core;
+
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.util.ZipIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * {@link ZipIndex}es of packs, keyed by the pack's SHA-1 so an index never describes another
+ * version of the pack. Indexes are kept in memory for the packs used most recently and persisted in
+ * {@code indexes/}, where the least recently used files are deleted beyond
+ * {@code zip-index.max-files}. The validator, analyzer, merger and compressor all take their entry
+ * listings from here instead of re-reading central directories.
+ */
+public class ZipIndexStore {
+    private static final String EXTENSION = ".idx";
+
+    private final Resourceloader plugin;
+    private final Logger logger;
+    private final File directory;
+    private final Map<String, ZipIndex> loaded;
+
+    public ZipIndexStore(Resourceloader plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.directory = new File(plugin.getDataFolder(), "indexes");
+        int capacity = Math.max(1, plugin.getConfig().getInt("zip-index.memory", 32));
+        this.loaded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ZipIndex> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * The index of a pack: from memory, from its persisted file, or read from the pack's central
+     * directory and persisted.
+     */
+    public ZipIndex get(File pack) throws IOException {
+        String packHash = plugin.getHashCache().getOrCalculateHash(pack);
+        if (packHash == null) {
+            return ZipIndex.of(pack);
+        }
+        synchronized (loaded) {
+            ZipIndex index = loaded.get(packHash);
+            if (index != null) {
+                return index;
+            }
+        }
+
+        File file = new File(directory, packHash + EXTENSION);
+        ZipIndex index = null;
+        if (file.exists()) {
+            try {
+                index = ZipIndex.load(file);
+                file.setLastModified(System.currentTimeMillis());
+            } catch (IOException e) {
+                logger.warning("Rebuilding unreadable zip index of " + pack.getName() + ": " + e.getMessage());
+            }
+        }
+        if (index == null) {
+            index = ZipIndex.of(pack);
+            persist(index, file);
+        }
+        synchronized (loaded) {
+            loaded.put(packHash, index);
+        }
+        return index;
+    }
+
+    private void persist(ZipIndex index, File file) {
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory.getName());
+            }
+            index.write(file);
+        } catch (IOException e) {
+            // Still usable from memory, it is only read again from the pack next time
+            logger.warning("Failed to save zip index " + file.getName() + ": " + e.getMessage());
+            return;
+        }
+        prune();
+    }
+
+    /**
+     * Deletes the least recently used index files beyond the configured number.
+     */
+    private synchronized void prune() {
+        int maxFiles = Math.max(1, plugin.getConfig().getInt("zip-index.max-files", 256));
+        File[] files = directory.listFiles((parent, name) -> name.endsWith(EXTENSION));
+        if (files == null || files.length <= maxFiles) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - maxFiles; i++) {
+            if (!files[i].delete()) {
+                logger.fine("Could not delete old zip index " + files[i].getName());
+            }
+        }
+    }
+}
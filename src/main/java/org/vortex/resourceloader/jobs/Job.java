@@ -0,0 +1,160 @@
+package org.vortex.resourceloader.jobs;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+public class Job<T> implements JobContext {
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    private final int id;
+    private final JobType type;
+    private final String description;
+    private final String owner;
+    private final String key;
+    private final long createdAt;
+    private final CompletableFuture<T> result;
+    private volatile State state;
+    private volatile long progressDone;
+    private volatile long progressTotal;
+    private volatile boolean cancelled;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile Future<?> execution;
+
+    Job(int id, JobType type, String description, String owner, String key) {
+        this.id = id;
+        this.type = type;
+        this.description = description;
+        this.owner = owner;
+        this.key = key;
+        this.createdAt = System.currentTimeMillis();
+        this.result = new CompletableFuture<>();
+        this.state = State.QUEUED;
+    }
+
+    void execute(JobTask<T> task) {
+        if (cancelled) {
+            return;
+        }
+        state = State.RUNNING;
+        startedAt = System.currentTimeMillis();
+        try {
+            T value = task.run(this);
+            checkCancelled();
+            state = State.COMPLETED;
+            result.complete(value);
+        } catch (Exception e) {
+            if (cancelled || e instanceof CancellationException) {
+                state = State.CANCELLED;
+                result.completeExceptionally(new CancellationException("Job #" + id + " was cancelled"));
+            } else {
+                state = State.FAILED;
+                result.completeExceptionally(e);
+            }
+        } finally {
+            finishedAt = System.currentTimeMillis();
+        }
+    }
+
+    void setExecution(Future<?> execution) {
+        this.execution = execution;
+    }
+
+    void fail(Exception e) {
+        state = State.FAILED;
+        finishedAt = System.currentTimeMillis();
+        result.completeExceptionally(e);
+    }
+
+    /**
+     * Queued jobs are dropped immediately; running jobs are interrupted and stop at their next checkpoint.
+     */
+    public boolean cancel() {
+        if (isFinished()) {
+            return false;
+        }
+        cancelled = true;
+        Future<?> current = execution;
+        if (state == State.QUEUED) {
+            if (current != null) {
+                current.cancel(false);
+            }
+            state = State.CANCELLED;
+            finishedAt = System.currentTimeMillis();
+            result.completeExceptionally(new CancellationException("Job #" + id + " was cancelled"));
+        } else if (current != null) {
+            current.cancel(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void setProgress(long done, long total) {
+        this.progressDone = done;
+        this.progressTotal = total;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    public double getProgress() {
+        long total = progressTotal;
+        return total > 0 ? Math.min(1.0, (double) progressDone / total) : 0.0;
+    }
+
+    public boolean hasProgress() {
+        return progressTotal > 0;
+    }
+
+    public long getElapsedMillis() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        return (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public JobType getType() {
+        return type;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public CompletableFuture<T> getResult() {
+        return result;
+    }
+}
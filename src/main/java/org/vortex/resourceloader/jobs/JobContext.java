@@ -0,0 +1,63 @@
+package org.vortex.resourceloader.jobs;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handed to running work so it can report progress and stop early when cancelled.
+ */
+public interface JobContext {
+    JobContext NONE = new JobContext() {
+        @Override
+        public void setProgress(long done, long total) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    void setProgress(long done, long total);
+
+    boolean isCancelled();
+
+    default void checkCancelled() {
+        if (isCancelled() || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Job was cancelled");
+        }
+    }
+
+    /**
+     * Waits for work the job handed to other threads, stopping early if the job is cancelled. An
+     * I/O error or cancellation in that work is rethrown as it is, anything else as unchecked.
+     */
+    default <T> T await(Future<T> future) throws IOException {
+        while (true) {
+            checkCancelled();
+            try {
+                return future.get(250, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still running, look for cancellation again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Job was cancelled");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+                if (cause instanceof CancellationException cancelled) {
+                    throw cancelled;
+                }
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                throw new IllegalStateException(cause.getMessage(), cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.vortex.resourceloader.jobs;
+
+import org.vortex.resourceloader.Resourceloader;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Runs heavy admin operations (merge, validate, compress, backup, re-hash, removal) off the main thread.
+ * CPU-bound and IO-bound jobs have their own concurrency limits and bounded queues, and all of them
+ * share one worker pool for their parallel stages instead of each creating its own threads.
+ */
+public class JobManager {
+    private static final int DEFAULT_MAX_CONCURRENT = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 16;
+    private static final int HISTORY_SIZE = 20;
+    private static final int SHUTDOWN_TIMEOUT = 5;
+
+    private final Logger logger;
+    private final Map<JobType.Resource, ThreadPoolExecutor> runners;
+    private final ExecutorService workerPool;
+    private final Map<Integer, Job<?>> activeJobs;
+    private final Deque<Job<?>> history;
+    private final AtomicInteger nextId;
+
+    public JobManager(Resourceloader plugin) {
+        this.logger = plugin.getLogger();
+        this.activeJobs = new ConcurrentHashMap<>();
+        this.history = new ConcurrentLinkedDeque<>();
+        this.nextId = new AtomicInteger(1);
+
+        int queueSize = Math.max(1, plugin.getConfig().getInt("jobs.queue-size", DEFAULT_QUEUE_SIZE));
+        int maxCpuJobs = Math.max(1, plugin.getConfig().getInt("jobs.max-concurrent", DEFAULT_MAX_CONCURRENT));
+        int maxIoJobs = Math.max(1, plugin.getConfig().getInt("jobs.max-concurrent-io", DEFAULT_MAX_CONCURRENT));
+        int workerThreads = plugin.getConfig().getInt("jobs.worker-threads", 0);
+        if (workerThreads <= 0) {
+            workerThreads = Runtime.getRuntime().availableProcessors();
+        }
+
+        this.runners = new EnumMap<>(JobType.Resource.class);
+        runners.put(JobType.Resource.CPU, createRunner(maxCpuJobs, queueSize, "Resourceloader-Job"));
+        runners.put(JobType.Resource.IO, createRunner(maxIoJobs, queueSize, "Resourceloader-IOJob"));
+        this.workerPool = Executors.newFixedThreadPool(workerThreads, namedThreads("Resourceloader-Worker"));
+    }
+
+    /**
+     * Applies changed {@code jobs.max-concurrent} and {@code jobs.max-concurrent-io} limits after a
+     * reload. Running jobs finish; the new limits apply to jobs started from then on. The queue size
+     * and worker threads are fixed until a restart.
+     */
+    public void reloadLimits(Resourceloader plugin) {
+        resize(runners.get(JobType.Resource.CPU),
+            Math.max(1, plugin.getConfig().getInt("jobs.max-concurrent", DEFAULT_MAX_CONCURRENT)));
+        resize(runners.get(JobType.Resource.IO),
+            Math.max(1, plugin.getConfig().getInt("jobs.max-concurrent-io", DEFAULT_MAX_CONCURRENT)));
+    }
+
+    private static void resize(ThreadPoolExecutor executor, int threads) {
+        // The core size may never exceed the maximum, so the order depends on the direction
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+
+    private static ThreadPoolExecutor createRunner(int threads, int queueSize, String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads, threads,
+            60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            namedThreads(name)
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory namedThreads(String name) {
+        AtomicInteger counter = new AtomicInteger(1);
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Queues a job. Jobs sharing a non-null key are mutually exclusive, e.g. two merges into the same output.
+     *
+     * @throws RejectedExecutionException if a job with the same key is active or the queue is full
+     */
+    public synchronized <T> Job<T> submit(JobType type, String description, String owner, String key, JobTask<T> task) {
+        if (key != null) {
+            Job<?> existing = findActive(key);
+            if (existing != null) {
+                throw new RejectedExecutionException("Job #" + existing.getId() + " is already working on " + description);
+            }
+        }
+
+        Job<T> job = new Job<>(nextId.getAndIncrement(), type, description, owner, key);
+        activeJobs.put(job.getId(), job);
+        job.getResult().whenComplete((value, error) -> retire(job));
+
+        try {
+            job.setExecution(runners.get(type.getResource()).submit(() -> job.execute(task)));
+        } catch (RejectedExecutionException e) {
+            RejectedExecutionException rejection = new RejectedExecutionException("The job queue is full", e);
+            job.fail(rejection);
+            throw rejection;
+        }
+
+        logger.fine("Queued job #" + job.getId() + " (" + type + "): " + description);
+        return job;
+    }
+
+    private void retire(Job<?> job) {
+        activeJobs.remove(job.getId());
+        history.addFirst(job);
+        while (history.size() > HISTORY_SIZE) {
+            history.pollLast();
+        }
+        if (job.getState() == Job.State.FAILED) {
+            job.getResult().exceptionally(e -> {
+                logger.warning("Job #" + job.getId() + " (" + job.getDescription() + ") failed: " + e.getMessage());
+                return null;
+            });
+        }
+    }
+
+    public Job<?> findActive(String key) {
+        for (Job<?> job : activeJobs.values()) {
+            if (key.equals(job.getKey()) && !job.isFinished()) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    public boolean cancel(int id) {
+        Job<?> job = activeJobs.get(id);
+        if (job == null || !job.cancel()) {
+            return false;
+        }
+        runners.values().forEach(ThreadPoolExecutor::purge);
+        logger.info("Cancelled job #" + id + " (" + job.getDescription() + ")");
+        return true;
+    }
+
+    public List<Job<?>> getActiveJobs() {
+        List<Job<?>> jobs = new ArrayList<>(activeJobs.values());
+        jobs.sort(Comparator.comparingInt(Job::getId));
+        return jobs;
+    }
+
+    public List<Job<?>> getRecentJobs() {
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * Shared pool for the parallel stages of running jobs (hashing, JSON merging, per-entry work).
+     */
+    public ExecutorService getWorkerPool() {
+        return workerPool;
+    }
+
+    public void shutdown() {
+        activeJobs.values().forEach(Job::cancel);
+        for (ExecutorService executor : runners.values()) {
+            executor.shutdown();
+        }
+        workerPool.shutdown();
+        try {
+            for (ExecutorService executor : runners.values()) {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            }
+            if (!workerPool.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                workerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            runners.values().forEach(ExecutorService::shutdownNow);
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
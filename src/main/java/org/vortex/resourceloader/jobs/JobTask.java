@@ -0,0 +1,6 @@
+package org.vortex.resourceloader.jobs;
+
+@FunctionalInterface
+public interface JobTask<T> {
+    T run(JobContext context) throws Exception;
+}
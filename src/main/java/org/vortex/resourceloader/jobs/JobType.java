@@ -0,0 +1,31 @@
+package org.vortex.resourceloader.jobs;
+
+/**
+ * Kinds of heavy admin work, tagged with the resource they mostly consume so
+ * CPU-bound and IO-bound jobs are limited independently.
+ */
+public enum JobType {
+    MERGE(Resource.CPU),
+    VALIDATE(Resource.CPU),
+    COMPRESS(Resource.CPU),
+    ANALYZE(Resource.CPU),
+    BACKUP(Resource.IO),
+    REHASH(Resource.IO),
+    REMOVE(Resource.IO),
+    CLEANUP(Resource.IO);
+
+    public enum Resource {
+        CPU,
+        IO
+    }
+
+    private final Resource resource;
+
+    JobType(Resource resource) {
+        this.resource = resource;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+}
@@ -11,7 +11,7 @@ import org.bukkit.event.player.PlayerResourcePackStatusEvent;
 import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.scheduler.BukkitTask;
 import org.vortex.resourceloader.Resourceloader;
-import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.compression.PackCompressor;
 
 import java.io.File;
 import java.util.List;
@@ -54,6 +54,12 @@ public class ResourcePackEnforcer implements Listener {
         List<String> preferences = plugin.getPackManager().getPlayerPreferences(player.getUniqueId());
         if (!preferences.isEmpty()) {
             String preferredPack = preferences.get(0);
+            List<String> addons = plugin.getPackManager().getPlayerAddons(player.getUniqueId());
+            if (plugin.getCompositePacks().isEnabled()
+                    && !plugin.getCompositePacks().resolveAddons(preferredPack, addons).isEmpty()) {
+                tryLoadComposite(player, preferredPack, addons);
+                return;
+            }
             plugin.getLogger().info("Loading autoload preference '" + preferredPack + "' for player " + player.getName());
             tryLoadPack(player, preferredPack, true);
             return;
@@ -72,6 +78,21 @@ public class ResourcePackEnforcer implements Listener {
         plugin.getLogger().info("No autoload preference or enforcement configured for player " + player.getName());
     }
 
+    private void tryLoadComposite(Player player, String basePack, List<String> addons) {
+        plugin.getLogger().info("Autoload: Loading composite of '" + basePack + "' with add-ons " + addons + " for player " + player.getName());
+        plugin.getCompositePacks().send(player, basePack, addons)
+            .exceptionally(e -> {
+                // Fall back to the plain base pack rather than leaving the player without one
+                plugin.getLogger().warning("Autoload: Failed to build composite pack for " + player.getName() + ": " + e.getMessage());
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) {
+                        tryLoadPack(player, basePack, true);
+                    }
+                });
+                return null;
+            });
+    }
+
     private void tryLoadPack(Player player, String packName, boolean isAutoload) {
         try {
             String packPath;
@@ -100,28 +121,15 @@ public class ResourcePackEnforcer implements Listener {
             if (packPath.startsWith("http")) {
                 plugin.getLogger().info(logPrefix + ": Loading URL-based pack from " + packPath);
                 plugin.getPackManager().getPackCache().getCachedPack(packPath, packName, player)
-                    .thenAccept(cachedFile -> {
+                    .thenAccept(cachedFile -> plugin.getServer().getScheduler().runTask(plugin, () -> {
                         if (!player.isOnline()) return;
                         try {
-                            byte[] hash = FileUtil.calcSHA1(cachedFile);
-                            String downloadUrl = plugin.getPackManager().getPackServer()
-                                .createDownloadURL(player, packName, cachedFile.getName());
-                            
-                            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                                if (player.isOnline()) {
-                                    if (hash != null) {
-                                        player.setResourcePack(downloadUrl, hash);
-                                        plugin.getLogger().info(logPrefix + ": Successfully sent pack '" + packName + "' to " + player.getName());
-                                    } else {
-                                        player.setResourcePack(downloadUrl);
-                                        plugin.getLogger().info(logPrefix + ": Successfully sent pack '" + packName + "' to " + player.getName() + " (no hash)");
-                                    }
-                                }
-                            });
+                            PackCompressor.PackVariant variant = plugin.getPackManager().sendPack(player, packName, cachedFile);
+                            plugin.getLogger().info(logPrefix + ": Successfully sent pack '" + packName + "' to " + player.getName() + describeVariant(variant));
                         } catch (Exception e) {
                             plugin.getLogger().warning(logPrefix + ": Failed to load pack '" + packName + "' for " + player.getName() + ": " + e.getMessage());
                         }
-                    })
+                    }))
                     .exceptionally(e -> {
                         plugin.getLogger().warning(logPrefix + ": Failed to cache pack '" + packName + "' for " + player.getName() + ": " + e.getMessage());
                         return null;
@@ -130,17 +138,8 @@ public class ResourcePackEnforcer implements Listener {
                 File packFile = new File(plugin.getDataFolder(), "packs/" + packPath);
                 if (packFile.exists()) {
                     plugin.getLogger().info(logPrefix + ": Loading local pack file: " + packFile.getName());
-                    String downloadUrl = plugin.getPackManager().getPackServer()
-                        .createDownloadURL(player, packName, packPath);
-                    byte[] hash = FileUtil.calcSHA1(packFile);
-                    
-                    if (hash != null) {
-                        player.setResourcePack(downloadUrl, hash);
-                        plugin.getLogger().info(logPrefix + ": Successfully sent local pack '" + packName + "' to " + player.getName());
-                    } else {
-                        player.setResourcePack(downloadUrl);
-                        plugin.getLogger().info(logPrefix + ": Successfully sent local pack '" + packName + "' to " + player.getName() + " (no hash)");
-                    }
+                    PackCompressor.PackVariant variant = plugin.getPackManager().sendPack(player, packName, packFile);
+                    plugin.getLogger().info(logPrefix + ": Successfully sent local pack '" + packName + "' to " + player.getName() + describeVariant(variant));
                 } else {
                     plugin.getLogger().warning(logPrefix + ": Pack file not found: " + packFile.getAbsolutePath());
                 }
@@ -151,6 +150,13 @@ public class ResourcePackEnforcer implements Listener {
         }
     }
 
+    private String describeVariant(PackCompressor.PackVariant variant) {
+        if (variant.lite()) {
+            return " (lite tier)";
+        }
+        return variant.level() != null ? " (" + variant.level().name().toLowerCase() + " compression)" : "";
+    }
+
     @EventHandler(priority = EventPriority.HIGH)
     public void onResourcePackStatus(PlayerResourcePackStatusEvent event) {
         Player player = event.getPlayer();
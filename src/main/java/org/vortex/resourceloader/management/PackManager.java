@@ -3,6 +3,7 @@ package org.vortex.resourceloader.management;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobType;
 
 import java.io.*;
 import java.nio.file.*;
@@ -133,7 +134,18 @@ public class PackManager {
         }
 
         int interval = Math.max(1, plugin.getConfig().getInt("backup.interval-hours", DEFAULT_BACKUP_INTERVAL));
-        scheduler.scheduleAtFixedRate(this::createBackup, 1, interval, TimeUnit.HOURS);
+        scheduler.scheduleAtFixedRate(this::queueBackup, 1, interval, TimeUnit.HOURS);
+    }
+
+    private void queueBackup() {
+        try {
+            plugin.getJobManager().submit(JobType.BACKUP, "Scheduled pack backup", "server", "backup", context -> {
+                createBackup();
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warning("Skipping scheduled backup: " + e.getMessage());
+        }
     }
 
     public void recordPackUsage(String packName, Player player, boolean success, long loadTime) {
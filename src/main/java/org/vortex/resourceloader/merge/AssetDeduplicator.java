@@ -0,0 +1,244 @@
+package org.vortex.resourceloader.merge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobContext;
+import org.vortex.resourceloader.merge.MergeManifest.Contributor;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.ZipUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+/**
+ * Finds byte-identical textures in a merged pack so only one copy is written, with the models,
+ * fonts and atlases that named another copy pointing at the one kept. Candidates are grouped by the
+ * CRC32 and size of the winning contributor, and only those groups are read and hashed with SHA-1.
+ * Only fields that hold texture ids are rewritten: the textures of a model, the file of a font
+ * provider and the resource and sprite of an atlas source.
+ *
+ * <p>A copy is only dropped if every reference to it can be rewritten, so only textures in folders
+ * that nothing but those fields reaches take part: {@code block/}, {@code item/} and {@code font/}
+ * outside the minecraft namespace, without an animation and not on the
+ * {@code optimization.prune.keep} list. The copy kept is in the same folder, so it is stitched into
+ * the same atlas.
+ */
+public class AssetDeduplicator {
+    private static final Set<String> REWRITTEN_TYPES = Set.of("models", "font", "atlases");
+    private static final Set<String> DEDUPLICATED_FOLDERS = Set.of("block", "item", "font");
+    private static final int BUFFER_SIZE = 32768;
+
+    private final ObjectMapper mapper;
+    private final List<Pattern> keep;
+
+    /**
+     * The copies left out of a merged pack, each mapped to the entry kept in its place.
+     */
+    public record Plan(Map<String, String> aliases, long savedBytes) {
+        public static final Plan NONE = new Plan(Map.of(), 0);
+    }
+
+    @FunctionalInterface
+    public interface EntryOpener {
+        InputStream open(String name) throws IOException;
+    }
+
+    public AssetDeduplicator(ObjectMapper mapper, List<String> keepPatterns) {
+        this.mapper = mapper;
+        this.keep = keepPatterns.stream().map(FileUtil::globPattern).toList();
+    }
+
+    public static AssetDeduplicator fromConfig(Resourceloader plugin, ObjectMapper mapper) {
+        return new AssetDeduplicator(mapper, plugin.getConfig().getStringList("optimization.prune.keep"));
+    }
+
+    /**
+     * @param winners the contributor written for each non-JSON entry of the merged pack
+     * @param names   every entry of the merged pack
+     * @param opener  reads an entry as it will be written
+     */
+    public Plan plan(Map<String, Contributor> winners, Set<String> names, EntryOpener opener,
+                     ExecutorService workers, JobContext context) throws IOException {
+        Map<String, List<String>> candidates = new HashMap<>();
+        for (Map.Entry<String, Contributor> entry : winners.entrySet()) {
+            String name = entry.getKey();
+            String folder = atlasFolder(name, names);
+            Contributor winner = entry.getValue();
+            if (folder != null && winner.size() > 0) {
+                candidates.computeIfAbsent(winner.crc() + ":" + winner.size() + ":" + folder, key -> new ArrayList<>()).add(name);
+            }
+        }
+
+        List<CompletableFuture<Map<String, String>>> groups = new ArrayList<>();
+        for (List<String> group : candidates.values()) {
+            if (group.size() > 1 && group.stream().anyMatch(this::isRemovable)) {
+                groups.add(CompletableFuture.supplyAsync(() -> hashGroup(group, opener, context), workers));
+            }
+        }
+
+        Map<String, String> aliases = new HashMap<>();
+        try {
+            for (CompletableFuture<Map<String, String>> group : groups) {
+                aliases.putAll(context.await(group));
+            }
+        } finally {
+            groups.forEach(group -> group.handle((result, error) -> null).join());
+        }
+        long saved = aliases.keySet().stream().mapToLong(name -> winners.get(name).size()).sum();
+        return new Plan(Map.copyOf(aliases), saved);
+    }
+
+    /**
+     * The folder of a texture that decides which atlas stitches it, or null if the texture cannot
+     * take part in deduplication at all.
+     */
+    private static String atlasFolder(String name, Set<String> names) {
+        String[] parts = name.split("/", 4);
+        if (parts.length < 4 || !parts[0].equals("assets") || !parts[2].equals("textures") || !name.endsWith(".png")
+                || names.contains(name + ".mcmeta")) {
+            return null;
+        }
+        int slash = parts[3].indexOf('/');
+        String folder = slash > 0 ? parts[3].substring(0, slash) : null;
+        return DEDUPLICATED_FOLDERS.contains(folder) ? folder : null;
+    }
+
+    private boolean isRemovable(String name) {
+        return !name.startsWith("assets/minecraft/") && keep.stream().noneMatch(pattern -> pattern.matcher(name).matches());
+    }
+
+    /**
+     * Splits one size and CRC group by content and picks the copy each content is kept as: one that
+     * has to stay anyway if there is such, otherwise the first by name.
+     */
+    private Map<String, String> hashGroup(List<String> group, EntryOpener opener, JobContext context) {
+        Map<String, List<String>> byContent = new HashMap<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String name : group) {
+                context.checkCancelled();
+                try (InputStream in = opener.open(name)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+                byContent.computeIfAbsent(FileUtil.toHex(digest.digest()), key -> new ArrayList<>()).add(name);
+            }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+
+        Map<String, String> aliases = new HashMap<>();
+        for (List<String> identical : byContent.values()) {
+            identical.sort(Comparator.comparing(this::isRemovable).thenComparing(Comparator.naturalOrder()));
+            String canonical = identical.get(0);
+            for (String name : identical.subList(1, identical.size())) {
+                if (isRemovable(name)) {
+                    aliases.put(name, canonical);
+                }
+            }
+        }
+        return aliases;
+    }
+
+    /**
+     * The merged content of {@code name} with references to dropped copies replaced; the same array
+     * if nothing referred to one.
+     */
+    public byte[] rewrite(String name, byte[] data, Plan plan, boolean deterministic) throws IOException {
+        String[] parts = name.split("/", 4);
+        if (plan.aliases().isEmpty() || parts.length < 4 || !parts[0].equals("assets")
+                || !REWRITTEN_TYPES.contains(parts[2])) {
+            return data;
+        }
+        JsonNode json;
+        try {
+            json = mapper.readTree(data);
+        } catch (IOException e) {
+            // Left as it is, like the merge does with files it cannot parse
+            return data;
+        }
+        if (json == null || !replace(parts[2], json, plan.aliases())) {
+            return data;
+        }
+        return ZipUtil.jsonWriter(mapper, deterministic).writeValueAsBytes(json);
+    }
+
+    /**
+     * Rewrites the texture id fields of a model, font or atlas.
+     */
+    private static boolean replace(String type, JsonNode json, Map<String, String> aliases) {
+        boolean changed = false;
+        switch (type) {
+            case "models" -> {
+                if (json.path("textures") instanceof ObjectNode textures) {
+                    List<String> variables = new ArrayList<>();
+                    textures.fieldNames().forEachRemaining(variables::add);
+                    for (String variable : variables) {
+                        changed |= replaceField(textures, variable, aliases);
+                    }
+                }
+            }
+            case "font" -> {
+                for (JsonNode provider : json.path("providers")) {
+                    changed |= replaceField(provider, "file", aliases);
+                }
+            }
+            case "atlases" -> {
+                for (JsonNode source : json.path("sources")) {
+                    changed |= replaceField(source, "resource", aliases);
+                    changed |= replaceField(source, "sprite", aliases);
+                }
+            }
+            default -> {
+                // Nothing else names textures by id
+            }
+        }
+        return changed;
+    }
+
+    private static boolean replaceField(JsonNode node, String field, Map<String, String> aliases) {
+        if (!(node instanceof ObjectNode object) || !object.path(field).isTextual()) {
+            return false;
+        }
+        String target = target(object.get(field).asText(), aliases);
+        if (target == null) {
+            return false;
+        }
+        object.put(field, target);
+        return true;
+    }
+
+    /**
+     * The location of the kept copy if {@code location} names a dropped one, in the same form: fonts
+     * name textures with their extension, models and atlases without.
+     */
+    private static String target(String location, Map<String, String> aliases) {
+        int colon = location.indexOf(':');
+        if (colon <= 0) {
+            // Without a namespace it is a minecraft texture, and those are never dropped
+            return null;
+        }
+        String path = location.substring(colon + 1);
+        boolean extension = path.endsWith(".png");
+        String canonical = aliases.get("assets/" + location.substring(0, colon) + "/textures/" + path
+            + (extension ? "" : ".png"));
+        if (canonical == null) {
+            return null;
+        }
+        String[] parts = canonical.split("/", 4);
+        String canonicalPath = parts[3];
+        return parts[1] + ":" + (extension ? canonicalPath : canonicalPath.substring(0, canonicalPath.length() - 4));
+    }
+}
@@ -0,0 +1,248 @@
+package org.vortex.resourceloader.merge;
+
+import org.bukkit.entity.Player;
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobType;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.ZipUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Builds per-player composite packs (a base pack plus the player's add-ons) on demand.
+ * Composites are keyed by the content hashes of their inputs, so every player who picks
+ * the same combination shares one build; old composites are evicted to stay within a byte budget.
+ */
+public class CompositePackManager {
+    private static final long DEFAULT_CACHE_SIZE_MB = 512;
+
+    private final Resourceloader plugin;
+    private final Logger logger;
+    private final File compositeDir;
+    private final Map<String, Composite> composites;
+    private final Map<String, CompletableFuture<Composite>> pendingBuilds;
+
+    public record Composite(String key, File file, byte[] sha1) {}
+
+    public CompositePackManager(Resourceloader plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.compositeDir = new File(plugin.getDataFolder(), "composites");
+        this.composites = new ConcurrentHashMap<>();
+        this.pendingBuilds = new ConcurrentHashMap<>();
+    }
+
+    public boolean isEnabled() {
+        return plugin.getConfig().getBoolean("composite.enabled", false);
+    }
+
+    /**
+     * Keeps only add-ons that are allowed and registered, in the layering order of {@code composite.addons}.
+     * With an empty list every registered pack may be used as an add-on, layered by pack name, so
+     * players who picked the same add-ons in a different order still share one composite.
+     */
+    public List<String> resolveAddons(String basePack, List<String> addons) {
+        List<String> allowed = plugin.getConfig().getStringList("composite.addons");
+        List<String> ordered = new ArrayList<>();
+        for (String addon : allowed.isEmpty() ? addons.stream().sorted().toList() : allowed) {
+            if (addons.contains(addon) && !addon.equals(basePack) && !ordered.contains(addon)
+                    && plugin.getResourcePacks().containsKey(addon)) {
+                ordered.add(addon);
+            }
+        }
+        return ordered;
+    }
+
+    public boolean isAllowedAddon(String packName) {
+        List<String> allowed = plugin.getConfig().getStringList("composite.addons");
+        return allowed.isEmpty() || allowed.contains(packName);
+    }
+
+    /**
+     * Returns the composite for the base pack plus add-ons, building it if no player has used this combination yet.
+     */
+    public CompletableFuture<Composite> getComposite(String basePack, List<String> addons) {
+        List<String> layers = new ArrayList<>();
+        layers.add(basePack);
+        layers.addAll(resolveAddons(basePack, addons));
+
+        List<CompletableFuture<File>> inputs = new ArrayList<>();
+        for (String layer : layers) {
+            inputs.add(plugin.getPackManager().resolvePackFile(layer));
+        }
+
+        ExecutorService workers = plugin.getJobManager().getWorkerPool();
+        return CompletableFuture.allOf(inputs.toArray(new CompletableFuture[0]))
+            .thenComposeAsync(ignored -> {
+                List<File> files = new ArrayList<>();
+                inputs.forEach(input -> files.add(input.join()));
+
+                String key = computeKey(files);
+                Composite existing = findComposite(key);
+                if (existing != null) {
+                    existing.file().setLastModified(System.currentTimeMillis());
+                    return CompletableFuture.completedFuture(existing);
+                }
+                return build(key, layers, files);
+            }, workers);
+    }
+
+    /**
+     * Builds the player's composite and sends it. Completes exceptionally if it could not be built,
+     * so the caller can fall back to the base pack.
+     */
+    public CompletableFuture<Composite> send(Player player, String basePack, List<String> addons) {
+        return getComposite(basePack, addons).thenApply(composite -> {
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline()) {
+                    return;
+                }
+                try {
+                    plugin.getPackManager().sendPack(player, basePack, composite.file());
+                } catch (IOException e) {
+                    logger.warning("Failed to send composite pack to " + player.getName() + ": " + e.getMessage());
+                }
+            });
+            return composite;
+        });
+    }
+
+    private Composite findComposite(String key) {
+        Composite composite = composites.get(key);
+        if (composite != null && composite.file().exists()) {
+            return composite;
+        }
+
+        // Built before a restart
+        File file = new File(compositeDir, key + ".zip");
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            composite = new Composite(key, file, FileUtil.calcSHA1(file));
+            composites.put(key, composite);
+            return composite;
+        } catch (IOException e) {
+            logger.warning("Failed to hash composite pack " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private CompletableFuture<Composite> build(String key, List<String> layers, List<File> files) {
+        CompletableFuture<Composite> future = new CompletableFuture<>();
+        CompletableFuture<Composite> pending = pendingBuilds.putIfAbsent(key, future);
+        if (pending != null) {
+            return pending;
+        }
+
+        List<CompletableFuture<File>> inputs = new ArrayList<>();
+        files.forEach(file -> inputs.add(CompletableFuture.completedFuture(file)));
+        File outputFile = new File(compositeDir, key + ".zip");
+
+        try {
+            plugin.getJobManager().submit(JobType.MERGE, "Composite " + String.join(" + ", layers), "server",
+                "composite:" + key, context -> {
+                    compositeDir.mkdirs();
+                    plugin.getMerger().mergeInto(inputs, outputFile, null, context);
+                    Composite composite = new Composite(key, outputFile, FileUtil.calcSHA1(outputFile));
+                    composites.put(key, composite);
+                    enforceBudget(key);
+                    logger.info("Built composite pack " + String.join(" + ", layers) + " (" + key + ")");
+                    return composite;
+                }).getResult().whenComplete((composite, error) -> {
+                    pendingBuilds.remove(key, future);
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                    } else {
+                        future.complete(composite);
+                    }
+                });
+        } catch (RejectedExecutionException e) {
+            pendingBuilds.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Deletes the least recently used composites until the directory fits the configured byte budget.
+     */
+    private void enforceBudget(String keep) {
+        long budget = plugin.getConfig().getLong("composite.cache-size-mb", DEFAULT_CACHE_SIZE_MB) * 1024 * 1024;
+        File[] files = compositeDir.listFiles((dir, name) -> name.endsWith(".zip"));
+        if (files == null) {
+            return;
+        }
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= budget) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= budget) {
+                break;
+            }
+            String key = file.getName().substring(0, file.getName().length() - ".zip".length());
+            if (key.equals(keep) || pendingBuilds.containsKey(key)) {
+                continue;
+            }
+            long size = file.length();
+            if (file.delete()) {
+                composites.remove(key);
+                total -= size;
+                logger.fine("Evicted composite pack " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Content key of a combination: {@link #resolveAddons} layers add-ons in the configured order or
+     * by name, never in the order a player picked them, so equal selections always produce the same
+     * sequence of input hashes. The merge settings that change the output bytes are part of the key,
+     * so a composite built before they changed is never reused.
+     */
+    private String computeKey(List<File> files) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            String settings = String.join(";",
+                "deterministic=" + ZipUtil.isDeterministic(plugin),
+                "dedup=" + plugin.getConfig().getBoolean("merge.deduplicate", true),
+                "format=" + plugin.getMerger().getPackFormat());
+            digest.update((settings + '\n').getBytes(StandardCharsets.UTF_8));
+            for (File file : files) {
+                String hash = plugin.getHashCache().getOrCalculateHash(file);
+                if (hash == null) {
+                    throw new CompletionException(new IOException("Failed to hash " + file.getName()));
+                }
+                digest.update((hash + '\n').getBytes(StandardCharsets.UTF_8));
+            }
+            return FileUtil.toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new CompletionException(new IOException("SHA-1 algorithm not available", e));
+        }
+    }
+
+    public void clear() {
+        composites.clear();
+        File[] files = compositeDir.listFiles((dir, name) -> name.endsWith(".zip"));
+        if (files != null) {
+            for (File file : files) {
+                if (!pendingBuilds.containsKey(file.getName().replace(".zip", "")) && !file.delete()) {
+                    logger.warning("Failed to delete composite pack " + file.getName());
+                }
+            }
+        }
+    }
+}
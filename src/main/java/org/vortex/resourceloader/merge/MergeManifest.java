@@ -0,0 +1,64 @@
+package org.vortex.resourceloader.merge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.vortex.resourceloader.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Records which inputs contributed each entry of a merged pack (and their CRCs),
+ * so a later merge of the same inputs only rebuilds the entries that changed.
+ *
+ * @param deduplicated whether identical textures were written once, see {@link AssetDeduplicator}
+ * @param deterministic whether entries were written with fixed timestamps and key order
+ */
+public record MergeManifest(int packFormat, boolean deduplicated, boolean deterministic, List<InputRecord> inputs,
+                            Map<String, List<Contributor>> entries) {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public record InputRecord(String name, String sha1) {}
+
+    public record Contributor(int input, long crc, long size) {}
+
+    public static File getManifestFile(File dataFolder, String outputName) {
+        return new File(dataFolder, "merge_manifests/" + outputName + ".json");
+    }
+
+    public static MergeManifest load(File file, Logger logger) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(file, MergeManifest.class);
+        } catch (IOException e) {
+            logger.warning("Ignoring unreadable merge manifest " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void save(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        MAPPER.writeValue(tempFile, this);
+        FileUtil.replaceFile(tempFile.toPath(), file.toPath());
+    }
+
+    /**
+     * Contributor indices are only comparable when the same packs are merged in the same order.
+     */
+    public boolean hasSameLayout(List<InputRecord> other) {
+        if (inputs.size() != other.size()) {
+            return false;
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            if (!inputs.get(i).name().equals(other.get(i).name())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
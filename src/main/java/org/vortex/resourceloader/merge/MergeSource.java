@@ -0,0 +1,179 @@
+package org.vortex.resourceloader.merge;
+
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.RawZipReader;
+import org.vortex.resourceloader.util.ZipIndex;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A merge input that exposes its entries (with CRCs) without extracting anything.
+ * Zip packs are listed from their {@link ZipIndex} and only opened once an entry is read,
+ * folder packs are walked.
+ */
+public abstract class MergeSource implements Closeable {
+    private static final int BUFFER_SIZE = 32768;
+
+    public record SourceEntry(String name, long crc, long size) {}
+
+    protected final File file;
+
+    protected MergeSource(File file) {
+        this.file = file;
+    }
+
+    public static MergeSource open(File pack, Resourceloader plugin) throws IOException {
+        if (pack.isDirectory()) {
+            return new DirectorySource(pack);
+        }
+        return new ZipSource(pack, plugin.getZipIndexes().get(pack), plugin.getHashCache().getOrCalculateHash(pack));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getName() {
+        return file.getName();
+    }
+
+    public abstract Collection<SourceEntry> getEntries();
+
+    public abstract InputStream openStream(String name) throws IOException;
+
+    /**
+     * Content hash of the whole input, used to detect that nothing changed since the last merge.
+     */
+    public abstract String computeHash() throws IOException;
+
+    public byte[] readEntry(String name) throws IOException {
+        try (InputStream in = openStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static class ZipSource extends MergeSource {
+        private final List<SourceEntry> entries;
+        private final String hash;
+        private ZipFile zipFile;
+
+        /**
+         * @param hash SHA-1 of the pack if already known, or null
+         */
+        ZipSource(File pack, ZipIndex index, String hash) {
+            super(pack);
+            this.entries = new ArrayList<>();
+            this.hash = hash;
+            for (RawZipReader.Entry entry : index.getEntries()) {
+                if (!entry.name().endsWith("/")) {
+                    entries.add(new SourceEntry(entry.name(), entry.crc(), entry.size()));
+                }
+            }
+        }
+
+        @Override
+        public Collection<SourceEntry> getEntries() {
+            return entries;
+        }
+
+        @Override
+        public InputStream openStream(String name) throws IOException {
+            ZipFile zip = zipFile();
+            ZipEntry entry = zip.getEntry(name);
+            if (entry == null) {
+                throw new FileNotFoundException(name + " not found in " + file.getName());
+            }
+            return zip.getInputStream(entry);
+        }
+
+        private synchronized ZipFile zipFile() throws IOException {
+            if (zipFile == null) {
+                zipFile = new ZipFile(file);
+            }
+            return zipFile;
+        }
+
+        @Override
+        public String computeHash() throws IOException {
+            return hash != null ? hash : FileUtil.toHex(FileUtil.calcSHA1(file));
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (zipFile != null) {
+                zipFile.close();
+            }
+        }
+    }
+
+    private static class DirectorySource extends MergeSource {
+        private final Map<String, SourceEntry> entries;
+
+        DirectorySource(File dir) throws IOException {
+            super(dir);
+            this.entries = new TreeMap<>();
+            Path root = dir.toPath();
+            try (Stream<Path> walk = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                    String name = root.relativize(path).toString().replace('\\', '/');
+                    entries.put(name, new SourceEntry(name, crcOf(path), Files.size(path)));
+                }
+            }
+        }
+
+        private static long crcOf(Path path) throws IOException {
+            CRC32 crc = new CRC32();
+            try (InputStream in = Files.newInputStream(path)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                }
+            }
+            return crc.getValue();
+        }
+
+        @Override
+        public Collection<SourceEntry> getEntries() {
+            return entries.values();
+        }
+
+        @Override
+        public InputStream openStream(String name) throws IOException {
+            if (!entries.containsKey(name)) {
+                throw new FileNotFoundException(name + " not found in " + file.getName());
+            }
+            return new BufferedInputStream(Files.newInputStream(file.toPath().resolve(name)), BUFFER_SIZE);
+        }
+
+        @Override
+        public String computeHash() throws IOException {
+            // Folders have no single file to hash, so fingerprint the sorted entry list instead
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-1");
+                for (SourceEntry entry : entries.values()) {
+                    digest.update((entry.name() + ':' + entry.crc() + ':' + entry.size() + '\n')
+                        .getBytes(StandardCharsets.UTF_8));
+                }
+                return FileUtil.toHex(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("SHA-1 algorithm not available", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            // Nothing held open
+        }
+    }
+}
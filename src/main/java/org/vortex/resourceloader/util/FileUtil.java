@@ -5,6 +5,7 @@ import java.io.*;
 import java.nio.file.*;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import java.util.zip.*;
 import java.util.logging.Logger;
@@ -34,6 +35,30 @@ public class FileUtil {
         }
     }
 
+    public static String toHex(byte[] hash) {
+        StringBuilder hexString = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) hexString.append('0');
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+
+    public static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    public static String formatSize(long bytes) {
+        if (Math.abs(bytes) < 1024) return bytes + " B";
+        if (Math.abs(bytes) < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
     public static void validateZipFile(File file) throws IOException {
         if (file == null || !file.exists()) {
             throw new FileNotFoundException("File does not exist");
@@ -66,6 +91,18 @@ public class FileUtil {
         }
     }
 
+    /**
+     * Moves {@code source} over {@code target}, atomically where the file system supports it, so
+     * readers see either the old file or the new one.
+     */
+    public static void replaceFile(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     public static void safeMove(Path source, Path target) throws IOException {
         if (!Files.exists(source)) {
             throw new FileNotFoundException("Source file does not exist: " + source);
@@ -87,12 +124,7 @@ public class FileUtil {
             Files.copy(source, tempFile, StandardCopyOption.REPLACE_EXISTING);
 
             // Atomic move from temp to target
-            try {
-                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
-            } catch (AtomicMoveNotSupportedException e) {
-                // Fallback to non-atomic move if atomic is not supported
-                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
-            }
+            replaceFile(tempFile, target);
         } finally {
             // Clean up temp file if it still exists
             if (tempFile != null) {
@@ -133,6 +165,27 @@ public class FileUtil {
         return filename.substring(filename.lastIndexOf(".") + 1);
     }
 
+    /**
+     * A glob over entry names: {@code *} stays within a folder, {@code **} crosses folders.
+     */
+    public static Pattern globPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
     public static boolean isValidResourcePack(File file) {
         if (file == null || !file.exists() || !file.isFile()) {
             return false;
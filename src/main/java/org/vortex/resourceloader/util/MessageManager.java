@@ -10,6 +10,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
 public class MessageManager {
@@ -105,16 +106,17 @@ public class MessageManager {
             return formatMessage(message);
         }
 
+        // Placeholders are matched once in the original message and replaced from the end, so the
+        // positions of earlier placeholders stay valid and a value containing %name% is kept as is
         StringBuilder result = new StringBuilder(message);
-        PLACEHOLDER_PATTERN.matcher(message).results().forEach(matchResult -> {
-            String placeholder = matchResult.group(1);
-            String value = placeholders.get(placeholder);
+        List<MatchResult> matches = PLACEHOLDER_PATTERN.matcher(message).results().toList();
+        for (int i = matches.size() - 1; i >= 0; i--) {
+            MatchResult matchResult = matches.get(i);
+            String value = placeholders.get(matchResult.group(1));
             if (value != null) {
-                int start = matchResult.start();
-                int end = matchResult.end();
-                result.replace(start, end, value);
+                result.replace(matchResult.start(), matchResult.end(), value);
             }
-        });
+        }
         return formatMessage(result.toString());
     }
 
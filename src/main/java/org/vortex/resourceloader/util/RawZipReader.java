@@ -0,0 +1,192 @@
+package org.vortex.resourceloader.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads a zip's central directory (including ZIP64 records) and hands out entries' compressed bytes
+ * without inflating them. Reads are positional, so one reader can be shared by several threads.
+ */
+public class RawZipReader implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int COPY_BUFFER_SIZE = 65536;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT = 0xFFFF;
+
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+
+    public record Entry(String name, int method, int dosTime, long crc, long compressedSize, long size, long localHeaderOffset) {}
+
+    public RawZipReader(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            this.entries = readCentralDirectory();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private Map<String, Entry> readCentralDirectory() throws IOException {
+        long fileSize = channel.size();
+        int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT);
+        ByteBuffer tail = read(fileSize - tailSize, tailSize);
+
+        int end = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new IOException("Not a zip file: end of central directory not found");
+        }
+
+        long count = tail.getShort(end + 10) & 0xFFFF;
+        long centralSize = tail.getInt(end + 12) & MAX_32;
+        long centralOffset = tail.getInt(end + 16) & MAX_32;
+        long endOffset = fileSize - tailSize + end;
+        if (endOffset >= 20 && (count == 0xFFFF || centralSize == MAX_32 || centralOffset == MAX_32)) {
+            ByteBuffer locator = read(endOffset - 20, 20);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer end64 = read(locator.getLong(8), 56);
+                if (end64.getInt(0) != ZIP64_END_SIGNATURE) {
+                    throw new IOException("Corrupt zip file: bad ZIP64 end of central directory");
+                }
+                count = end64.getLong(32);
+                centralSize = end64.getLong(40);
+                centralOffset = end64.getLong(48);
+            }
+        }
+        if (centralOffset + centralSize > fileSize || centralSize > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt zip file: central directory out of bounds");
+        }
+
+        ByteBuffer central = read(centralOffset, (int) centralSize);
+        Map<String, Entry> result = new LinkedHashMap<>();
+        int position = 0;
+        for (long i = 0; i < count; i++) {
+            if (central.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Corrupt zip file: bad central directory header");
+            }
+            int method = central.getShort(position + 10) & 0xFFFF;
+            int dosTime = central.getInt(position + 12);
+            long crc = central.getInt(position + 16) & MAX_32;
+            long compressedSize = central.getInt(position + 20) & MAX_32;
+            long size = central.getInt(position + 24) & MAX_32;
+            int nameLength = central.getShort(position + 28) & 0xFFFF;
+            int extraLength = central.getShort(position + 30) & 0xFFFF;
+            int commentLength = central.getShort(position + 32) & 0xFFFF;
+            long localOffset = central.getInt(position + 42) & MAX_32;
+
+            byte[] nameBytes = new byte[nameLength];
+            central.get(position + 46, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // Overflowing fields are in the ZIP64 extra field, in this order
+            int extra = position + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = central.getShort(extra) & 0xFFFF;
+                int length = central.getShort(extra + 2) & 0xFFFF;
+                if (id == ZIP64_EXTRA_ID) {
+                    int field = extra + 4;
+                    if (size == MAX_32 && field + 8 <= extra + 4 + length) {
+                        size = central.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == MAX_32 && field + 8 <= extra + 4 + length) {
+                        compressedSize = central.getLong(field);
+                        field += 8;
+                    }
+                    if (localOffset == MAX_32 && field + 8 <= extra + 4 + length) {
+                        localOffset = central.getLong(field);
+                    }
+                    break;
+                }
+                extra += 4 + length;
+            }
+            result.put(name, new Entry(name, method, dosTime, crc, compressedSize, size, localOffset));
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return result;
+    }
+
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * The entry's data exactly as stored in the archive (deflated bytes for deflated entries).
+     */
+    public byte[] readRaw(Entry entry) throws IOException {
+        if (entry.compressedSize() > Integer.MAX_VALUE - 8) {
+            throw new IOException("Entry " + entry.name() + " is too large to read at once");
+        }
+        return read(dataOffset(entry), (int) entry.compressedSize()).array();
+    }
+
+    /**
+     * Streams the entry's data exactly as stored in the archive, for entries too large to hold in memory.
+     */
+    public void copyRaw(Entry entry, OutputStream out) throws IOException {
+        long position = dataOffset(entry);
+        long remaining = entry.compressedSize();
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        while (remaining > 0) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of zip file");
+            }
+            out.write(buffer.array(), 0, read);
+            position += read;
+            remaining -= read;
+        }
+    }
+
+    private long dataOffset(Entry entry) throws IOException {
+        ByteBuffer local = read(entry.localHeaderOffset(), 30);
+        if (local.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Corrupt zip file: bad local header for " + entry.name());
+        }
+        int nameLength = local.getShort(26) & 0xFFFF;
+        int extraLength = local.getShort(28) & 0xFFFF;
+        return entry.localHeaderOffset() + 30 + nameLength + extraLength;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of zip file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
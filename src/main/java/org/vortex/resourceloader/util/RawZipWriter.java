@@ -0,0 +1,303 @@
+package org.vortex.resourceloader.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+/**
+ * Minimal zip writer that takes entry data already compressed. Unlike {@link java.util.zip.ZipOutputStream}
+ * it can copy deflated bytes from another archive verbatim, and since every header field comes from
+ * the caller, an entry copied from a previous build is byte-identical to one encoded from scratch.
+ *
+ * <p>Large entries can be streamed with {@link #beginEntry}; their sizes and CRC are patched into
+ * the local header afterwards, so no data descriptors are needed. ZIP64 records are written only
+ * where a size, offset or the entry count does not fit the classic format.
+ */
+public class RawZipWriter implements Closeable {
+    /**
+     * Entries at least this large get ZIP64 sizes in their local header. Below it, even the worst-case
+     * deflate expansion stays under 4 GB.
+     */
+    public static final long ZIP64_THRESHOLD = 0xFF000000L;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final List<CentralRecord> records;
+    private long offset;
+    private EntryStream open;
+
+    private record CentralRecord(byte[] name, int method, int dosTime, long crc, long compressedSize, long size,
+                                 long offset, boolean zip64) {}
+
+    public RawZipWriter(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.records = new ArrayList<>();
+    }
+
+    /**
+     * Writes one entry. {@code data} is the stored bytes for {@link ZipEntry#STORED} and the raw
+     * (headerless) deflate stream for {@link ZipEntry#DEFLATED}.
+     */
+    public void writeEntry(String name, int dosTime, int method, long crc, long size, byte[] data) throws IOException {
+        writeEntry(name, dosTime, method, crc, size, data, 0, data.length);
+    }
+
+    public void writeEntry(String name, int dosTime, int method, long crc, long size,
+                           byte[] data, int dataOffset, int length) throws IOException {
+        ensureNoOpenEntry();
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long headerOffset = offset;
+        boolean zip64 = size >= ZIP64_THRESHOLD;
+        write(localHeader(nameBytes, method, dosTime, crc, length, size, zip64));
+        write(data, dataOffset, length);
+        records.add(new CentralRecord(nameBytes, method, dosTime, crc, length, size, headerOffset, zip64));
+    }
+
+    public void writeDirectory(String name, int dosTime) throws IOException {
+        writeEntry(name, dosTime, ZipEntry.STORED, 0, 0, new byte[0]);
+    }
+
+    /**
+     * Starts an entry whose data is written to the returned stream, for entries too large to hold in
+     * memory. The local header is completed by {@link #endEntry}. {@code expectedSize} is the
+     * uncompressed size and decides on ZIP64 the same way {@link #writeEntry} does, so a streamed and
+     * a buffered copy of an entry get identical headers.
+     */
+    public OutputStream beginEntry(String name, int dosTime, int method, long expectedSize) throws IOException {
+        ensureNoOpenEntry();
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        boolean zip64 = expectedSize >= ZIP64_THRESHOLD;
+        open = new EntryStream(nameBytes, method, dosTime, offset, zip64);
+        write(localHeader(nameBytes, method, dosTime, 0, 0, 0, zip64));
+        open.dataStart = offset;
+        return open;
+    }
+
+    public void endEntry(long crc, long size) throws IOException {
+        if (open == null) {
+            throw new IllegalStateException("No entry is open");
+        }
+        EntryStream entry = open;
+        open = null;
+        long compressedSize = offset - entry.dataStart;
+        if (!entry.zip64 && (size >= MAX_32 || compressedSize >= MAX_32)) {
+            throw new IOException("Entry " + new String(entry.name, StandardCharsets.UTF_8)
+                + " is larger than its declared size allows");
+        }
+
+        flush();
+        ByteBuffer header = localHeader(entry.name, entry.method, entry.dosTime, crc, compressedSize, size, entry.zip64);
+        header.rewind();
+        while (header.hasRemaining()) {
+            channel.write(header, entry.headerOffset + header.position());
+        }
+        records.add(new CentralRecord(entry.name, entry.method, entry.dosTime, crc, compressedSize, size,
+            entry.headerOffset, entry.zip64));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (open != null) {
+                throw new IOException("Entry " + new String(open.name, StandardCharsets.UTF_8) + " was not finished");
+            }
+            long centralOffset = offset;
+            for (CentralRecord record : records) {
+                write(centralHeader(record));
+            }
+            long centralSize = offset - centralOffset;
+
+            boolean zip64End = records.size() >= MAX_16 || centralOffset >= MAX_32 || centralSize >= MAX_32;
+            if (zip64End) {
+                long zip64EndOffset = offset;
+                ByteBuffer end64 = allocate(56);
+                end64.putInt(ZIP64_END_SIGNATURE)
+                    .putLong(44)
+                    .putShort((short) 45)
+                    .putShort((short) 45)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(records.size())
+                    .putLong(records.size())
+                    .putLong(centralSize)
+                    .putLong(centralOffset);
+                write(end64);
+
+                ByteBuffer locator = allocate(20);
+                locator.putInt(ZIP64_LOCATOR_SIGNATURE)
+                    .putInt(0)
+                    .putLong(zip64EndOffset)
+                    .putInt(1);
+                write(locator);
+            }
+
+            ByteBuffer end = allocate(22);
+            end.putInt(END_SIGNATURE)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) Math.min(records.size(), MAX_16))
+                .putShort((short) Math.min(records.size(), MAX_16))
+                .putInt((int) Math.min(centralSize, MAX_32))
+                .putInt((int) Math.min(centralOffset, MAX_32))
+                .putShort((short) 0);
+            write(end);
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private ByteBuffer localHeader(byte[] name, int method, int dosTime, long crc, long compressedSize, long size,
+                                   boolean zip64) {
+        ByteBuffer header = allocate(30 + name.length + (zip64 ? 20 : 0));
+        header.putInt(LOCAL_HEADER_SIGNATURE)
+            .putShort((short) versionNeeded(method, zip64))
+            .putShort((short) UTF8_FLAG)
+            .putShort((short) method)
+            .putInt(dosTime)
+            .putInt((int) crc)
+            .putInt(zip64 ? (int) MAX_32 : (int) compressedSize)
+            .putInt(zip64 ? (int) MAX_32 : (int) size)
+            .putShort((short) name.length)
+            .putShort((short) (zip64 ? 20 : 0))
+            .put(name);
+        if (zip64) {
+            header.putShort((short) ZIP64_EXTRA_ID)
+                .putShort((short) 16)
+                .putLong(size)
+                .putLong(compressedSize);
+        }
+        return header;
+    }
+
+    private ByteBuffer centralHeader(CentralRecord record) {
+        // Only the fields that overflow go into the ZIP64 extra field, in the order the format defines
+        List<Long> extra = new ArrayList<>();
+        if (record.size() >= MAX_32) {
+            extra.add(record.size());
+        }
+        if (record.compressedSize() >= MAX_32) {
+            extra.add(record.compressedSize());
+        }
+        if (record.offset() >= MAX_32) {
+            extra.add(record.offset());
+        }
+        int extraLength = extra.isEmpty() ? 0 : 4 + extra.size() * 8;
+        int version = versionNeeded(record.method(), record.zip64() || !extra.isEmpty());
+
+        ByteBuffer header = allocate(46 + record.name().length + extraLength);
+        header.putInt(CENTRAL_HEADER_SIGNATURE)
+            .putShort((short) version)
+            .putShort((short) version)
+            .putShort((short) UTF8_FLAG)
+            .putShort((short) record.method())
+            .putInt(record.dosTime())
+            .putInt((int) record.crc())
+            .putInt((int) Math.min(record.compressedSize(), MAX_32))
+            .putInt((int) Math.min(record.size(), MAX_32))
+            .putShort((short) record.name().length)
+            .putShort((short) extraLength)
+            .putShort((short) 0)   // comment
+            .putShort((short) 0)   // disk
+            .putShort((short) 0)   // internal attributes
+            .putInt(0)             // external attributes
+            .putInt((int) Math.min(record.offset(), MAX_32))
+            .put(record.name());
+        if (!extra.isEmpty()) {
+            header.putShort((short) ZIP64_EXTRA_ID).putShort((short) (extra.size() * 8));
+            extra.forEach(header::putLong);
+        }
+        return header;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int versionNeeded(int method, boolean zip64) {
+        return zip64 ? 45 : method == ZipEntry.DEFLATED ? 20 : 10;
+    }
+
+    private void ensureNoOpenEntry() {
+        if (open != null) {
+            throw new IllegalStateException("Entry " + new String(open.name, StandardCharsets.UTF_8) + " is still open");
+        }
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        write(data.array(), 0, data.position());
+    }
+
+    private void write(byte[] data, int dataOffset, int length) throws IOException {
+        offset += length;
+        if (length >= buffer.capacity()) {
+            flush();
+            ByteBuffer wrapped = ByteBuffer.wrap(data, dataOffset, length);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+            return;
+        }
+        if (length > buffer.remaining()) {
+            flush();
+        }
+        buffer.put(data, dataOffset, length);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private final class EntryStream extends OutputStream {
+        private final byte[] name;
+        private final int method;
+        private final int dosTime;
+        private final long headerOffset;
+        private final boolean zip64;
+        private long dataStart;
+
+        private EntryStream(byte[] name, int method, int dosTime, long headerOffset, boolean zip64) {
+            this.name = name;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.headerOffset = headerOffset;
+            this.zip64 = zip64;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int dataOffset, int length) throws IOException {
+            if (open != this) {
+                throw new IOException("Entry is already finished");
+            }
+            RawZipWriter.this.write(data, dataOffset, length);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.vortex.resourceloader.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The central directory of a zip as compact arrays: entry names, compression methods, times, CRCs,
+ * sizes and local header offsets, in archive order. It can be written to a small file and mapped
+ * back in, so the entries of a pack are known without opening the pack again.
+ *
+ * <p>On disk each name is stored as the number of leading bytes it shares with the previous name
+ * plus the rest; entries of a pack are grouped by folder, so most of every path is shared. Numbers
+ * are variable-length, times and offsets as the difference to the previous entry, which makes most
+ * records a dozen bytes plus the new part of the name.
+ */
+public final class ZipIndex {
+    private static final int MAGIC = 0x524C4958;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    /**
+     * Longest record without its name: five varints of up to 10 bytes, two of up to 5 and the CRC.
+     */
+    private static final int MAX_RECORD_SIZE = 5 * 10 + 2 * 5 + 4;
+
+    private final String[] names;
+    private final int[] methods;
+    private final int[] dosTimes;
+    private final int[] crcs;
+    private final long[] compressedSizes;
+    private final long[] sizes;
+    private final long[] offsets;
+    private final Map<String, Integer> positions;
+
+    private ZipIndex(int count) {
+        this.names = new String[count];
+        this.methods = new int[count];
+        this.dosTimes = new int[count];
+        this.crcs = new int[count];
+        this.compressedSizes = new long[count];
+        this.sizes = new long[count];
+        this.offsets = new long[count];
+        this.positions = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+    }
+
+    /**
+     * Indexes a zip from its central directory; no entry data is read.
+     */
+    public static ZipIndex of(File zip) throws IOException {
+        try (RawZipReader reader = new RawZipReader(zip)) {
+            ZipIndex index = new ZipIndex(reader.getEntries().size());
+            int i = 0;
+            for (RawZipReader.Entry entry : reader.getEntries()) {
+                index.set(i++, entry.name(), entry.method(), entry.dosTime(), (int) entry.crc(),
+                    entry.compressedSize(), entry.size(), entry.localHeaderOffset());
+            }
+            return index;
+        }
+    }
+
+    private void set(int i, String name, int method, int dosTime, int crc, long compressedSize, long size, long offset) {
+        names[i] = name;
+        methods[i] = method;
+        dosTimes[i] = dosTime;
+        crcs[i] = crc;
+        compressedSizes[i] = compressedSize;
+        sizes[i] = size;
+        offsets[i] = offset;
+        positions.put(name, i);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public RawZipReader.Entry get(int i) {
+        return new RawZipReader.Entry(names[i], methods[i], dosTimes[i], crcs[i] & 0xFFFFFFFFL,
+            compressedSizes[i], sizes[i], offsets[i]);
+    }
+
+    public RawZipReader.Entry getEntry(String name) {
+        Integer i = positions.get(name);
+        return i != null ? get(i) : null;
+    }
+
+    public boolean contains(String name) {
+        return positions.containsKey(name);
+    }
+
+    /**
+     * All entries in archive order, directories included. Entries are created as they are read.
+     */
+    public List<RawZipReader.Entry> getEntries() {
+        return new AbstractList<>() {
+            @Override
+            public RawZipReader.Entry get(int i) {
+                return ZipIndex.this.get(i);
+            }
+
+            @Override
+            public int size() {
+                return names.length;
+            }
+        };
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    public void write(File file) throws IOException {
+        File tempFile = new File(file.getParent(), file.getName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+            ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            record.putInt(MAGIC).putInt(VERSION).putInt(names.length);
+            out.write(record.array(), 0, HEADER_SIZE);
+            byte[] previous = new byte[0];
+            int previousTime = 0;
+            long previousOffset = 0;
+            for (int i = 0; i < names.length; i++) {
+                byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+                int shared = 0;
+                int maxShared = Math.min(previous.length, name.length);
+                while (shared < maxShared && previous[shared] == name[shared]) {
+                    shared++;
+                }
+                record.clear();
+                putVarint(record, shared);
+                putVarint(record, name.length - shared);
+                putVarint(record, methods[i]);
+                putVarint(record, zigZag(dosTimes[i] - previousTime));
+                record.putInt(crcs[i]);
+                putVarint(record, compressedSizes[i]);
+                putVarint(record, sizes[i]);
+                putVarint(record, zigZag(offsets[i] - previousOffset));
+                out.write(record.array(), 0, record.position());
+                out.write(name, shared, name.length - shared);
+                previous = name;
+                previousTime = dosTimes[i];
+                previousOffset = offsets[i];
+            }
+        }
+        FileUtil.replaceFile(tempFile.toPath(), file.toPath());
+    }
+
+    /**
+     * Maps a file written by {@link #write} and decodes it in one pass.
+     */
+    public static ZipIndex load(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a zip index: " + file.getName());
+            }
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining()) {
+                throw new IOException("Corrupt zip index: " + file.getName());
+            }
+
+            ZipIndex index = new ZipIndex(count);
+            byte[] name = new byte[256];
+            int nameLength = 0;
+            int dosTime = 0;
+            long offset = 0;
+            try {
+                for (int i = 0; i < count; i++) {
+                    int shared = (int) getVarint(buffer);
+                    int suffix = (int) getVarint(buffer);
+                    int method = (int) getVarint(buffer);
+                    dosTime += (int) unZigZag(getVarint(buffer));
+                    int crc = buffer.getInt();
+                    long compressedSize = getVarint(buffer);
+                    long size = getVarint(buffer);
+                    offset += unZigZag(getVarint(buffer));
+                    if (shared < 0 || suffix < 0 || shared > nameLength) {
+                        throw new IOException("Corrupt zip index: " + file.getName());
+                    }
+                    if (shared + suffix > name.length) {
+                        name = Arrays.copyOf(name, Math.max(name.length * 2, shared + suffix));
+                    }
+                    buffer.get(name, shared, suffix);
+                    nameLength = shared + suffix;
+                    index.set(i, new String(name, 0, nameLength, StandardCharsets.UTF_8), method, dosTime, crc,
+                        compressedSize, size, offset);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt zip index: " + file.getName(), e);
+            }
+            return index;
+        }
+    }
+
+    private static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Varint too long");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
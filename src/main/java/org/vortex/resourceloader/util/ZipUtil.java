@@ -0,0 +1,65 @@
+package org.vortex.resourceloader.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.vortex.resourceloader.Resourceloader;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Helpers for writing pack archives. In deterministic mode identical content always
+ * yields a byte-identical zip, so the pack SHA-1 (and every client's cached copy) survives rebuilds.
+ */
+public class ZipUtil {
+    // Written as a raw DOS date/time, so the result does not depend on the server's time zone
+    private static final LocalDateTime FIXED_ENTRY_TIME = LocalDateTime.of(1980, 1, 1, 0, 0);
+    public static final int DETERMINISTIC_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+    public static boolean isDeterministic(Resourceloader plugin) {
+        return plugin.getConfig().getBoolean("output.deterministic", true);
+    }
+
+    public static ZipEntry newEntry(String name, boolean deterministic) {
+        ZipEntry entry = new ZipEntry(name);
+        if (deterministic) {
+            entry.setTimeLocal(FIXED_ENTRY_TIME);
+        }
+        return entry;
+    }
+
+    /**
+     * Raw DOS date/time for an entry header, as {@link java.util.zip.ZipOutputStream} would write it for
+     * {@link #newEntry}: the fixed time when deterministic, otherwise the given time in the local zone.
+     */
+    public static int dosTime(long time, boolean deterministic) {
+        LocalDateTime local = deterministic ? FIXED_ENTRY_TIME
+            : LocalDateTime.ofInstant(Instant.ofEpochMilli(time == -1 ? System.currentTimeMillis() : time), ZoneId.systemDefault());
+        if (local.getYear() < 1980) {
+            local = FIXED_ENTRY_TIME;
+        }
+        return (local.getYear() - 1980) << 25 | local.getMonthValue() << 21 | local.getDayOfMonth() << 16
+            | local.getHour() << 11 | local.getMinute() << 5 | local.getSecond() >> 1;
+    }
+
+    /**
+     * Pins the parameters that would otherwise fall back to JVM defaults.
+     */
+    public static void configure(ZipOutputStream zos, int level) {
+        zos.setMethod(ZipOutputStream.DEFLATED);
+        zos.setLevel(level);
+    }
+
+    /**
+     * Pretty-printing JSON writer; canonical key order when deterministic.
+     */
+    public static ObjectWriter jsonWriter(ObjectMapper mapper, boolean deterministic) {
+        ObjectWriter writer = mapper.writerWithDefaultPrettyPrinter();
+        return deterministic ? writer.with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS) : writer;
+    }
+}
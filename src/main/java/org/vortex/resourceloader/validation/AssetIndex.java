@@ -0,0 +1,73 @@
+package org.vortex.resourceloader.validation;
+
+import java.util.*;
+
+/**
+ * The assets of one pack as namespace, then asset type (the first folder below the namespace, e.g.
+ * {@code textures} or {@code models}), then path below that folder. Built once from the entry names
+ * of the central directory; resolving a reference is then a few hash lookups instead of a search
+ * through the archive.
+ */
+public class AssetIndex {
+    /**
+     * Type of files directly inside a namespace folder, such as sounds.json.
+     */
+    public static final String ROOT = "";
+
+    private final Map<String, Map<String, Set<String>>> assets;
+
+    private AssetIndex(Map<String, Map<String, Set<String>>> assets) {
+        this.assets = assets;
+    }
+
+    public static AssetIndex of(Collection<String> entryNames) {
+        Map<String, Map<String, Set<String>>> assets = new HashMap<>();
+        for (String name : entryNames) {
+            if (!name.startsWith("assets/") || name.endsWith("/")) {
+                continue;
+            }
+            int namespaceEnd = name.indexOf('/', "assets/".length());
+            if (namespaceEnd < 0) {
+                continue;
+            }
+            String namespace = name.substring("assets/".length(), namespaceEnd);
+            String relative = name.substring(namespaceEnd + 1);
+            int typeEnd = relative.indexOf('/');
+            String type = typeEnd < 0 ? ROOT : relative.substring(0, typeEnd);
+            assets.computeIfAbsent(namespace, key -> new HashMap<>())
+                .computeIfAbsent(type, key -> new HashSet<>())
+                .add(relative.substring(typeEnd + 1));
+        }
+        return new AssetIndex(assets);
+    }
+
+    public boolean contains(String namespace, String type, String path) {
+        Map<String, Set<String>> types = assets.get(namespace);
+        Set<String> paths = types != null ? types.get(type) : null;
+        return paths != null && paths.contains(path);
+    }
+
+    /**
+     * Whether {@code assets/<namespace>/<relativePath>} exists.
+     */
+    public boolean contains(String namespace, String relativePath) {
+        int typeEnd = relativePath.indexOf('/');
+        return typeEnd < 0
+            ? contains(namespace, ROOT, relativePath)
+            : contains(namespace, relativePath.substring(0, typeEnd), relativePath.substring(typeEnd + 1));
+    }
+
+    public Set<String> getNamespaces() {
+        return Collections.unmodifiableSet(assets.keySet());
+    }
+
+    public Set<String> getPaths(String namespace, String type) {
+        Map<String, Set<String>> types = assets.get(namespace);
+        Set<String> paths = types != null ? types.get(type) : null;
+        return paths != null ? Collections.unmodifiableSet(paths) : Set.of();
+    }
+
+    public boolean isEmpty() {
+        return assets.isEmpty();
+    }
+}
@@ -0,0 +1,240 @@
+package org.vortex.resourceloader.validation;
+
+import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.util.FileUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Performance budgets of a pack: what it costs to download and what its textures and sounds cost the
+ * client. Only headers are read: the IHDR chunk of PNGs and the identification header of OGG Vorbis
+ * files, a few dozen bytes each. Exceeding a budget is a warning, or a critical issue with
+ * {@code validation.budget.fail-on-exceed}.
+ *
+ * @param maxTextureSize  largest allowed texture side, in pixels
+ * @param maxTextureBytes estimated GPU memory allowed for all textures
+ * @param maxSoundBytes   largest allowed single sound file
+ * @param maxTotalSoundBytes allowed size of all sounds together
+ * @param maxPackBytes    allowed size of the pack file, i.e. the download
+ * @param topEntries      number of heaviest entries to list
+ */
+public record PackBudget(boolean enabled, boolean failOnExceed, int maxTextureSize, long maxTextureBytes,
+                         long maxSoundBytes, long maxTotalSoundBytes, long maxPackBytes, int topEntries) {
+    /**
+     * Texture folders stitched into mipmapped atlases; their textures should have power-of-two sizes.
+     */
+    private static final Set<String> ATLAS_FOLDERS = Set.of("block", "item", "particle", "mob_effect", "painting");
+    private static final int NPOT_EXAMPLES = 5;
+
+    /**
+     * Header of one texture or sound, as read from the first bytes of the entry.
+     */
+    public record Media(int width, int height, int channels, int sampleRate, int nominalBitrate) {}
+
+    public static PackBudget fromConfig(Resourceloader plugin) {
+        String path = "validation.budget.";
+        return new PackBudget(
+            plugin.getConfig().getBoolean(path + "enabled", true),
+            plugin.getConfig().getBoolean(path + "fail-on-exceed", false),
+            plugin.getConfig().getInt(path + "max-texture-size", 1024),
+            plugin.getConfig().getLong(path + "max-texture-memory-mb", 512) * 1024 * 1024,
+            plugin.getConfig().getLong(path + "max-sound-size-kb", 4096) * 1024,
+            plugin.getConfig().getLong(path + "max-total-sound-mb", 128) * 1024 * 1024,
+            plugin.getConfig().getLong(path + "max-pack-size-mb", 250) * 1024 * 1024,
+            plugin.getConfig().getInt(path + "top-entries", 5));
+    }
+
+    /**
+     * Whether the entry is a texture or sound whose header the budget needs.
+     */
+    public static boolean isMedia(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return name.startsWith("assets/") && ((lower.endsWith(".png") && lower.contains("/textures/"))
+            || (lower.endsWith(".ogg") && lower.contains("/sounds/")));
+    }
+
+    /**
+     * Reads the header of a texture or sound, or returns null if it is not a valid one.
+     */
+    public static Media readMedia(String name, InputStream in) throws IOException {
+        return name.toLowerCase(Locale.ROOT).endsWith(".png") ? readPng(in) : readOgg(in);
+    }
+
+    private static Media readPng(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(24);
+        if (header.length < 24 || (header[0] & 0xFF) != 0x89 || header[1] != 'P' || header[2] != 'N' || header[3] != 'G'
+                || header[12] != 'I' || header[13] != 'H' || header[14] != 'D' || header[15] != 'R') {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header, 16, 8);
+        return new Media(buffer.getInt(), buffer.getInt(), 0, 0, 0);
+    }
+
+    /**
+     * The first Ogg page holds the Vorbis identification header: channels, sample rate and bitrates.
+     */
+    private static Media readOgg(InputStream in) throws IOException {
+        byte[] page = in.readNBytes(27);
+        if (page.length < 27 || page[0] != 'O' || page[1] != 'g' || page[2] != 'g' || page[3] != 'S') {
+            return null;
+        }
+        in.skipNBytes(page[26] & 0xFF);
+        byte[] packet = in.readNBytes(30);
+        if (packet.length < 30 || packet[0] != 1 || packet[1] != 'v' || packet[2] != 'o' || packet[3] != 'r') {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(packet).order(ByteOrder.LITTLE_ENDIAN);
+        int channels = packet[11] & 0xFF;
+        int sampleRate = buffer.getInt(12);
+        int nominalBitrate = buffer.getInt(20);
+        return new Media(0, 0, channels, sampleRate, nominalBitrate);
+    }
+
+    /**
+     * What one partition of a pack measured. Partitions are merged in entry order.
+     */
+    public static final class Tally {
+        private int textures;
+        private long textureBytes;
+        private long atlasBytes;
+        private String largestTexture;
+        private int largestTextureWidth;
+        private int largestTextureHeight;
+        private final List<String> oversizedTextures = new ArrayList<>();
+        private final List<String> npotTextures = new ArrayList<>();
+        private int sounds;
+        private long soundBytes;
+        private double soundSeconds;
+        private int stereoSounds;
+        private final List<String> oversizedSounds = new ArrayList<>();
+
+        void add(PackBudget budget, String name, long size, Media media) {
+            if (media.width() > 0) {
+                addTexture(budget, name, media.width(), media.height());
+            } else {
+                addSound(budget, name, size, media);
+            }
+        }
+
+        private void addTexture(PackBudget budget, String name, int width, int height) {
+            textures++;
+            long bytes = (long) width * height * 4;
+            String[] parts = name.split("/", 5);
+            boolean atlas = parts.length == 5 && ATLAS_FOLDERS.contains(parts[3]);
+            if (atlas) {
+                // Mipmap levels add a third on top of the base level
+                bytes = bytes * 4 / 3;
+                atlasBytes += bytes;
+                boolean strip = height != width && height % width == 0;
+                if (!isPowerOfTwo(width) || (!strip && !isPowerOfTwo(height))) {
+                    npotTextures.add(name + " (" + width + "x" + height + ")");
+                }
+            }
+            textureBytes += bytes;
+            if ((long) width * height > (long) largestTextureWidth * largestTextureHeight) {
+                largestTexture = name;
+                largestTextureWidth = width;
+                largestTextureHeight = height;
+            }
+            // Animation strips are measured by their frame width
+            if (width > budget.maxTextureSize() || (height > budget.maxTextureSize() && height % width != 0)) {
+                oversizedTextures.add(name + " is " + width + "x" + height);
+            }
+        }
+
+        private void addSound(PackBudget budget, String name, long size, Media media) {
+            sounds++;
+            soundBytes += size;
+            if (media.nominalBitrate() > 0) {
+                soundSeconds += size * 8.0 / media.nominalBitrate();
+            }
+            if (media.channels() > 1) {
+                stereoSounds++;
+            }
+            if (size > budget.maxSoundBytes()) {
+                oversizedSounds.add(name + " is " + FileUtil.formatSize(size));
+            }
+        }
+
+        void merge(Tally other) {
+            textures += other.textures;
+            textureBytes += other.textureBytes;
+            atlasBytes += other.atlasBytes;
+            if ((long) other.largestTextureWidth * other.largestTextureHeight
+                    > (long) largestTextureWidth * largestTextureHeight) {
+                largestTexture = other.largestTexture;
+                largestTextureWidth = other.largestTextureWidth;
+                largestTextureHeight = other.largestTextureHeight;
+            }
+            oversizedTextures.addAll(other.oversizedTextures);
+            npotTextures.addAll(other.npotTextures);
+            sounds += other.sounds;
+            soundBytes += other.soundBytes;
+            soundSeconds += other.soundSeconds;
+            stereoSounds += other.stereoSounds;
+            oversizedSounds.addAll(other.oversizedSounds);
+        }
+    }
+
+    private static boolean isPowerOfTwo(int value) {
+        return value > 0 && (value & (value - 1)) == 0;
+    }
+
+    /**
+     * Checks the tally against the budgets, adding an issue per exceeded budget, and returns the
+     * summary lines for the report.
+     *
+     * @param heaviest the largest entries of the pack, largest first, as "name size"
+     */
+    public List<String> evaluate(Tally tally, long packBytes, List<String> heaviest,
+                                 List<PackValidator.ValidationIssue> issues) {
+        for (String texture : tally.oversizedTextures) {
+            exceeded(issues, "Texture " + texture + ", above the " + maxTextureSize + "px budget");
+        }
+        if (!tally.npotTextures.isEmpty()) {
+            issues.add(new PackValidator.ValidationIssue(tally.npotTextures.size()
+                + " atlas texture(s) are not a power of two, which breaks mipmapping: "
+                + String.join(", ", tally.npotTextures.subList(0, Math.min(NPOT_EXAMPLES, tally.npotTextures.size())))
+                + (tally.npotTextures.size() > NPOT_EXAMPLES ? ", ..." : ""), false));
+        }
+        if (tally.textureBytes > maxTextureBytes) {
+            exceeded(issues, "Textures need an estimated " + FileUtil.formatSize(tally.textureBytes)
+                + " of GPU memory, above the " + FileUtil.formatSize(maxTextureBytes) + " budget");
+        }
+        for (String sound : tally.oversizedSounds) {
+            exceeded(issues, "Sound " + sound + ", above the " + FileUtil.formatSize(maxSoundBytes) + " budget");
+        }
+        if (tally.soundBytes > maxTotalSoundBytes) {
+            exceeded(issues, "Sounds total " + FileUtil.formatSize(tally.soundBytes) + ", above the "
+                + FileUtil.formatSize(maxTotalSoundBytes) + " budget");
+        }
+        if (packBytes > maxPackBytes) {
+            exceeded(issues, "Pack is " + FileUtil.formatSize(packBytes) + " to download, above the "
+                + FileUtil.formatSize(maxPackBytes) + " budget");
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add("Download size: " + FileUtil.formatSize(packBytes));
+        lines.add(String.format("Textures: %d, est. GPU memory %s (atlases %s)", tally.textures,
+            FileUtil.formatSize(tally.textureBytes), FileUtil.formatSize(tally.atlasBytes)));
+        if (tally.largestTexture != null) {
+            lines.add("Largest texture: " + tally.largestTexture + " (" + tally.largestTextureWidth + "x"
+                + tally.largestTextureHeight + ")");
+        }
+        lines.add(String.format("Sounds: %d, %s, about %.0fs of audio (%d stereo, which cannot be positional)",
+            tally.sounds, FileUtil.formatSize(tally.soundBytes), tally.soundSeconds, tally.stereoSounds));
+        if (!heaviest.isEmpty()) {
+            lines.add("Heaviest entries:");
+            heaviest.forEach(entry -> lines.add("  " + entry));
+        }
+        return lines;
+    }
+
+    private void exceeded(List<PackValidator.ValidationIssue> issues, String message) {
+        issues.add(new PackValidator.ValidationIssue(message, failOnExceed));
+    }
+}
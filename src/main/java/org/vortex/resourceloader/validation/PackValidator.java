@@ -1,162 +1,615 @@
 package org.vortex.resourceloader.validation;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.vortex.resourceloader.Resourceloader;
+import org.vortex.resourceloader.jobs.JobContext;
+import org.vortex.resourceloader.util.FileUtil;
+import org.vortex.resourceloader.util.RawZipReader;
+import org.vortex.resourceloader.util.ZipIndex;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+/**
+ * Checks a pack in a single pass over its central directory, taken from the pack's {@link ZipIndex}.
+ * JSON entries are read with a streaming parser that only extracts what the checks need (the pack
+ * section of pack.mcmeta and the references of models, blockstates and item definitions) and skips
+ * over the rest; fonts and sounds.json are small and read as a tree. References are resolved against
+ * an {@link AssetIndex} of the pack, in every namespace.
+ *
+ * <p>The content checks are split into partitions of entries that run on the shared workers. All
+ * state of a validation lives in its own {@link ValidationRun}, so one validator can check any
+ * number of packs at once.
+ *
+ * <p>Results are cached, see {@link ValidationCache}: an unchanged pack is not read at all, and in a
+ * changed one only entries with a new CRC are parsed again. References are always resolved anew, so
+ * a model whose texture was removed is still reported.
+ *
+ * <p>With {@code validation.budget} enabled, textures and sounds are measured from their headers and
+ * the pack is checked against the {@link PackBudget}.
+ */
 public class PackValidator {
+    private static final int PARTITION_ENTRIES = 256;
+    private static final long PARTITION_BYTES = 8L * 1024 * 1024;
+    /**
+     * What a texture or sound counts towards a partition; only its header is read.
+     */
+    private static final long MEDIA_HEADER_BYTES = 64;
+
+    private final Resourceloader plugin;
+    private final JsonFactory jsonFactory;
     private final ObjectMapper mapper;
-    private final List<ValidationIssue> issues;
+    private final ValidationCache cache;
+
+    private record Partition(List<ValidationIssue> issues, boolean critical, int parsed, int reused,
+                             PackBudget.Tally tally) {}
 
     public PackValidator(Resourceloader plugin) {
-        this.mapper = new ObjectMapper();
-        this.issues = new ArrayList<>();
+        this.plugin = plugin;
+        this.jsonFactory = new JsonFactory();
+        this.mapper = new ObjectMapper(jsonFactory);
+        this.cache = new ValidationCache(
+            Math.max(1, plugin.getConfig().getInt("validation.cache.packs", 16)),
+            Math.max(0, plugin.getConfig().getInt("validation.cache.entries", 200000)));
+    }
+
+    public ValidationCache getCache() {
+        return cache;
+    }
+
+    /**
+     * The asset index of a pack, from the cache if the pack is unchanged.
+     */
+    public AssetIndex getAssetIndex(File packFile) throws IOException {
+        String packHash = plugin.getHashCache().getOrCalculateHash(packFile);
+        AssetIndex index = packHash != null ? cache.getIndex(packHash) : null;
+        if (index != null) {
+            return index;
+        }
+        index = AssetIndex.of(plugin.getZipIndexes().get(packFile).getNames());
+        if (packHash != null) {
+            cache.putIndex(packHash, index);
+        }
+        return index;
     }
 
     public ValidationResult validate(File packFile) {
-        issues.clear();
-        boolean isCritical = false;
+        return validate(packFile, JobContext.NONE);
+    }
+
+    public ValidationResult validate(File packFile, JobContext context) {
+        ValidationRun run = new ValidationRun(packFile);
+        run.start(context);
+        return run.finish(context);
+    }
+
+    /**
+     * Validates several packs, keeping up to {@code validation.max-parallel-packs} of them in progress
+     * at once so their partitions share the workers. Results are in the order of {@code packs}.
+     */
+    public Map<String, ValidationResult> validateAll(Map<String, File> packs, JobContext context) {
+        int maxParallel = Math.max(1, plugin.getConfig().getInt("validation.max-parallel-packs", 2));
+        // Progress is counted in packs here, not in the partitions of each
+        JobContext perPack = new JobContext() {
+            @Override
+            public void setProgress(long done, long total) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return context.isCancelled();
+            }
+        };
 
+        Map<String, ValidationResult> results = new LinkedHashMap<>();
+        Deque<Map.Entry<String, ValidationRun>> running = new ArrayDeque<>();
         try {
-            if (!packFile.exists()) {
-                addIssue("Pack file does not exist", true);
-                return new ValidationResult(false, issues);
+            for (Map.Entry<String, File> pack : packs.entrySet()) {
+                if (running.size() >= maxParallel) {
+                    Map.Entry<String, ValidationRun> oldest = running.poll();
+                    results.put(oldest.getKey(), oldest.getValue().finish(perPack));
+                    context.setProgress(results.size(), packs.size());
+                }
+                ValidationRun run = new ValidationRun(pack.getValue());
+                running.add(Map.entry(pack.getKey(), run));
+                run.start(perPack);
+            }
+            while (!running.isEmpty()) {
+                Map.Entry<String, ValidationRun> oldest = running.poll();
+                results.put(oldest.getKey(), oldest.getValue().finish(perPack));
+                context.setProgress(results.size(), packs.size());
             }
+        } finally {
+            running.forEach(run -> run.getValue().abort());
+        }
+        return results;
+    }
 
+    /**
+     * One validation of one pack: {@link #start} reads the central directory and queues the content
+     * checks, {@link #finish} waits for them and assembles the result.
+     */
+    private final class ValidationRun {
+        private final File packFile;
+        private final List<ValidationIssue> issues;
+        private final List<CompletableFuture<Partition>> partitions;
+        private final PackBudget budget;
+        private final PackBudget.Tally tally;
+        private final PriorityQueue<RawZipReader.Entry> heaviest;
+        private long start;
+        private boolean isCritical;
+        private int entryCount;
+        private boolean hasMcMeta;
+        private boolean hasAssets;
+        private int parsedEntries;
+        private int reusedEntries;
+        private boolean cacheable;
+        private String packHash;
+        private AssetIndex index;
+        private ZipFile zip;
+        private ValidationResult done;
+        private List<String> budgetReport = List.of();
+
+        private ValidationRun(File packFile) {
+            this.packFile = packFile;
+            this.issues = new ArrayList<>();
+            this.partitions = new ArrayList<>();
+            this.budget = PackBudget.fromConfig(plugin);
+            this.tally = new PackBudget.Tally();
+            this.heaviest = new PriorityQueue<>(Comparator.comparingLong(RawZipReader.Entry::size));
+        }
+
+        /**
+         * Cache key of the result: the pack, and the budget it was checked against.
+         */
+        private String resultKey() {
+            return budget.enabled() ? packHash + ":" + Integer.toHexString(budget.hashCode()) : packHash;
+        }
+
+        private void start(JobContext context) {
+            start = System.nanoTime();
+            if (!packFile.exists()) {
+                fail("Pack file does not exist");
+                return;
+            }
             if (!packFile.getName().toLowerCase().endsWith(".zip")) {
-                addIssue("Pack file must be a ZIP file", true);
-                return new ValidationResult(false, issues);
+                fail("Pack file must be a ZIP file");
+                return;
             }
 
-            try (ZipFile zip = new ZipFile(packFile)) {
-                // Check pack.mcmeta
-                ZipEntry mcmetaEntry = zip.getEntry("pack.mcmeta");
-                if (mcmetaEntry == null) {
-                    addIssue("Missing pack.mcmeta file", true);
-                    isCritical = true;
-                } else {
-                    validateMcMeta(zip, mcmetaEntry);
-                }
+            packHash = plugin.getHashCache().getOrCalculateHash(packFile);
+            ValidationResult cached = packHash != null ? cache.getResult(resultKey()) : null;
+            if (cached != null) {
+                done = new ValidationResult(cached.isValid(), cached.issues(), cached.entryCount(),
+                    (System.nanoTime() - start) / 1_000_000, 0, 0, true, cached.budget());
+                return;
+            }
+
+            index = packHash != null ? cache.getIndex(packHash) : null;
+            List<List<RawZipReader.Entry>> chunks = new ArrayList<>();
+            try {
+                ZipIndex zipIndex = plugin.getZipIndexes().get(packFile);
+                List<RawZipReader.Entry> chunk = new ArrayList<>();
+                long chunkBytes = 0;
+                for (RawZipReader.Entry entry : zipIndex.getEntries()) {
+                    String name = entry.name();
+                    entryCount++;
 
-                // Check assets directory
-                boolean hasAssets = false;
-                Enumeration<? extends ZipEntry> entries = zip.entries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = entries.nextElement();
-                    if (entry.getName().startsWith("assets/")) {
+                    if (name.startsWith("assets/")) {
                         hasAssets = true;
-                        break;
+                    }
+                    String lower = name.toLowerCase();
+                    if (lower.contains("__macosx") || lower.contains(".ds_store")) {
+                        issues.add(new ValidationIssue("Contains unnecessary system files: " + name, false));
+                    }
+
+                    hasMcMeta |= name.equals("pack.mcmeta");
+                    boolean media = budget.enabled() && PackBudget.isMedia(name);
+                    if (budget.enabled() && !name.endsWith("/") && budget.topEntries() > 0) {
+                        heaviest.add(entry);
+                        if (heaviest.size() > budget.topEntries()) {
+                            heaviest.poll();
+                        }
+                    }
+                    if (name.equals("pack.mcmeta") || name.endsWith(".json") || media) {
+                        chunk.add(entry);
+                        chunkBytes += media ? MEDIA_HEADER_BYTES : entry.size();
+                        if (chunk.size() >= PARTITION_ENTRIES || chunkBytes >= PARTITION_BYTES) {
+                            chunks.add(chunk);
+                            chunk = new ArrayList<>();
+                            chunkBytes = 0;
+                        }
                     }
                 }
-                if (!hasAssets) {
-                    addIssue("Missing assets directory", true);
-                    isCritical = true;
+                if (!chunk.isEmpty()) {
+                    chunks.add(chunk);
                 }
-
-                // Validate JSON files
-                Map<String, Set<String>> textureReferences = new HashMap<>();
-                entries = zip.entries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = entries.nextElement();
-                    if (entry.getName().endsWith(".json")) {
-                        validateJsonFile(zip, entry, textureReferences);
+                if (index == null) {
+                    index = AssetIndex.of(zipIndex.getNames());
+                    if (packHash != null) {
+                        cache.putIndex(packHash, index);
                     }
                 }
+                // Entry data is only read by the partitions
+                zip = new ZipFile(packFile);
+            } catch (IOException e) {
+                issues.add(new ValidationIssue("Failed to read ZIP file: " + e.getMessage(), true));
+                isCritical = true;
+                close();
+                return;
+            }
 
-                // Validate texture references
-                validateTextureReferences(zip, textureReferences);
+            // Submitted only now: references are resolved against the index of the complete pack
+            ExecutorService workers = plugin.getJobManager().getWorkerPool();
+            for (List<RawZipReader.Entry> chunk : chunks) {
+                partitions.add(CompletableFuture.supplyAsync(
+                    () -> checkPartition(zip, chunk, index, budget, context), workers));
+            }
+            cacheable = true;
+        }
 
-                // Check for unnecessary files
-                entries = zip.entries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = entries.nextElement();
-                    String name = entry.getName().toLowerCase();
-                    if (name.contains("__macosx") || name.contains(".ds_store")) {
-                        addIssue("Contains unnecessary system files: " + entry.getName(), false);
-                    }
+        private ValidationResult finish(JobContext context) {
+            if (done != null) {
+                return done;
+            }
+            try {
+                for (int i = 0; i < partitions.size(); i++) {
+                    Partition partition = context.await(partitions.get(i));
+                    issues.addAll(partition.issues());
+                    isCritical |= partition.critical();
+                    parsedEntries += partition.parsed();
+                    reusedEntries += partition.reused();
+                    tally.merge(partition.tally());
+                    context.setProgress(i + 1, partitions.size());
                 }
 
+                if (zip != null && !hasMcMeta) {
+                    issues.add(new ValidationIssue("Missing pack.mcmeta file", true));
+                    isCritical = true;
+                }
+                if (zip != null && !hasAssets) {
+                    issues.add(new ValidationIssue("Missing assets directory", true));
+                    isCritical = true;
+                }
+                if (zip != null && budget.enabled()) {
+                    List<ValidationIssue> exceeded = new ArrayList<>();
+                    budgetReport = budget.evaluate(tally, packFile.length(), heaviestEntries(), exceeded);
+                    issues.addAll(exceeded);
+                    isCritical |= exceeded.stream().anyMatch(ValidationIssue::isCritical);
+                }
             } catch (IOException e) {
-                addIssue("Failed to read ZIP file: " + e.getMessage(), true);
+                issues.add(new ValidationIssue("Failed to read ZIP file: " + e.getMessage(), true));
                 isCritical = true;
+                cacheable = false;
+            } catch (CancellationException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                issues.add(new ValidationIssue("Unexpected error during validation: " + e.getMessage(), true));
+                isCritical = true;
+                cacheable = false;
+            } finally {
+                abort();
+            }
+            ValidationResult result = new ValidationResult(!isCritical, List.copyOf(issues), entryCount,
+                (System.nanoTime() - start) / 1_000_000, parsedEntries, reusedEntries, false, budgetReport);
+            if (cacheable && packHash != null) {
+                cache.putResult(resultKey(), result);
             }
-        } catch (Exception e) {
-            addIssue("Unexpected error during validation: " + e.getMessage(), true);
-            isCritical = true;
+            return result;
+        }
+
+        /**
+         * The heaviest entries by uncompressed size, largest first.
+         */
+        private List<String> heaviestEntries() {
+            List<RawZipReader.Entry> entries = new ArrayList<>(heaviest);
+            entries.sort(Comparator.comparingLong(RawZipReader.Entry::size).reversed());
+            return entries.stream()
+                .map(entry -> entry.name() + " " + FileUtil.formatSize(entry.size())
+                    + " (" + FileUtil.formatSize(entry.compressedSize()) + " compressed)")
+                .toList();
         }
 
-        return new ValidationResult(!isCritical, issues);
+        private void fail(String message) {
+            issues.add(new ValidationIssue(message, true));
+            done = new ValidationResult(false, issues, 0, 0, 0, 0, false, List.of());
+        }
+
+        /**
+         * Lets queued partitions settle, then closes the pack. Partitions stop at their next entry
+         * once the job is cancelled.
+         */
+        private void abort() {
+            partitions.forEach(partition -> partition.handle((result, error) -> null).join());
+            close();
+        }
+
+        private void close() {
+            if (zip != null) {
+                try {
+                    zip.close();
+                } catch (IOException ignored) {
+                    // Only read from
+                }
+                zip = null;
+            }
+        }
     }
 
-    private void validateMcMeta(ZipFile zip, ZipEntry entry) {
-        try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> mcmeta = mapper.readValue(zip.getInputStream(entry), Map.class);
-            if (!mcmeta.containsKey("pack")) {
-                addIssue("pack.mcmeta is missing 'pack' section", true);
-                return;
+    private Partition checkPartition(ZipFile zip, List<RawZipReader.Entry> entries, AssetIndex index, PackBudget budget,
+                                     JobContext context) {
+        List<ValidationIssue> issues = new ArrayList<>();
+        PackBudget.Tally tally = new PackBudget.Tally();
+        boolean critical = false;
+        int parsed = 0;
+        int reused = 0;
+        for (RawZipReader.Entry indexed : entries) {
+            context.checkCancelled();
+            String name = indexed.name();
+            ValidationCache.EntryResult result = cache.getEntry(name, indexed.crc(), indexed.size());
+            if (result != null) {
+                reused++;
+            } else {
+                ZipEntry entry = zip.getEntry(name);
+                if (entry == null) {
+                    throw new CompletionException(new IOException("Entry " + name + " is listed but cannot be read"));
+                }
+                if (name.equals("pack.mcmeta")) {
+                    result = validateMcMeta(zip, entry);
+                } else if (name.endsWith(".json")) {
+                    result = validateJsonFile(zip, entry);
+                } else {
+                    result = readMedia(zip, entry);
+                }
+                parsed++;
+                cache.putEntry(name, indexed.crc(), indexed.size(), result);
             }
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> pack = (Map<String, Object>) mcmeta.get("pack");
-            if (!pack.containsKey("pack_format")) {
-                addIssue("pack.mcmeta is missing 'pack_format'", true);
+            issues.addAll(result.issues());
+            critical |= result.critical();
+            if (result.media() != null) {
+                tally.add(budget, name, indexed.size(), result.media());
             }
-            if (!pack.containsKey("description")) {
-                addIssue("pack.mcmeta is missing 'description'", false);
+            for (ValidationCache.Reference reference : result.references()) {
+                // References into minecraft are mostly served by the vanilla pack; only textures are
+                // expected to be shipped
+                boolean expected = !reference.namespace().equals("minecraft") || reference.kind().equals("texture");
+                if (expected && !index.contains(reference.namespace(), reference.path())) {
+                    issues.add(new ValidationIssue("Missing " + reference.kind() + " '" + reference.id()
+                        + "' referenced in " + name, false));
+                }
+            }
+        }
+        return new Partition(issues, critical, parsed, reused, tally);
+    }
+
+    /**
+     * Checks the pack section of pack.mcmeta.
+     */
+    private ValidationCache.EntryResult validateMcMeta(ZipFile zip, ZipEntry entry) {
+        List<ValidationIssue> issues = new ArrayList<>();
+        boolean hasPack = false;
+        boolean hasFormat = false;
+        boolean hasDescription = false;
+        try (InputStream in = zip.getInputStream(entry); JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                issues.add(new ValidationIssue("Invalid pack.mcmeta JSON: not an object", true));
+                return new ValidationCache.EntryResult(issues, List.of(), true);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("pack") && value == JsonToken.START_OBJECT) {
+                    hasPack = true;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String packField = parser.currentName();
+                        parser.nextToken();
+                        hasFormat |= packField.equals("pack_format");
+                        hasDescription |= packField.equals("description");
+                        parser.skipChildren();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
             }
         } catch (IOException e) {
-            addIssue("Invalid pack.mcmeta JSON: " + e.getMessage(), true);
+            issues.add(new ValidationIssue("Invalid pack.mcmeta JSON: " + e.getMessage(), true));
+            return new ValidationCache.EntryResult(issues, List.of(), true);
+        }
+
+        if (!hasPack) {
+            issues.add(new ValidationIssue("pack.mcmeta is missing 'pack' section", true));
+            return new ValidationCache.EntryResult(issues, List.of(), true);
+        }
+        if (!hasFormat) {
+            issues.add(new ValidationIssue("pack.mcmeta is missing 'pack_format'", true));
         }
+        if (!hasDescription) {
+            issues.add(new ValidationIssue("pack.mcmeta is missing 'description'", false));
+        }
+        return new ValidationCache.EntryResult(issues, List.of(), !hasFormat);
     }
 
-    private void validateJsonFile(ZipFile zip, ZipEntry entry, Map<String, Set<String>> textureReferences) {
-        try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> json = mapper.readValue(zip.getInputStream(entry), Map.class);
-            
-            // Collect texture references from models
-            if (entry.getName().contains("/models/")) {
-                if (json.containsKey("textures")) {
-                    Set<String> textures = new HashSet<>();
-                    @SuppressWarnings("unchecked")
-                    Map<String, String> textureMap = (Map<String, String>) json.get("textures");
-                    textureMap.values().forEach(tex -> {
-                        if (!tex.startsWith("#")) {
-                            textures.add(tex);
-                        }
-                    });
-                    if (!textures.isEmpty()) {
-                        textureReferences.put(entry.getName(), textures);
+    /**
+     * Reads the header of a texture or sound for the budget.
+     */
+    private static ValidationCache.EntryResult readMedia(ZipFile zip, ZipEntry entry) {
+        PackBudget.Media media;
+        try (InputStream in = zip.getInputStream(entry)) {
+            media = PackBudget.readMedia(entry.getName(), in);
+        } catch (IOException e) {
+            media = null;
+        }
+        if (media == null) {
+            String format = entry.getName().toLowerCase(Locale.ROOT).endsWith(".png") ? "PNG" : "Ogg Vorbis";
+            return new ValidationCache.EntryResult(
+                List.of(new ValidationIssue("Not a valid " + format + " file: " + entry.getName(), false)),
+                List.of(), false);
+        }
+        return new ValidationCache.EntryResult(List.of(), List.of(), false, media);
+    }
+
+    /**
+     * Parses a JSON entry to check its syntax, collecting its references on the way.
+     */
+    private ValidationCache.EntryResult validateJsonFile(ZipFile zip, ZipEntry entry) {
+        String name = entry.getName();
+        String[] asset = assetPath(name);
+        String type = asset != null ? asset[1] : null;
+        List<ValidationCache.Reference> references = new ArrayList<>();
+        try (InputStream in = zip.getInputStream(entry)) {
+            if ("font".equals(type) || (AssetIndex.ROOT.equals(type) && asset[2].equals("sounds.json"))) {
+                JsonNode json = mapper.readTree(in);
+                if (type.equals("font")) {
+                    collectFontReferences(json, references);
+                } else {
+                    collectSoundReferences(asset[0], json, references);
+                }
+            } else {
+                try (JsonParser parser = jsonFactory.createParser(in)) {
+                    JsonToken token = parser.nextToken();
+                    if ("models".equals(type) && token == JsonToken.START_OBJECT) {
+                        collectModelReferences(parser, references);
+                    } else if ("blockstates".equals(type) || "items".equals(type)) {
+                        collectModelFields(parser, references);
+                    } else {
+                        parser.skipChildren();
                     }
                 }
             }
         } catch (IOException e) {
-            addIssue("Invalid JSON in " + entry.getName() + ": " + e.getMessage(), false);
+            return new ValidationCache.EntryResult(
+                List.of(new ValidationIssue("Invalid JSON in " + name + ": " + e.getMessage(), false)),
+                List.of(), false);
+        }
+        return new ValidationCache.EntryResult(List.of(), List.copyOf(references), false);
+    }
+
+    /**
+     * The parent and the textures of a model; the parser is at its opening brace.
+     */
+    private static void collectModelReferences(JsonParser parser,
+                                               List<ValidationCache.Reference> references) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("parent") && value == JsonToken.VALUE_STRING) {
+                String parent = parser.getText();
+                if (!parent.startsWith("builtin/")) {
+                    references.add(reference("parent model", parent, "models/", ".json"));
+                }
+            } else if (field.equals("textures") && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    if (parser.nextToken() == JsonToken.VALUE_STRING) {
+                        String texture = parser.getText();
+                        if (!texture.startsWith("#")) {
+                            references.add(reference("texture", texture, "textures/", ".png"));
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Every string field named "model" at any depth: the variants and multipart cases of a blockstate,
+     * and the model nodes of an item definition.
+     */
+    private static void collectModelFields(JsonParser parser,
+                                           List<ValidationCache.Reference> references) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.FIELD_NAME && parser.currentName().equals("model")
+                    && parser.nextToken() == JsonToken.VALUE_STRING) {
+                references.add(reference("model", parser.getText(), "models/", ".json"));
+            }
+        }
+    }
+
+    private static void collectFontReferences(JsonNode font, List<ValidationCache.Reference> references) {
+        for (JsonNode provider : font.path("providers")) {
+            String type = provider.path("type").asText("").replaceFirst("^minecraft:", "");
+            switch (type) {
+                case "bitmap" -> addReference(references, "font texture", provider.path("file"), "textures/", "");
+                case "ttf" -> addReference(references, "font file", provider.path("file"), "font/", "");
+                case "reference" -> addReference(references, "font", provider.path("id"), "font/", ".json");
+                case "unihex" -> addReference(references, "font file", provider.path("hex_file"), "", "");
+                default -> {
+                    // space and legacy_unicode reference nothing that has to be in the pack
+                }
+            }
         }
     }
 
-    private void validateTextureReferences(ZipFile zip, Map<String, Set<String>> textureReferences) {
-        textureReferences.forEach((model, textures) -> {
-            textures.forEach(texture -> {
-                String texturePath = "assets/minecraft/textures/" + texture + ".png";
-                if (zip.getEntry(texturePath) == null) {
-                    addIssue("Missing texture '" + texture + "' referenced in " + model, false);
+    private static void collectSoundReferences(String namespace, JsonNode sounds,
+                                               List<ValidationCache.Reference> references) {
+        for (JsonNode event : sounds) {
+            for (JsonNode sound : event.path("sounds")) {
+                JsonNode soundName = sound.isTextual() ? sound : sound.path("name");
+                if (sound.path("type").asText("file").equals("event") || !soundName.isTextual()) {
+                    continue;
                 }
-            });
-        });
+                // Sound names without a namespace are relative to the namespace of the sounds.json
+                String id = soundName.asText();
+                references.add(reference("sound", id.contains(":") ? id : namespace + ":" + id, "sounds/", ".ogg"));
+            }
+        }
     }
 
-    private void addIssue(String message, boolean critical) {
-        issues.add(new ValidationIssue(message, critical));
+    private static void addReference(List<ValidationCache.Reference> references, String kind, JsonNode id,
+                                     String folder, String extension) {
+        if (id.isTextual()) {
+            references.add(reference(kind, id.asText(), folder, extension));
+        }
+    }
+
+    /**
+     * A resource location {@code [namespace:]path} as the entry it points to, the namespace
+     * defaulting to minecraft.
+     */
+    private static ValidationCache.Reference reference(String kind, String id, String folder, String extension) {
+        int colon = id.indexOf(':');
+        String namespace = colon >= 0 ? id.substring(0, colon) : "minecraft";
+        return new ValidationCache.Reference(kind, id, namespace, folder + id.substring(colon + 1) + extension);
+    }
+
+    /**
+     * Namespace, type and path of an entry below {@code assets/}, or null for other entries.
+     */
+    private static String[] assetPath(String name) {
+        if (!name.startsWith("assets/")) {
+            return null;
+        }
+        String[] parts = name.substring("assets/".length()).split("/", 3);
+        if (parts.length < 2) {
+            return null;
+        }
+        return parts.length == 2 ? new String[]{parts[0], AssetIndex.ROOT, parts[1]} : parts;
     }
 
-    public record ValidationResult(boolean isValid, List<ValidationIssue> issues) {
+    /**
+     * @param entryCount    entries in the pack's central directory
+     * @param elapsedMillis time the validation took
+     * @param parsedEntries JSON entries, textures and sounds that were read
+     * @param reusedEntries entries whose earlier result was reused from the cache
+     * @param cached        whether the whole result came from the cache, the pack being unchanged
+     * @param budget        summary of the budget analysis, empty if it is disabled
+     */
+    public record ValidationResult(boolean isValid, List<ValidationIssue> issues, int entryCount, long elapsedMillis,
+                                   int parsedEntries, int reusedEntries, boolean cached, List<String> budget) {
         public List<String> getFormattedIssues() {
             List<String> formatted = new ArrayList<>();
             formatted.add("Validation Results:");
@@ -0,0 +1,126 @@
+package org.vortex.resourceloader.validation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers validation work in memory, at two levels: whole results (and asset indexes) by the
+ * SHA-1 of the pack, and the parse result of single entries by name, CRC32 and size from the central
+ * directory. The entry level is what makes re-validating an edited pack cheap, and it is shared
+ * between packs, so a merged pack reuses what was found in its inputs. All levels evict the least
+ * recently used first.
+ */
+public class ValidationCache {
+    /**
+     * What parsing one entry found. References are kept rather than resolved, since whether they
+     * exist depends on the rest of the pack. For textures and sounds, {@code media} is their header.
+     */
+    record EntryResult(List<PackValidator.ValidationIssue> issues, List<Reference> references, boolean critical,
+                       PackBudget.Media media) {
+        EntryResult(List<PackValidator.ValidationIssue> issues, List<Reference> references, boolean critical) {
+            this(issues, references, critical, null);
+        }
+    }
+
+    /**
+     * @param id   the resource location as written, for messages
+     * @param path the referenced file relative to its namespace folder
+     */
+    record Reference(String kind, String id, String namespace, String path) {}
+
+    private final Map<String, PackValidator.ValidationResult> results;
+    private final Map<String, AssetIndex> indexes;
+    private final Map<String, EntryResult> entries;
+    private final AtomicLong resultHits = new AtomicLong();
+    private final AtomicLong resultMisses = new AtomicLong();
+    private final AtomicLong entryHits = new AtomicLong();
+    private final AtomicLong entryMisses = new AtomicLong();
+
+    public ValidationCache(int maxResults, int maxEntries) {
+        this.results = lru(maxResults);
+        this.indexes = lru(maxResults);
+        this.entries = lru(maxEntries);
+    }
+
+    private static <V> Map<String, V> lru(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    PackValidator.ValidationResult getResult(String packHash) {
+        PackValidator.ValidationResult result;
+        synchronized (results) {
+            result = results.get(packHash);
+        }
+        (result != null ? resultHits : resultMisses).incrementAndGet();
+        return result;
+    }
+
+    void putResult(String packHash, PackValidator.ValidationResult result) {
+        synchronized (results) {
+            results.put(packHash, result);
+        }
+    }
+
+    AssetIndex getIndex(String packHash) {
+        synchronized (indexes) {
+            return indexes.get(packHash);
+        }
+    }
+
+    void putIndex(String packHash, AssetIndex index) {
+        synchronized (indexes) {
+            indexes.put(packHash, index);
+        }
+    }
+
+    EntryResult getEntry(String name, long crc, long size) {
+        EntryResult result;
+        synchronized (entries) {
+            result = entries.get(entryKey(name, crc, size));
+        }
+        (result != null ? entryHits : entryMisses).incrementAndGet();
+        return result;
+    }
+
+    void putEntry(String name, long crc, long size, EntryResult result) {
+        synchronized (entries) {
+            entries.put(entryKey(name, crc, size), result);
+        }
+    }
+
+    private static String entryKey(String name, long crc, long size) {
+        return name + "\n" + Long.toHexString(crc) + ":" + size;
+    }
+
+    public void clear() {
+        synchronized (results) {
+            results.clear();
+        }
+        synchronized (indexes) {
+            indexes.clear();
+        }
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Hit rates since startup, for command output.
+     */
+    public String formatHitRates() {
+        return String.format("packs %s, entries %s", rate(resultHits.get(), resultMisses.get()),
+            rate(entryHits.get(), entryMisses.get()));
+    }
+
+    private static String rate(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? "n/a" : String.format("%.1f%% (%d/%d)", 100.0 * hits / total, hits, total);
+    }
+}